@@ -0,0 +1,70 @@
+package io.github.bmd007.reactiveland;
+
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the aggregator of the reservation window, one operation being one customer event or table decision folded
+ * into the reservation of its customer, like the stream thread does for every record of the customer events and table
+ * decisions topics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AggregationBenchmark {
+
+    private static final int CUSTOMERS = 1_000;
+    private static final Duration PAYMENT_TIMEOUT = Duration.ofSeconds(15);
+
+    private List<ReservationEventMix.KeyedEvent> events;
+    private Map<String, CustomerReservations> reservations;
+    private int next;
+
+    @Setup
+    public void setup() {
+        events = ReservationEventMix.generate(CUSTOMERS);
+        reservations = new HashMap<>(CUSTOMERS * 2);
+    }
+
+    @Benchmark
+    public CustomerReservations aggregateEvent() {
+        if (next == events.size()) {
+            // replay the mix from the start: the customers start over with a new window
+            next = 0;
+            reservations.clear();
+        }
+        var keyedEvent = events.get(next++);
+        var current = reservations.getOrDefault(keyedEvent.customerId(), CustomerReservations.none());
+        var aggregated = KStreamAndKTableDefinitions.aggregation(keyedEvent.customerId(), keyedEvent.event(), current, PAYMENT_TIMEOUT);
+        reservations.put(keyedEvent.customerId(), aggregated);
+        return aggregated;
+    }
+
+    @Benchmark
+    public TableReservation reservationTransitions() {
+        return TableReservation.createTableReservation()
+                .withTableId("table")
+                .request("customer")
+                .granted()
+                .paidFor();
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.bmd007.reactiveland;
+
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationTimedOut;
+import io.github.bmd007.reactiveland.processor.PaymentTimeoutDetector;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.Suppressed;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.state.Stores;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.EVENT_BINARY_SERDE;
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.RESERVATION_AGGREGATE_BINARY_SERDE;
+
+/**
+ * Throughput of payment timeout detection, one operation being one customer event or table decision piped through a
+ * {@link TopologyTestDriver}, for:
+ * <li>DETECTOR: the {@link PaymentTimeoutDetector}, as the topology runs it
+ * <li>WINDOW_SUPPRESS: the reservation aggregated in windows of the payment timeout, suppressed until the window closes,
+ * its reservations still awaiting payment then timed out; what the detector replaced
+ * The driver, the changelogs and the binary serdes cost the same to both. The mix is replayed shifted in time by a
+ * round, long enough for every deadline and window of the previous round to be over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+// a whole topology takes longer to compile than the single methods the other benchmarks measure
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PaymentTimeoutBenchmark {
+
+    private static final int CUSTOMERS = 1_000;
+    private static final Duration PAYMENT_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration SCAN_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration GRACE = Duration.ofSeconds(1);
+    private static final Duration WALL_CLOCK_GRACE = Duration.ofSeconds(5);
+
+    @Param({"DETECTOR", "WINDOW_SUPPRESS"})
+    public String approach;
+
+    private Path stateDir;
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Event> events;
+    private List<ReservationEventMix.KeyedEvent> mix;
+    private long round;
+    private long roundMillis;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        stateDir = Files.createTempDirectory("payment-timeout-benchmark");
+        var topology = switch (approach) {
+            case "DETECTOR" -> detector();
+            case "WINDOW_SUPPRESS" -> windowSuppress();
+            default -> throw new IllegalArgumentException("unknown approach " + approach);
+        };
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "payment-timeout-benchmark");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(topology, props);
+        events = driver.createInputTopic("events", Serdes.String().serializer(), EVENT_BINARY_SERDE);
+        // in the order they happened, as windows drop what comes later than their grace
+        mix = new ArrayList<>(ReservationEventMix.generate(CUSTOMERS));
+        mix.sort(Comparator.comparing(keyedEvent -> keyedEvent.event().timestamp()));
+        var first = mix.get(0).event().timestamp();
+        var last = mix.get(mix.size() - 1).event().timestamp();
+        roundMillis = Duration.between(first, last).plus(PAYMENT_TIMEOUT.multipliedBy(2)).toMillis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        driver.close();
+        Utils.delete(stateDir.toFile());
+    }
+
+    @Benchmark
+    public void pipeEvent() {
+        if (next == mix.size()) {
+            next = 0;
+            round++;
+            // the outcomes and changelog records of the round, which the driver would otherwise keep
+            for (var topic : driver.producedTopicNames()) {
+                driver.createOutputTopic(topic, new ByteArrayDeserializer(), new ByteArrayDeserializer()).readRecordsToList();
+            }
+        }
+        var keyedEvent = mix.get(next++);
+        var at = keyedEvent.event().timestamp().plusMillis(round * roundMillis);
+        events.pipeInput(keyedEvent.customerId(), keyedEvent.event(), at);
+    }
+
+    private static Topology detector() {
+        var builder = new StreamsBuilder();
+        builder.stream("events", Consumed.with(Serdes.String(), EVENT_BINARY_SERDE))
+                .process(new PaymentTimeoutDetector(PAYMENT_TIMEOUT, SCAN_INTERVAL, WALL_CLOCK_GRACE))
+                .mapValues(Event.class::cast)
+                .to("outcomes", Produced.with(Serdes.String(), EVENT_BINARY_SERDE));
+        return builder.build();
+    }
+
+    private static Topology windowSuppress() {
+        var builder = new StreamsBuilder();
+        builder.stream("events", Consumed.with(Serdes.String(), EVENT_BINARY_SERDE))
+                .groupByKey(Grouped.with(Serdes.String(), EVENT_BINARY_SERDE))
+                .windowedBy(TimeWindows.ofSizeAndGrace(PAYMENT_TIMEOUT, GRACE))
+                .aggregate(CustomerReservations::none,
+                        (customerId, event, current) -> KStreamAndKTableDefinitions.aggregation(customerId, event, current, PAYMENT_TIMEOUT),
+                        Materialized.<String, CustomerReservations>as(Stores.inMemoryWindowStore("reservations",
+                                        PAYMENT_TIMEOUT.plus(GRACE), PAYMENT_TIMEOUT, false))
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(RESERVATION_AGGREGATE_BINARY_SERDE)
+                                .withCachingDisabled())
+                .suppress(Suppressed.untilWindowCloses(Suppressed.BufferConfig.unbounded()))
+                .toStream()
+                .flatMap((window, customerReservations) -> customerReservations.reservations().stream()
+                        .filter(TableReservation::isPayable)
+                        .map(reservation -> KeyValue.<String, Event>pair(window.key(),
+                                new ReservationTimedOut(window.key(), reservation.getTableId(), window.window().endTime())))
+                        .toList())
+                .to("outcomes", Produced.with(Serdes.String(), EVENT_BINARY_SERDE));
+        return builder.build();
+    }
+}
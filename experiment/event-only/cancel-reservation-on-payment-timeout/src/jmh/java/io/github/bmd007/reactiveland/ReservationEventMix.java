@@ -0,0 +1,61 @@
+package io.github.bmd007.reactiveland;
+
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.DefaultCustomerEvent;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Customer events in the proportions the reservation topology sees them, generated with a fixed seed so every run of
+ * a benchmark works on the same data:
+ * <li>every customer requests a table, which the arbiter grants them
+ * <li>most of them pay for it, which the arbiter accepts
+ * <li>a few send events the aggregation ignores
+ * Competing for a table is left out, every request is granted.
+ * Paying twice is left out: the aggregation logs it as an error, with a stack trace, which says nothing about the
+ * happy path and floods the benchmark output.
+ */
+public final class ReservationEventMix {
+
+    private static final double PAYING_CUSTOMERS = 0.8;
+    private static final double IGNORED_EVENTS = 0.1;
+
+    private ReservationEventMix() {
+    }
+
+    public record KeyedEvent(String customerId, Event event) {
+    }
+
+    /**
+     * @return the events of all the customers, the events of one customer in the order they happened
+     */
+    public static List<KeyedEvent> generate(int customers) {
+        var random = new Random(42);
+        var start = Instant.parse("2024-10-29T18:00:00Z");
+        var events = new ArrayList<KeyedEvent>();
+        for (int i = 0; i < customers; i++) {
+            var customerId = UUID.nameUUIDFromBytes(("customer" + i).getBytes()).toString();
+            var tableId = "table-" + random.nextInt(200);
+            var occurredAt = start.plusMillis(i * 10L);
+            events.add(new KeyedEvent(customerId, new CustomerRequestedTable(customerId, tableId, occurredAt)));
+            events.add(new KeyedEvent(customerId, new TableGranted(customerId, tableId, occurredAt)));
+            if (random.nextDouble() < IGNORED_EVENTS) {
+                events.add(new KeyedEvent(customerId, new DefaultCustomerEvent(customerId, occurredAt.plusMillis(500))));
+            }
+            if (random.nextDouble() < PAYING_CUSTOMERS) {
+                var paidAt = occurredAt.plusSeconds(5);
+                events.add(new KeyedEvent(customerId, new CustomerPaidForTable(customerId, tableId, paidAt)));
+                events.add(new KeyedEvent(customerId, new PaymentAccepted(customerId, tableId, paidAt)));
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.configuration.BoundedMemoryRocksDBConfig;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.processor.TaskId;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedWindowStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.RESERVATION_AGGREGATE_BINARY_SERDE;
+
+/**
+ * Puts and fetches on the reservation window store, built like the topology builds it (same window, retention, value
+ * serde and rocksdb settings), for both store types of kafka.streams.store-type. Caching and the changelog are left
+ * out: they are the same for both types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WindowStoreBenchmark {
+
+    private static final Duration WINDOW_SIZE = Duration.ofSeconds(15);
+    private static final Duration RETENTION = WINDOW_SIZE.plusSeconds(1);
+    private static final int CUSTOMERS = 10_000;
+
+    @Param({"IN_MEMORY", "ROCKS_DB"})
+    public Materialized.StoreType storeType;
+
+    private Path stateDir;
+    private TimestampedWindowStore<String, CustomerReservations> store;
+    private String[] customerIds;
+    private ValueAndTimestamp<CustomerReservations> reservation;
+    private long windowStart;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        stateDir = Files.createTempDirectory("window-store-benchmark");
+        var supplier = switch (storeType) {
+            case IN_MEMORY -> Stores.inMemoryWindowStore("benchmark", RETENTION, WINDOW_SIZE, false);
+            case ROCKS_DB -> Stores.persistentTimestampedWindowStore("benchmark", RETENTION, WINDOW_SIZE, false);
+        };
+        store = Stores.timestampedWindowStoreBuilder(supplier, Serdes.String(), RESERVATION_AGGREGATE_BINARY_SERDE)
+                .withCachingDisabled()
+                .withLoggingDisabled()
+                .build();
+        var config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "window-store-benchmark");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        config.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, BoundedMemoryRocksDBConfig.class);
+        config.put(BoundedMemoryRocksDBConfig.TOTAL_OFF_HEAP_MEMORY_CONFIG, 256L * 1024 * 1024);
+        config.put(BoundedMemoryRocksDBConfig.TOTAL_MEMTABLE_MEMORY_CONFIG, 64L * 1024 * 1024);
+        var context = new MockProcessorContext<>(config, new TaskId(0, 0), stateDir.toFile());
+        store.init(context.getStateStoreContext(), store);
+
+        customerIds = new String[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customerIds[i] = UUID.nameUUIDFromBytes(("customer" + i).getBytes()).toString();
+        }
+        windowStart = System.currentTimeMillis() / WINDOW_SIZE.toMillis() * WINDOW_SIZE.toMillis();
+        var awaitingPayment = TableReservation.createTableReservation().withTableId("table-1").awaitPayment(customerIds[0]);
+        reservation = ValueAndTimestamp.make(CustomerReservations.of(awaitingPayment), windowStart);
+        for (var customerId : customerIds) {
+            store.put(customerId, reservation, windowStart);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Utils.delete(stateDir.toFile());
+    }
+
+    @Benchmark
+    public void put() {
+        store.put(nextCustomerId(), reservation, windowStart);
+    }
+
+    @Benchmark
+    public ValueAndTimestamp<CustomerReservations> fetch() {
+        return store.fetch(nextCustomerId(), windowStart);
+    }
+
+    private String nextCustomerId() {
+        next = (next + 1) % CUSTOMERS;
+        return customerIds[next];
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import io.github.bmd007.reactiveland.ReservationEventMix;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import io.github.bmd007.reactiveland.event.Event;
+import org.apache.kafka.common.serialization.Serde;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.*;
+
+/**
+ * Round trips (serialize then deserialize) of the events and of the reservation aggregate, in the compact binary format
+ * the topology uses and in the json format it replaced, so both throughput and allocations can be compared.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerdeBenchmark {
+
+    private static final String TOPIC = "benchmark";
+
+    public enum Format {
+        BINARY,
+        JSON
+    }
+
+    @Param({"BINARY", "JSON"})
+    public Format format;
+
+    private List<Event> events;
+    private List<CustomerReservations> reservations;
+    private Serde<Event> eventSerde;
+    private Serde<CustomerReservations> reservationSerde;
+    private int nextEvent;
+    private int nextReservation;
+
+    @Setup
+    public void setup() {
+        events = ReservationEventMix.generate(1_000).stream().map(ReservationEventMix.KeyedEvent::event).toList();
+        var awaitingPayment = TableReservation.createTableReservation().withTableId("table-1").awaitPayment("customer");
+        var otherTable = TableReservation.createTableReservation().withTableId("table-2").awaitPayment("customer");
+        reservations = List.of(CustomerReservations.none(), CustomerReservations.of(awaitingPayment),
+                new CustomerReservations(List.of(awaitingPayment.paidFor(), otherTable)));
+        eventSerde = format == Format.BINARY ? EVENT_BINARY_SERDE : EVENT_JSON_SERDE;
+        reservationSerde = format == Format.BINARY ? RESERVATION_AGGREGATE_BINARY_SERDE : RESERVATION_AGGREGATE_JSON_SERDE;
+    }
+
+    @Benchmark
+    public Event eventRoundTrip() {
+        var event = events.get(nextEvent);
+        nextEvent = (nextEvent + 1) % events.size();
+        var bytes = eventSerde.serializer().serialize(TOPIC, event);
+        return eventSerde.deserializer().deserialize(TOPIC, bytes);
+    }
+
+    @Benchmark
+    public CustomerReservations reservationRoundTrip() {
+        var reservation = reservations.get(nextReservation);
+        nextReservation = (nextReservation + 1) % reservations.size();
+        var bytes = reservationSerde.serializer().serialize(TOPIC, reservation);
+        return reservationSerde.deserializer().deserialize(TOPIC, bytes);
+    }
+}
@@ -3,10 +3,23 @@ package io.github.bmd007.reactiveland;
 import io.github.bmd007.reactiveland.configuration.KafkaEventProducer;
 import io.github.bmd007.reactiveland.configuration.StateStores;
 import io.github.bmd007.reactiveland.configuration.Topics;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
 import io.github.bmd007.reactiveland.domain.TableReservation;
 import io.github.bmd007.reactiveland.event.Event;
 import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
 import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentRefused;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationTimedOut;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableRejected;
+import io.github.bmd007.reactiveland.processor.DuplicateEventFilter;
+import io.github.bmd007.reactiveland.processor.E2eLatencyRecorder;
+import io.github.bmd007.reactiveland.processor.PaymentTimeoutDetector;
+import io.github.bmd007.reactiveland.processor.ReservationIndexer;
+import io.github.bmd007.reactiveland.processor.SnapshotLoadingWindowStoreSupplier;
+import io.github.bmd007.reactiveland.processor.TableArbiter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.serialization.Serdes;
@@ -14,15 +27,17 @@ import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.kstream.Grouped;
 import org.apache.kafka.streams.kstream.Materialized;
-import org.apache.kafka.streams.kstream.Suppressed;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Repartitioned;
 import org.apache.kafka.streams.kstream.TimeWindows;
-import org.apache.kafka.streams.kstream.internals.suppress.StrictBufferConfigImpl;
+import org.apache.kafka.streams.state.Stores;
 import org.apache.kafka.streams.state.WindowStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
 import java.time.Duration;
-import java.time.LocalTime;
-import java.time.ZoneId;
+import java.util.List;
 
 import static io.github.bmd007.reactiveland.serialization.CustomSerdes.*;
 
@@ -30,62 +45,146 @@ import static io.github.bmd007.reactiveland.serialization.CustomSerdes.*;
 @Configuration
 public class KStreamAndKTableDefinitions {
 
-    private static final Materialized<String, TableReservation, WindowStore<Bytes, byte[]>> RESERVATION_LOCAL_KTABLE_MATERIALIZED =
-            Materialized.<String, TableReservation, WindowStore<Bytes, byte[]>>as(StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE)
-                    .withStoreType(Materialized.StoreType.IN_MEMORY)
-                    .withKeySerde(Serdes.String())
-                    .withValueSerde(RESERVATION_AGGREGATE_JSON_SERDE);
+    static final Duration RESERVATION_WINDOW_SIZE = Duration.ofSeconds(15);
+    private static final Duration RESERVATION_WINDOW_GRACE = Duration.ofSeconds(1);
 
+    private final Materialized<String, CustomerReservations, WindowStore<Bytes, byte[]>> reservationLocalKTableMaterialized;
     private final StreamsBuilder streamsBuilder;
     private final KafkaEventProducer kafkaEventProducer;
+    private final PaymentTimeoutDetector paymentTimeoutDetector;
+    private final TableArbiter tableArbiter;
+    private final ReservationIndexer reservationIndexer;
+    private final DuplicateEventFilter duplicateEventFilter;
+    private final MeterRegistry meterRegistry;
+    private final Duration paymentTimeout;
 
-    public KStreamAndKTableDefinitions(StreamsBuilder streamsBuilder, KafkaEventProducer kafkaEventProducer) {
+    public KStreamAndKTableDefinitions(StreamsBuilder streamsBuilder,
+                                       KafkaEventProducer kafkaEventProducer,
+                                       @Value("${reservation.payment.timeout}") Duration paymentTimeout,
+                                       @Value("${reservation.payment.timeout-scan-interval}") Duration timeoutScanInterval,
+                                       @Value("${reservation.payment.timeout-wall-clock-grace}") Duration timeoutWallClockGrace,
+                                       @Value("${reservation.table.booking-duration}") Duration bookingDuration,
+                                       @Value("${reservation.dedupe.window}") Duration dedupeWindow,
+                                       @Value("${reservation.dedupe.expected-events-per-window}") int dedupeExpectedEvents,
+                                       @Value("${reservation.dedupe.false-positive-rate}") double dedupeFalsePositiveRate,
+                                       @Value("${kafka.streams.store-type}") Materialized.StoreType storeType,
+                                       @Value("${kafka.streams.snapshot.dir}") Path snapshotDirectory,
+                                       MeterRegistry meterRegistry) {
+        // the name of the store (and so of its changelog topic) stays the same whatever the type of the store is
+        var retention = RESERVATION_WINDOW_SIZE.plus(RESERVATION_WINDOW_GRACE);
+        var storeSupplier = switch (storeType) {
+            case IN_MEMORY -> Stores.inMemoryWindowStore(StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE, retention, RESERVATION_WINDOW_SIZE, false);
+            case ROCKS_DB -> Stores.persistentTimestampedWindowStore(StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE, retention, RESERVATION_WINDOW_SIZE, false);
+        };
+        this.reservationLocalKTableMaterialized = Materialized.<String, CustomerReservations>as(new SnapshotLoadingWindowStoreSupplier(storeSupplier, snapshotDirectory))
+                .withKeySerde(Serdes.String())
+                .withValueSerde(RESERVATION_AGGREGATE_BINARY_SERDE)
+                // every state of the aggregate has to reach the reservation index
+                .withCachingDisabled();
         this.streamsBuilder = streamsBuilder;
         this.kafkaEventProducer = kafkaEventProducer;
+        this.paymentTimeoutDetector = new PaymentTimeoutDetector(paymentTimeout, timeoutScanInterval, timeoutWallClockGrace);
+        this.tableArbiter = new TableArbiter(paymentTimeout, bookingDuration);
+        this.reservationIndexer = new ReservationIndexer(RESERVATION_WINDOW_SIZE, retention);
+        this.duplicateEventFilter = new DuplicateEventFilter(dedupeWindow, dedupeExpectedEvents, dedupeFalsePositiveRate, meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.paymentTimeout = paymentTimeout;
     }
 
-    private TableReservation aggregation(String key, Event event, TableReservation currentTableReservation) {
+    static CustomerReservations aggregation(String key, Event event, CustomerReservations current, Duration paymentTimeout) {
         return switch (event) {
             case CustomerRequestedTable customerRequestedTable -> {
-                if (currentTableReservation.getTableId() == null) {
-                    yield currentTableReservation.withTableId(customerRequestedTable.tableId()).awaitPayment(key);
+                if (current.reservation(customerRequestedTable.tableId()).isPresent()) {
+                    yield current; // the same table requested again, its deadline keeps running
+                }
+                var requestedAt = customerRequestedTable.timestamp();
+                // not payable until the arbiter grants the table: the request may lose it to another customer
+                yield current.put(TableReservation.createTableReservation()
+                        .withTableId(customerRequestedTable.tableId())
+                        .request(key)
+                        .withPaymentDeadline(requestedAt == null ? null : requestedAt.plus(paymentTimeout)));
+            }
+            case TableGranted tableGranted -> {
+                var granted = current.reservation(tableGranted.tableId());
+                if (granted.isPresent() && granted.get().isRequested()) {
+                    yield current.put(granted.get().granted());
                 }
-                log.error("does not support parallel reservation per customer yet");
-                yield null;
+                yield current;
             }
-            case CustomerPaidForTable ignored -> {
-                try {
-                    yield currentTableReservation.paidFor();
-                } catch (Exception e) {
-                    log.error("error when setting the table reservation {} status to paid for", currentTableReservation, e);
-                    yield currentTableReservation;
+            case TableRejected tableRejected -> {
+                // the table went to another customer: nothing to pay for, which also cancels the payment deadline
+                var rejected = current.reservation(tableRejected.tableId());
+                if (rejected.isPresent() && !rejected.get().isPaidFor()) {
+                    yield current.remove(tableRejected.tableId());
                 }
+                yield current;
+            }
+            // a payment books the table only once the arbiter accepted it, see PaymentAccepted
+            case CustomerPaidForTable ignored -> current;
+            case PaymentAccepted paymentAccepted -> {
+                // the arbiter holds the table for the customer, even if the request was aggregated in an older window
+                var paidFor = current.reservation(paymentAccepted.tableId())
+                        .orElseGet(() -> TableReservation.createTableReservation()
+                                .withTableId(paymentAccepted.tableId())
+                                .request(key));
+                if (paidFor.isRequested()) {
+                    // the arbiter only accepts payments of the customer it granted the table to
+                    paidFor = paidFor.granted();
+                }
+                if (paidFor.isPayable()) {
+                    yield current.put(paidFor.paidFor());
+                }
+                log.error("customer {} paid for table {} which is not payable in {}", key, paymentAccepted.tableId(), current);
+                yield current;
+            }
+            case PaymentRefused paymentRefused -> {
+                log.warn("payment of customer {} for table {} was refused, the table is not held for them", key, paymentRefused.tableId());
+                yield current;
             }
-            default -> currentTableReservation;
+            default -> current;
         };
     }
 
     @PostConstruct
     public void configureStores() {
-        var suppressedConfig = new StrictBufferConfigImpl().withMaxRecords(2).emitEarlyWhenFull();
-        TimeWindows timeWindows = TimeWindows.ofSizeAndGrace(Duration.ofSeconds(15), Duration.ofSeconds(1));
-        streamsBuilder.stream(Topics.CUSTOMER_EVENTS_TOPIC, EVENT_CONSUMED)
-                .groupByKey(Grouped.with(Serdes.String(), EVENT_JSON_SERDE))
+        TimeWindows timeWindows = TimeWindows.ofSizeAndGrace(RESERVATION_WINDOW_SIZE, RESERVATION_WINDOW_GRACE);
+        // both topics are keyed by customer id: the decisions of the arbiter come back to the reservation of the customer
+        var customerEvents = streamsBuilder.stream(List.of(Topics.CUSTOMER_EVENTS_TOPIC, Topics.TABLE_DECISIONS_TOPIC), EVENT_CONSUMED)
+                // retried commands, before they are aggregated or reach the arbiter
+                .processValues(duplicateEventFilter, Named.as("duplicate-event-filter"));
+        // the window only serves the view
+        customerEvents
+                .groupByKey(Grouped.with(Serdes.String(), EVENT_BINARY_SERDE))
                 .windowedBy(timeWindows)
-                .aggregate(TableReservation::createTableReservation, this::aggregation, RESERVATION_LOCAL_KTABLE_MATERIALIZED)
-//                .suppress(Suppressed.untilWindowCloses(suppressedConfig))
-                .suppress(Suppressed.untilTimeLimit(Duration.ofSeconds(15), suppressedConfig))
+                .aggregate(CustomerReservations::none,
+                        (customerId, event, current) -> aggregation(customerId, event, current, paymentTimeout),
+                        reservationLocalKTableMaterialized)
                 .toStream()
-                .foreach((key, tableReservation) -> {
-                    log.info("BMD:: \n final {} ", tableReservation);
-                    // we can produce events into other topic to update the actual state machine of orders
-                    // todo: we don't get the trigger for time out.  We end up here when paid, either on time or late. But not when timedout.
-                    // the suppress messes things up somehow.
-                    // also apparently the window sometimes gets closed to early
-                    LocalTime startTime = LocalTime.ofInstant(key.window().startTime(), ZoneId.of("Europe/Stockholm"));
-                    LocalTime endTime = LocalTime.ofInstant(key.window().endTime(), ZoneId.of("Europe/Stockholm"));
-                    log.info("window length {}:{}", startTime, endTime);
-                });
+                .processValues(new E2eLatencyRecorder<>("aggregate", meterRegistry), Named.as("aggregate-e2e-latency"))
+                .processValues(reservationIndexer, Named.as("reservation-indexer"));
+        // outcomes are tracked per customer and table by the detector, across windows
+        var outcomes = customerEvents
+                .process(paymentTimeoutDetector, Named.as("payment-timeout-detector"));
+        outcomes
+                .filter((customerId, outcome) -> outcome instanceof ReservationTimedOut, Named.as("timed-out-reservations"))
+                .processValues(new E2eLatencyRecorder<>("payment-timeout", meterRegistry), Named.as("payment-timeout-e2e-latency"));
+        // under exactly once, the outcomes are produced in the same transaction as the store updates that led to them
+        outcomes
+                .mapValues(Event.class::cast, Named.as("reservation-events"))
+                .to(Topics.RESERVATION_EVENTS_TOPIC, EVENT_PRODUCED);
+        customerEvents
+                .filter((customerId, event) -> event instanceof CustomerRequestedTable || event instanceof CustomerPaidForTable, Named.as("table-events"))
+                .selectKey((customerId, event) -> switch (event) {
+                    case CustomerRequestedTable customerRequestedTable -> customerRequestedTable.tableId();
+                    case CustomerPaidForTable customerPaidForTable -> customerPaidForTable.tableId();
+                    default -> null;
+                }, Named.as("table-events-by-table-id"))
+                // single writer per table: all the events of a table end up in the same partition
+                .repartition(Repartitioned.<String, Event>as("table-events-by-table-id")
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(EVENT_BINARY_SERDE))
+                .process(tableArbiter, Named.as("table-arbiter"))
+                .to(Topics.TABLE_DECISIONS_TOPIC, EVENT_PRODUCED);
     }
 
     //**
@@ -0,0 +1,80 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.WriteBufferManager;
+
+import java.util.Map;
+
+/**
+ * Puts a bound on the off heap memory of all the RocksDB stores of the application, instead of a cache and memtables
+ * per store (and per segment of window stores):
+ * <li>one LRU block cache shared by all stores, index and filter blocks included, with a share kept for them
+ * <li>memtables are accounted against the same cache through a shared write buffer manager
+ * <li>bloom filters, since reads are point lookups by customer id
+ * The sizes are read from the streams config, see the *_CONFIG keys.
+ */
+public class BoundedMemoryRocksDBConfig implements RocksDBConfigSetter {
+
+    public static final String TOTAL_OFF_HEAP_MEMORY_CONFIG = "reservation.rocksdb.total-off-heap-bytes";
+    public static final String TOTAL_MEMTABLE_MEMORY_CONFIG = "reservation.rocksdb.total-memtable-bytes";
+
+    private static final double INDEX_FILTER_BLOCK_RATIO = 0.1;
+    private static final long BLOCK_SIZE = 4 * 1024L;
+    private static final int MEMTABLES_PER_STORE = 3;
+    private static final double BLOOM_FILTER_BITS_PER_KEY = 10;
+
+    // shared by every store of every stream thread, never closed: they live as long as the application
+    private static Cache cache;
+    private static WriteBufferManager writeBufferManager;
+
+    private BloomFilter bloomFilter;
+
+    @Override
+    public void setConfig(String storeName, Options options, Map<String, Object> configs) {
+        initSharedMemory(configs);
+        var tableConfig = (BlockBasedTableConfig) options.tableFormatConfig();
+        tableConfig.setBlockCache(cache);
+        tableConfig.setCacheIndexAndFilterBlocks(true);
+        tableConfig.setCacheIndexAndFilterBlocksWithHighPriority(true);
+        tableConfig.setPinTopLevelIndexAndFilter(true);
+        tableConfig.setBlockSize(BLOCK_SIZE);
+        bloomFilter = new BloomFilter(BLOOM_FILTER_BITS_PER_KEY, false);
+        tableConfig.setFilterPolicy(bloomFilter);
+        options.setTableFormatConfig(tableConfig);
+        options.setWriteBufferManager(writeBufferManager);
+        options.setMaxWriteBufferNumber(MEMTABLES_PER_STORE);
+    }
+
+    @Override
+    public void close(String storeName, Options options) {
+        if (bloomFilter != null) {
+            bloomFilter.close();
+        }
+    }
+
+    /**
+     * Bytes the shared block cache currently holds (memtables included), 0 until the first RocksDB store is opened.
+     */
+    public static synchronized long blockCacheUsage() {
+        return cache == null ? 0 : cache.getUsage();
+    }
+
+    public static synchronized long blockCachePinnedUsage() {
+        return cache == null ? 0 : cache.getPinnedUsage();
+    }
+
+    private static synchronized void initSharedMemory(Map<String, Object> configs) {
+        if (cache != null) {
+            return;
+        }
+        var totalOffHeapMemory = Long.parseLong(String.valueOf(configs.get(TOTAL_OFF_HEAP_MEMORY_CONFIG)));
+        var totalMemtableMemory = Long.parseLong(String.valueOf(configs.get(TOTAL_MEMTABLE_MEMORY_CONFIG)));
+        cache = new LRUCache(totalOffHeapMemory, -1, false, INDEX_FILTER_BLOCK_RATIO);
+        writeBufferManager = new WriteBufferManager(totalMemtableMemory, cache);
+    }
+}
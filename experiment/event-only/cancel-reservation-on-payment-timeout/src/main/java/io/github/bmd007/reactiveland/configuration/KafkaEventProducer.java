@@ -1,31 +1,125 @@
 package io.github.bmd007.reactiveland.configuration;
 
 import io.github.bmd007.reactiveland.event.Event;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.Properties;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.github.bmd007.reactiveland.serialization.CustomSerdes.*;
 
+/**
+ * Produces events without waiting for the broker: the returned publishers complete once the producer's send callback
+ * fires, and signal on a bounded scheduler rather than on the producer's network thread, so what subscribers do next
+ * never holds up the sends of others.
+ * Note that {@link KafkaProducer#send} itself may still block the subscribing thread up to max.block.ms when topic
+ * metadata is missing or the record accumulator is full; the in-flight limit of {@link #produceEvents} only bounds how
+ * many events are unacknowledged at once, not how long a send blocks.
+ */
 @Component
 public class KafkaEventProducer {
 
-    private final KafkaProducer<String, Event> eventKafkaProducer;
+    private final Producer<String, Event> eventKafkaProducer;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final MeterRegistry meterRegistry;
+    private final Scheduler scheduler;
 
-    public KafkaEventProducer(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
-        var providerConfig = new Properties();
-        providerConfig.put("bootstrap.servers", bootstrapServers);
-        eventKafkaProducer = new KafkaProducer<>(providerConfig, new StringSerializer(), EVENT_JSON_SERDE.serializer());
+    /**
+     * For clients outside of the application context: kafka.producer.* are read from the system properties, which
+     * spring reads too, with the defaults of application.yml.
+     */
+    public KafkaEventProducer(String bootstrapServers) {
+        this(bootstrapServers,
+                ProducerProfile.valueOf(System.getProperty("kafka.producer.profile", ProducerProfile.BALANCED.name())),
+                Integer.getInteger("kafka.producer.max-in-flight", 256),
+                new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public KafkaEventProducer(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                              @Value("${kafka.producer.profile}") ProducerProfile profile,
+                              @Value("${kafka.producer.max-in-flight}") int maxInFlight,
+                              MeterRegistry meterRegistry) {
+        this(createProducer(bootstrapServers, profile), maxInFlight, meterRegistry, Schedulers.parallel());
+    }
+
+    KafkaEventProducer(Producer<String, Event> eventKafkaProducer, int maxInFlight, MeterRegistry meterRegistry, Scheduler scheduler) {
+        this.eventKafkaProducer = eventKafkaProducer;
+        this.maxInFlight = maxInFlight;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = scheduler;
+        Gauge.builder("reservation.producer.in-flight", inFlight, AtomicInteger::get)
+                .description("events handed to the kafka producer and not acknowledged yet")
+                .register(meterRegistry);
+    }
+
+    private static Producer<String, Event> createProducer(String bootstrapServers, ProducerProfile profile) {
+        var providerConfig = new HashMap<String, Object>(profile.producerConfig());
+        providerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        return new KafkaProducer<>(providerConfig, new StringSerializer(), EVENT_BINARY_SERDE.serializer());
     }
 
     public Mono<RecordMetadata> produceEvent(Event event, String topic) {
-        var record = new ProducerRecord<>(topic, event.key(), event);
-        return Mono.fromCallable(() -> eventKafkaProducer.send(record).get());
+        return Mono.<RecordMetadata>create(sink -> {
+            var record = new ProducerRecord<>(topic, event.key(), event);
+            var sample = Timer.start(meterRegistry);
+            inFlight.incrementAndGet();
+            try {
+                eventKafkaProducer.send(record, (recordMetadata, exception) -> {
+                    inFlight.decrementAndGet();
+                    sample.stop(sendTimer(topic, exception == null ? "success" : "failure"));
+                    if (exception != null) {
+                        sink.error(exception);
+                    } else {
+                        sink.success(recordMetadata);
+                    }
+                });
+            } catch (RuntimeException exception) {
+                inFlight.decrementAndGet();
+                sample.stop(sendTimer(topic, "failure"));
+                sink.error(exception);
+            }
+        }).publishOn(scheduler);
+    }
+
+    /**
+     * Produces the events keeping at most max-in-flight of them unacknowledged, requesting more from upstream only as
+     * acknowledgements arrive. Metadata are emitted in the order of the events.
+     */
+    public Flux<RecordMetadata> produceEvents(Flux<? extends Event> events, String topic) {
+        return events.flatMapSequential(event -> produceEvent(event, topic), maxInFlight);
+    }
+
+    private Timer sendTimer(String topic, String result) {
+        return Timer.builder("reservation.producer.send")
+                .description("time from handing an event to the kafka producer until the broker acknowledged it")
+                .tag("topic", topic)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        eventKafkaProducer.close(Duration.ofSeconds(5));
     }
 }
@@ -1,5 +1,8 @@
 package io.github.bmd007.reactiveland.configuration;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.errors.LogAndContinueExceptionHandler;
@@ -10,6 +13,7 @@ import org.springframework.core.env.Environment;
 import org.springframework.kafka.annotation.EnableKafkaStreams;
 import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
 import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.util.unit.DataSize;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -27,11 +31,18 @@ public class KafkaStreamsDefaultConfig {
             @Value("${kafka.streams.server.config.app-ip}") String ip,
             @Value("${kafka.streams.server.config.app-port}") String port,
             @Value("${spring.kafka.streams.replication-factor}") int kafkaStreamsReplicationFactor,
+            @Value("${kafka.streams.num-standby-replicas}") int numStandbyReplicas,
+            @Value("${kafka.streams.threads.min}") int minStreamThreads,
+            @Value("${kafka.streams.state-dir}") String stateDir,
+            @Value("${kafka.streams.metrics-recording-level}") String metricsRecordingLevel,
+            @Value("${kafka.streams.rocksdb.total-off-heap-memory}") DataSize rocksDbTotalOffHeapMemory,
+            @Value("${kafka.streams.rocksdb.total-memtable-memory}") DataSize rocksDbTotalMemtableMemory,
             Environment environment) {
         Map<String, Object> props = new HashMap<>();
         props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootStrapServers);
         props.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationName);
-        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, 1);
+        // the autoscaler adds threads (up to kafka.streams.threads.max) when the instance falls behind
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, minStreamThreads);
 
         // Using this means accepting the app to continue when it faces a deserialization error, instead of break down
         props.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG, LogAndContinueExceptionHandler.class);
@@ -42,8 +53,16 @@ public class KafkaStreamsDefaultConfig {
         // This configuration is for making remote interactive queries possible
         props.put(StreamsConfig.APPLICATION_SERVER_CONFIG, ip + ":" + port);
         props.put(StreamsConfig.REPLICATION_FACTOR_CONFIG, kafkaStreamsReplicationFactor);
+        props.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, numStandbyReplicas);
 
-        props.put(StreamsConfig.STATE_DIR_CONFIG, "/tmp");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+
+        // only used by stores backed by RocksDB, see kafka.streams.store-type
+        props.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, BoundedMemoryRocksDBConfig.class);
+        props.put(BoundedMemoryRocksDBConfig.TOTAL_OFF_HEAP_MEMORY_CONFIG, rocksDbTotalOffHeapMemory.toBytes());
+        props.put(BoundedMemoryRocksDBConfig.TOTAL_MEMTABLE_MEMORY_CONFIG, rocksDbTotalMemtableMemory.toBytes());
+        // DEBUG adds the RocksDB statistics based metrics (compaction rates and times, ...) to the property based ones
+        props.put(StreamsConfig.METRICS_RECORDING_LEVEL_CONFIG, metricsRecordingLevel);
 
         var activeProfiles = Arrays.stream(environment.getActiveProfiles()).collect(Collectors.toSet());
         //The properties below, should not be applied when active profile is test or mock
@@ -58,4 +77,18 @@ public class KafkaStreamsDefaultConfig {
         return new KafkaStreamsConfiguration(props);
     }
 
+    @Bean
+    public MeterBinder rocksDbSharedMemoryMetrics() {
+        return registry -> {
+            Gauge.builder("kafka.stream.rocksdb.shared.block.cache.usage", BoundedMemoryRocksDBConfig::blockCacheUsage)
+                    .baseUnit(BaseUnits.BYTES)
+                    .description("memory used by the block cache (and memtables) shared by all RocksDB stores")
+                    .register(registry);
+            Gauge.builder("kafka.stream.rocksdb.shared.block.cache.pinned.usage", BoundedMemoryRocksDBConfig::blockCachePinnedUsage)
+                    .baseUnit(BaseUnits.BYTES)
+                    .description("memory pinned in the block cache shared by all RocksDB stores")
+                    .register(registry);
+        };
+    }
+
 }
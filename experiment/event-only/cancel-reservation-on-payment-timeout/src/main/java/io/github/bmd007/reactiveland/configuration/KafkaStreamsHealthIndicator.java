@@ -21,10 +21,12 @@ public class KafkaStreamsHealthIndicator implements HealthIndicator {
     private final String MESSAGE_KEY = "kafka-streams";
 
     private final StreamsBuilderFactoryBean streams;
+    private final KafkaStreamsStateListeners stateListeners;
     private boolean stillRunning = false;
 
-    public KafkaStreamsHealthIndicator(StreamsBuilderFactoryBean streams) {
+    public KafkaStreamsHealthIndicator(StreamsBuilderFactoryBean streams, KafkaStreamsStateListeners stateListeners) {
         this.streams = streams;
+        this.stateListeners = stateListeners;
     }
 
     private synchronized boolean isStillRunning() {
@@ -49,7 +51,7 @@ public class KafkaStreamsHealthIndicator implements HealthIndicator {
             LOGGER.error("uncaught error on kafka streams", exception);
             return REPLACE_THREAD;
         });
-        streams.setStateListener((newState, oldState) -> {
+        stateListeners.register((newState, oldState) -> {
             LOGGER.info("transit kafka streams state from {} to {}", oldState, newState);
             setStillRunning(Set.of(REBALANCING, RUNNING, CREATED).contains(newState));
         });
@@ -0,0 +1,44 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import static org.apache.kafka.streams.KafkaStreams.State.*;
+
+/**
+ * Part of the readiness group: DOWN until kafka streams got to RUNNING, which it only does once every active store has
+ * been restored, and DOWN again while any store is restoring (after a rebalance for example), so that no traffic is
+ * sent to an instance whose queries would stall on its stores.
+ */
+@Component
+public class KafkaStreamsRestoreHealthIndicator implements HealthIndicator {
+
+    private final String MESSAGE_KEY = "kafka-streams-restore";
+
+    private final StateRestoreProgress restoreProgress;
+    private volatile boolean hasBeenRunning = false;
+
+    public KafkaStreamsRestoreHealthIndicator(StateRestoreProgress restoreProgress, KafkaStreamsStateListeners stateListeners) {
+        this.restoreProgress = restoreProgress;
+        stateListeners.register((newState, oldState) -> {
+            if (newState == RUNNING) {
+                hasBeenRunning = true;
+            } else if (newState != REBALANCING) {
+                hasBeenRunning = false;
+            }
+        });
+    }
+
+    @Override
+    public Health health() {
+        if (!hasBeenRunning) {
+            return Health.down().withDetail(MESSAGE_KEY, "Not Running Yet").build();
+        }
+        var restoring = restoreProgress.restoring();
+        if (!restoring.isEmpty()) {
+            return Health.down().withDetail(MESSAGE_KEY, "Restoring").withDetail("restoring", restoring).build();
+        }
+        return Health.up().withDetail(MESSAGE_KEY, "Restored").build();
+    }
+}
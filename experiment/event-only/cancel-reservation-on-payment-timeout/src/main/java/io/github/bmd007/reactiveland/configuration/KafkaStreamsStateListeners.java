@@ -0,0 +1,39 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KafkaStreams.StateListener;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Kafka streams accepts a single state listener, and it has to be set before the streams are started.
+ * This one is set once and fans the state changes out to everyone who registered.
+ */
+@Component
+public class KafkaStreamsStateListeners implements StateListener {
+
+    private final StreamsBuilderFactoryBean streams;
+    private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+
+    public KafkaStreamsStateListeners(StreamsBuilderFactoryBean streams) {
+        this.streams = streams;
+    }
+
+    @PostConstruct
+    public void setAsStateListener() {
+        streams.setStateListener(this);
+    }
+
+    public void register(StateListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onChange(KafkaStreams.State newState, KafkaStreams.State oldState) {
+        listeners.forEach(listener -> listener.onChange(newState, oldState));
+    }
+}
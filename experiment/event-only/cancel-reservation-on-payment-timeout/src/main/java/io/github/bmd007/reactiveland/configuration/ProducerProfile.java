@@ -0,0 +1,33 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Map;
+
+/**
+ * Batching presets for {@link KafkaEventProducer}. Longer linger and bigger batches trade a few milliseconds
+ * of latency per event for far fewer (and better compressed) requests to the brokers.
+ */
+public enum ProducerProfile {
+    LATENCY(0, 16 * 1024, "none"),
+    BALANCED(5, 64 * 1024, "lz4"),
+    THROUGHPUT(20, 256 * 1024, "zstd");
+
+    private final int lingerMs;
+    private final int batchSize;
+    private final String compressionType;
+
+    ProducerProfile(int lingerMs, int batchSize, String compressionType) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+    }
+
+    public Map<String, Object> producerConfig() {
+        return Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, lingerMs,
+                ProducerConfig.BATCH_SIZE_CONFIG, batchSize,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType
+        );
+    }
+}
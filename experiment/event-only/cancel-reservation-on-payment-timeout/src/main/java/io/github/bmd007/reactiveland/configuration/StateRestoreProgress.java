@@ -0,0 +1,164 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.processor.StateRestoreListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the restoration of the local stores (per store and partition) from their changelogs, as gauges:
+ * <li>kafka.stream.restore.restored.records, since the restoration started
+ * <li>kafka.stream.restore.remaining.records, till the end offset the changelog had when the restoration started
+ * <li>kafka.stream.restore.rate, restored records per second since the restoration started, frozen at its last value
+ * once the restoration ended
+ * Kafka streams accepts a single global restore listener, this is it.
+ */
+@Component
+public class StateRestoreProgress implements StateRestoreListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateRestoreProgress.class);
+
+    private final StreamsBuilderFactoryBean streams;
+    private final MeterRegistry meterRegistry;
+    private final Map<TopicPartition, Restoration> restorations = new ConcurrentHashMap<>();
+
+    public StateRestoreProgress(StreamsBuilderFactoryBean streams, MeterRegistry meterRegistry) {
+        this.streams = streams;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void setAsStateRestoreListener() {
+        streams.setStateRestoreListener(this);
+    }
+
+    public record Restoring(String store, int partition, long restored, long remaining) {
+    }
+
+    /**
+     * The restorations in progress, empty once every store caught up with its changelog.
+     */
+    public List<Restoring> restoring() {
+        return restorations.values().stream()
+                .filter(Restoration::inProgress)
+                .map(restoration -> new Restoring(restoration.store, restoration.partition, restoration.restored, restoration.remaining))
+                .toList();
+    }
+
+    @Override
+    public void onRestoreStart(TopicPartition topicPartition, String storeName, long startingOffset, long endingOffset) {
+        LOGGER.info("restoring {} of store {} from offset {} to {}", topicPartition, storeName, startingOffset, endingOffset);
+        restorations.computeIfAbsent(topicPartition, ignored -> register(new Restoration(storeName, topicPartition.partition())))
+                .start(startingOffset, endingOffset);
+    }
+
+    @Override
+    public void onBatchRestored(TopicPartition topicPartition, String storeName, long batchEndOffset, long numRestored) {
+        var restoration = restorations.get(topicPartition);
+        if (restoration != null) {
+            restoration.batchRestored(batchEndOffset, numRestored);
+        }
+    }
+
+    @Override
+    public void onRestoreEnd(TopicPartition topicPartition, String storeName, long totalRestored) {
+        LOGGER.info("restored {} records of {} of store {}", totalRestored, topicPartition, storeName);
+        stop(topicPartition);
+    }
+
+    // the task moved away (or was closed) before its stores caught up
+    @Override
+    public void onRestoreSuspended(TopicPartition topicPartition, String storeName, long totalRestored) {
+        LOGGER.info("suspended restoration of {} of store {} after {} records", topicPartition, storeName, totalRestored);
+        stop(topicPartition);
+    }
+
+    private void stop(TopicPartition topicPartition) {
+        var restoration = restorations.get(topicPartition);
+        if (restoration != null) {
+            restoration.stop();
+        }
+    }
+
+    private Restoration register(Restoration restoration) {
+        var tags = Tags.of("store", restoration.store, "partition", String.valueOf(restoration.partition));
+        Gauge.builder("kafka.stream.restore.restored.records", restoration, Restoration::restored)
+                .tags(tags)
+                .description("records restored from the changelog since the restoration of the store partition started")
+                .register(meterRegistry);
+        Gauge.builder("kafka.stream.restore.remaining.records", restoration, Restoration::remaining)
+                .tags(tags)
+                .description("records of the changelog the store partition still has to restore")
+                .register(meterRegistry);
+        Gauge.builder("kafka.stream.restore.rate", restoration, Restoration::rate)
+                .tags(tags)
+                .baseUnit("records/s")
+                .description("records restored per second since the restoration of the store partition started")
+                .register(meterRegistry);
+        return restoration;
+    }
+
+    // written by a single (stream or state updater) thread at a time, read by the gauges and the health checks
+    private static final class Restoration {
+
+        private final String store;
+        private final int partition;
+        private volatile boolean inProgress;
+        private volatile long endingOffset;
+        private volatile long restored;
+        private volatile long remaining;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        private Restoration(String store, int partition) {
+            this.store = store;
+            this.partition = partition;
+        }
+
+        private void start(long startingOffset, long endingOffset) {
+            this.endingOffset = endingOffset;
+            this.restored = 0;
+            this.remaining = Math.max(0, endingOffset - startingOffset);
+            this.startNanos = System.nanoTime();
+            this.inProgress = true;
+        }
+
+        private void batchRestored(long batchEndOffset, long numRestored) {
+            restored += numRestored;
+            remaining = Math.max(0, endingOffset - batchEndOffset - 1);
+        }
+
+        private void stop() {
+            endNanos = System.nanoTime();
+            remaining = 0;
+            inProgress = false;
+        }
+
+        private boolean inProgress() {
+            return inProgress;
+        }
+
+        private double restored() {
+            return restored;
+        }
+
+        private double remaining() {
+            return remaining;
+        }
+
+        private double rate() {
+            var seconds = ((inProgress ? System.nanoTime() : endNanos) - startNanos) / 1e9;
+            return seconds > 0 ? restored / seconds : 0;
+        }
+    }
+}
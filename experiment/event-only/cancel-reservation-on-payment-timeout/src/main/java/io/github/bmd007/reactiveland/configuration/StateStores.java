@@ -2,4 +2,9 @@ package io.github.bmd007.reactiveland.configuration;
 
 public class StateStores {
     public static final String RESERVATION_STATUS_IN_MEMORY_STATE_STORE = "reservation-status-in-memory-state-store";
+    public static final String PAYMENT_DEADLINE_IN_MEMORY_STATE_STORE = "payment-deadline-in-memory-state-store";
+    public static final String PAYMENT_DEADLINE_INDEX_IN_MEMORY_STATE_STORE = "payment-deadline-index-in-memory-state-store";
+    public static final String RESERVATION_INDEX_IN_MEMORY_STATE_STORE = "reservation-index-in-memory-state-store";
+    public static final String TABLE_INVENTORY_IN_MEMORY_STATE_STORE = "table-inventory-in-memory-state-store";
+    public static final String SEEN_EVENT_IDS_IN_MEMORY_STATE_STORE = "seen-event-ids-in-memory-state-store";
 }
@@ -0,0 +1,216 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.streams.KafkaStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adds and removes stream threads, between min and max, depending on how far behind the input topics this instance is:
+ * <li>lag is the sum of the records-lag of the partitions assigned to the main consumers, the processing rate the sum
+ * of the process-rate of the stream threads
+ * <li>a thread is added when the lag is above scale-up-lag and, at the current rate, would take longer than the target
+ * catch up time to process; one is removed when the lag is below scale-down-lag
+ * <li>hysteresis: the condition has to hold for stable-intervals consecutive checks, and nothing changes for a cooldown
+ * after each scaling (adding or removing a thread rebalances the group)
+ * <li>removing a thread waits for it to shut down, for up to the cooldown: that runs off the thread of the autoscaler,
+ * which skips its checks meanwhile
+ * Every scaling is counted in kafka.stream.threads.scaling, tagged by direction and result.
+ */
+@Component
+public class StreamThreadAutoscaler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamThreadAutoscaler.class);
+
+    public enum Decision {UP, DOWN, NONE}
+
+    private final StreamsBuilderFactoryBean streams;
+    private final int minThreads;
+    private final int maxThreads;
+    private final Duration scaleInterval;
+    private final long scaleUpLag;
+    private final long scaleDownLag;
+    private final Duration targetCatchUpTime;
+    private final int stableIntervals;
+    private final Duration cooldown;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler scheduler = Schedulers.newSingle("stream-thread-autoscaler");
+    private final AtomicBoolean removing = new AtomicBoolean();
+    private Disposable ticks;
+
+    private int upIntervals;
+    private int downIntervals;
+    private long cooldownUntilNanos = System.nanoTime();
+    private volatile double lastLag;
+    private volatile double lastProcessRate;
+    private volatile int threads;
+
+    public StreamThreadAutoscaler(StreamsBuilderFactoryBean streams,
+                                  @Value("${kafka.streams.threads.min}") int minThreads,
+                                  @Value("${kafka.streams.threads.max}") int maxThreads,
+                                  @Value("${kafka.streams.threads.scale-interval}") Duration scaleInterval,
+                                  @Value("${kafka.streams.threads.scale-up-lag}") long scaleUpLag,
+                                  @Value("${kafka.streams.threads.scale-down-lag}") long scaleDownLag,
+                                  @Value("${kafka.streams.threads.target-catch-up-time}") Duration targetCatchUpTime,
+                                  @Value("${kafka.streams.threads.stable-intervals}") int stableIntervals,
+                                  @Value("${kafka.streams.threads.cooldown}") Duration cooldown,
+                                  MeterRegistry meterRegistry) {
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("stream threads bounds must satisfy 1 <= min <= max");
+        }
+        if (scaleDownLag >= scaleUpLag) {
+            throw new IllegalArgumentException("scale-down-lag must be below scale-up-lag");
+        }
+        this.streams = streams;
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.scaleInterval = scaleInterval;
+        this.scaleUpLag = scaleUpLag;
+        this.scaleDownLag = scaleDownLag;
+        this.targetCatchUpTime = targetCatchUpTime;
+        this.stableIntervals = stableIntervals;
+        this.cooldown = cooldown;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("kafka.stream.threads.live", this, autoscaler -> autoscaler.threads)
+                .description("stream threads of this instance, as of the last check of the autoscaler")
+                .register(meterRegistry);
+        Gauge.builder("kafka.stream.threads.observed.lag", this, autoscaler -> autoscaler.lastLag)
+                .description("records this instance is behind its input partitions, as of the last check of the autoscaler")
+                .register(meterRegistry);
+        Gauge.builder("kafka.stream.threads.observed.process.rate", this, autoscaler -> autoscaler.lastProcessRate)
+                .baseUnit("records/s")
+                .description("records processed per second by all stream threads, as of the last check of the autoscaler")
+                .register(meterRegistry);
+        this.ticks = Flux.interval(scaleInterval, scaleInterval, scheduler)
+                .subscribe(ignored -> check(), throwable -> LOGGER.error("stream thread autoscaler stopped", throwable));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticks != null) {
+            ticks.dispose();
+        }
+        scheduler.dispose();
+    }
+
+    private void check() {
+        var kafkaStreams = streams.getKafkaStreams();
+        if (kafkaStreams == null || kafkaStreams.state() != KafkaStreams.State.RUNNING || removing.get()) {
+            return;
+        }
+        try {
+            var metrics = kafkaStreams.metrics();
+            threads = kafkaStreams.metadataForLocalThreads().size();
+            lastLag = sum(metrics, "consumer-fetch-manager-metrics", "records-lag");
+            lastProcessRate = sum(metrics, "stream-thread-metrics", "process-rate");
+            switch (decide((long) lastLag, lastProcessRate, threads, System.nanoTime())) {
+                case UP -> scaleUp(kafkaStreams);
+                case DOWN -> scaleDown(kafkaStreams);
+                case NONE -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("stream thread autoscaler check failed", e);
+        }
+    }
+
+    /**
+     * Only called by the autoscaler thread.
+     */
+    Decision decide(long lag, double processRate, int threads, long nowNanos) {
+        var catchUpSeconds = processRate > 0 ? lag / processRate : Double.POSITIVE_INFINITY;
+        var behind = lag > scaleUpLag && catchUpSeconds > targetCatchUpTime.toSeconds();
+        upIntervals = behind ? upIntervals + 1 : 0;
+        downIntervals = lag < scaleDownLag ? downIntervals + 1 : 0;
+        if (nowNanos - cooldownUntilNanos < 0) {
+            return Decision.NONE;
+        }
+        if (upIntervals >= stableIntervals && threads < maxThreads) {
+            return scaled(Decision.UP, nowNanos);
+        }
+        if (downIntervals >= stableIntervals && threads > minThreads) {
+            return scaled(Decision.DOWN, nowNanos);
+        }
+        return Decision.NONE;
+    }
+
+    private Decision scaled(Decision decision, long nowNanos) {
+        upIntervals = 0;
+        downIntervals = 0;
+        cooldownUntilNanos = nowNanos + cooldown.toNanos();
+        return decision;
+    }
+
+    private void scaleUp(KafkaStreams kafkaStreams) {
+        var added = kafkaStreams.addStreamThread();
+        LOGGER.info("lag {} at {} records/s with {} threads: {}", (long) lastLag, lastProcessRate, threads,
+                added.map(name -> "added " + name).orElse("could not add a thread"));
+        count("up", added.isPresent() ? "added" : "failed");
+    }
+
+    private void scaleDown(KafkaStreams kafkaStreams) {
+        var lag = (long) lastLag;
+        var processRate = lastProcessRate;
+        removing.set(true);
+        Mono.fromCallable(() -> kafkaStreams.removeStreamThread(cooldown))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(ignored -> removing.set(false))
+                .subscribe(removed -> {
+                    LOGGER.info("lag {} at {} records/s with {} threads: {}", lag, processRate, threads,
+                            removed.map(name -> "removed " + name).orElse("could not remove a thread"));
+                    count("down", removed.isPresent() ? "removed" : "failed");
+                }, throwable -> {
+                    if (throwable instanceof TimeoutException) {
+                        LOGGER.warn("removing a stream thread did not complete within {}", cooldown);
+                        count("down", "timed-out");
+                    } else {
+                        LOGGER.warn("removing a stream thread failed", throwable);
+                        count("down", "failed");
+                    }
+                });
+    }
+
+    private void count(String direction, String result) {
+        Counter.builder("kafka.stream.threads.scaling")
+                .tag("direction", direction)
+                .tag("result", result)
+                .description("stream threads added or removed by the autoscaler")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // records-lag is reported per assigned partition (and as a total without partition tag, not summed here)
+    private static double sum(Map<MetricName, ? extends Metric> metrics, String group, String name) {
+        return metrics.entrySet().stream()
+                .filter(metric -> metric.getKey().group().equals(group) && metric.getKey().name().equals(name))
+                .filter(metric -> !group.equals("consumer-fetch-manager-metrics") || metric.getKey().tags().containsKey("partition"))
+                .filter(metric -> !metric.getKey().tags().getOrDefault("client-id", "").endsWith("restore-consumer"))
+                .map(metric -> metric.getValue().metricValue())
+                .filter(value -> value instanceof Number number && !Double.isNaN(number.doubleValue()))
+                .mapToDouble(value -> ((Number) value).doubleValue())
+                .sum();
+    }
+}
@@ -41,6 +41,13 @@ public class TopicCreator {
                 .configs(Map.of(RETENTION_MS_CONFIG, "-1", RETENTION_BYTES_CONFIG, "-1"));
     }
 
+    @Bean
+    public NewTopic tableDecisionsTopic() {
+        // same partitions as the customer events: the reservation aggregate reads both topics as one stream
+        return new NewTopic(Topics.TABLE_DECISIONS_TOPIC, eventTopicDefinition.numPartitions, eventTopicDefinition.replicationFactor)
+                .configs(Map.of(RETENTION_MS_CONFIG, "-1", RETENTION_BYTES_CONFIG, "-1"));
+    }
+
     public static String stateStoreTopicName(String storeName, String applicationName) {
         return String.format("%s-%s-changelog", applicationName, storeName);
     }
@@ -52,6 +59,41 @@ public class TopicCreator {
                 .configs(Map.of(CLEANUP_POLICY_CONFIG, CLEANUP_POLICY_COMPACT));
     }
 
+    @Bean
+    public NewTopic reservationIndexChangeLogTopic() {
+        return new NewTopic(stateStoreTopicName(StateStores.RESERVATION_INDEX_IN_MEMORY_STATE_STORE, applicationName),
+                changeLogTopicDefinition.numPartitions, changeLogTopicDefinition.replicationFactor)
+                .configs(Map.of(CLEANUP_POLICY_CONFIG, CLEANUP_POLICY_COMPACT));
+    }
+
+    @Bean
+    public NewTopic paymentDeadlineChangeLogTopic() {
+        return new NewTopic(stateStoreTopicName(StateStores.PAYMENT_DEADLINE_IN_MEMORY_STATE_STORE, applicationName),
+                changeLogTopicDefinition.numPartitions, changeLogTopicDefinition.replicationFactor)
+                .configs(Map.of(CLEANUP_POLICY_CONFIG, CLEANUP_POLICY_COMPACT));
+    }
+
+    @Bean
+    public NewTopic paymentDeadlineIndexChangeLogTopic() {
+        return new NewTopic(stateStoreTopicName(StateStores.PAYMENT_DEADLINE_INDEX_IN_MEMORY_STATE_STORE, applicationName),
+                changeLogTopicDefinition.numPartitions, changeLogTopicDefinition.replicationFactor)
+                .configs(Map.of(CLEANUP_POLICY_CONFIG, CLEANUP_POLICY_COMPACT));
+    }
+
+    @Bean
+    public NewTopic seenEventIdsChangeLogTopic() {
+        return new NewTopic(stateStoreTopicName(StateStores.SEEN_EVENT_IDS_IN_MEMORY_STATE_STORE, applicationName),
+                changeLogTopicDefinition.numPartitions, changeLogTopicDefinition.replicationFactor)
+                .configs(Map.of(CLEANUP_POLICY_CONFIG, CLEANUP_POLICY_COMPACT));
+    }
+
+    @Bean
+    public NewTopic tableInventoryChangeLogTopic() {
+        return new NewTopic(stateStoreTopicName(StateStores.TABLE_INVENTORY_IN_MEMORY_STATE_STORE, applicationName),
+                changeLogTopicDefinition.numPartitions, changeLogTopicDefinition.replicationFactor)
+                .configs(Map.of(CLEANUP_POLICY_CONFIG, CLEANUP_POLICY_COMPACT));
+    }
+
     private record PartitionDef(int numPartitions, short replicationFactor) {
 
         private static final Pattern PATTERN = Pattern.compile("(\\d+):(\\d+)");
@@ -3,5 +3,7 @@ package io.github.bmd007.reactiveland.configuration;
 public class Topics {
     public static final String CUSTOMER_EVENTS_TOPIC = "CUSTOMER_EVENTS_TOPIC";
     public static final String RESERVATION_EVENTS_TOPIC = "RESERVATION_EVENTS_TOPIC";
+    // grant and reject decisions of the table arbiter, keyed by customer id like the customer events
+    public static final String TABLE_DECISIONS_TOPIC = "TABLE_DECISIONS_TOPIC";
 
 }
@@ -0,0 +1,70 @@
+package io.github.bmd007.reactiveland.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The reservations a customer holds in a window, at most one per table, in the order the tables were requested.
+ * A group booking or a corporate account may hold several tables at once; each reservation is paid for (or times
+ * out) on its own.
+ */
+public record CustomerReservations(List<TableReservation> reservations) {
+
+    public CustomerReservations {
+        reservations = List.copyOf(reservations);
+    }
+
+    public static CustomerReservations none() {
+        return new CustomerReservations(List.of());
+    }
+
+    /**
+     * @return the reservations a single (legacy) table reservation stands for: none if it has no table
+     */
+    public static CustomerReservations of(TableReservation tableReservation) {
+        if (tableReservation == null || tableReservation.getTableId() == null) {
+            return none();
+        }
+        return new CustomerReservations(List.of(tableReservation));
+    }
+
+    public Optional<TableReservation> reservation(String tableId) {
+        return reservations.stream()
+                .filter(tableReservation -> tableReservation.getTableId().equals(tableId))
+                .findFirst();
+    }
+
+    /**
+     * @return the most recently requested reservation, null if there is none
+     */
+    public TableReservation latest() {
+        return reservations.isEmpty() ? null : reservations.get(reservations.size() - 1);
+    }
+
+    /**
+     * @return these reservations, with the one of the same table replaced, or the given one added after the others
+     */
+    public CustomerReservations put(TableReservation tableReservation) {
+        var updated = new ArrayList<TableReservation>(reservations.size() + 1);
+        var replaced = false;
+        for (var existing : reservations) {
+            if (existing.getTableId().equals(tableReservation.getTableId())) {
+                updated.add(tableReservation);
+                replaced = true;
+            } else {
+                updated.add(existing);
+            }
+        }
+        if (!replaced) {
+            updated.add(tableReservation);
+        }
+        return new CustomerReservations(updated);
+    }
+
+    public CustomerReservations remove(String tableId) {
+        return new CustomerReservations(reservations.stream()
+                .filter(tableReservation -> !tableReservation.getTableId().equals(tableId))
+                .toList());
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.bmd007.reactiveland.domain;
+
+import java.time.Instant;
+
+/**
+ * @param paidAt when the customer paid before the deadline, null while they have not: the reservation then awaits the
+ *               decision of the table arbiter on the payment, with no deadline running
+ */
+public record PaymentDeadline(String customerId, String tableId, Instant deadline, Instant paidAt) {
+
+    public boolean isPaid() {
+        return paidAt != null;
+    }
+
+    public PaymentDeadline paidAt(Instant paidAt) {
+        return new PaymentDeadline(customerId, tableId, deadline, paidAt);
+    }
+}
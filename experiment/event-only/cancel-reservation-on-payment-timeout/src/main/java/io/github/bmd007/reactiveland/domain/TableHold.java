@@ -0,0 +1,18 @@
+package io.github.bmd007.reactiveland.domain;
+
+import java.time.Instant;
+
+/**
+ * Which customer a table is held for, and until when: the payment deadline while the customer has not paid, the end
+ * of the booking once they have.
+ */
+public record TableHold(String tableId, String customerId, boolean paid, Instant heldUntil) {
+
+    public boolean isHeldAt(Instant instant) {
+        return heldUntil.isAfter(instant);
+    }
+
+    public boolean isFor(String customerId) {
+        return this.customerId.equals(customerId);
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Value;
 import lombok.With;
 import lombok.extern.jackson.Jacksonized;
 
+import java.time.Instant;
+
 import static io.github.bmd007.reactiveland.domain.TableReservation.Status.*;
 
 @Value
@@ -17,11 +19,16 @@ public class TableReservation {
         AVAILABLE,
         RESERVED_AWAITING_PAYMENT,
         PAID_FOR,
+        // requested, awaiting the decision of the table arbiter: not payable until the table is granted
+        REQUESTED,
     }
 
     String tableId;
     Status status;
     String customerId;
+    // when the payment is due, for the view only (the payment timeout detector keeps its own deadlines); null if the
+    // request did not say when it happened
+    Instant paymentDeadline;
 
     public TableReservation paidFor() {
         if (isPayable()) {
@@ -34,6 +41,27 @@ public class TableReservation {
         return tableId != null && !isAvailable() && status.equals(RESERVED_AWAITING_PAYMENT);
     }
 
+    public TableReservation request(String customerId) {
+        if (tableId == null) {
+            throw new IllegalStateException("table id null");
+        }
+        if (isAvailable()) {
+            return this.withStatus(REQUESTED).withCustomerId(customerId);
+        }
+        throw new IllegalStateException("not available");
+    }
+
+    public boolean isRequested() {
+        return tableId != null && customerId != null && status != null && status.equals(REQUESTED);
+    }
+
+    public TableReservation granted() {
+        if (isRequested()) {
+            return withStatus(RESERVED_AWAITING_PAYMENT);
+        }
+        throw new IllegalStateException("not requested");
+    }
+
     public TableReservation awaitPayment(String customerId) {
         if (tableId == null) {
             throw new IllegalStateException("table id null");
@@ -0,0 +1,7 @@
+package io.github.bmd007.reactiveland.dto;
+
+import java.util.List;
+
+public record PageDto<M>(List<M> items, String continuationToken) {
+
+}
@@ -0,0 +1,14 @@
+package io.github.bmd007.reactiveland.dto;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+public record ReservationCommandAckDto(ReservationCommandDto command, boolean accepted, Integer partition, Long offset, String error) {
+
+    public static ReservationCommandAckDto accepted(ReservationCommandDto command, RecordMetadata recordMetadata) {
+        return new ReservationCommandAckDto(command, true, recordMetadata.partition(), recordMetadata.offset(), null);
+    }
+
+    public static ReservationCommandAckDto rejected(ReservationCommandDto command, String error) {
+        return new ReservationCommandAckDto(command, false, null, null, error);
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.bmd007.reactiveland.dto;
+
+/**
+ * @param commandId optional, chosen by the client and kept across the retries of the command: it becomes the id of
+ *                  the event, so that a retry is not counted twice. A command without one gets a random id.
+ */
+public record ReservationCommandDto(Type type, String customerId, String tableId, String commandId) {
+
+    public ReservationCommandDto(Type type, String customerId, String tableId) {
+        this(type, customerId, tableId, null);
+    }
+
+    public enum Type {
+        REQUEST_TABLE,
+        PAY_FOR_TABLE,
+    }
+}
@@ -0,0 +1,6 @@
+package io.github.bmd007.reactiveland.dto;
+
+//changelogOffset is the offset of the last changelog record the snapshot covers, restoring resumes right after it
+public record StoreSnapshotDto(String store, int partition, boolean standby, long changelogOffset, long entries, String file) {
+
+}
@@ -1,5 +1,18 @@
 package io.github.bmd007.reactiveland.dto;
 
-public record TableReservationDto(String customerId, String tableId, String status) {
+import java.time.Instant;
+import java.util.List;
 
-}
\ No newline at end of file
+/**
+ * The top level table id and status are the ones of the most recently requested reservation, so clients that only
+ * know about one reservation per customer keep working.
+ */
+public record TableReservationDto(String customerId, String tableId, String status, List<Reservation> reservations) {
+
+    public record Reservation(String tableId, String status, Instant paymentDeadline) {
+    }
+
+    public TableReservationDto(String customerId, String tableId, String status) {
+        this(customerId, tableId, status, List.of());
+    }
+}
@@ -2,6 +2,10 @@ package io.github.bmd007.reactiveland.dto;
 
 import java.util.List;
 
-public record TableReservationsDto(List<TableReservationDto> tableReservations) {
+//missingPartitions lists the partitions no replica answered for in time, empty when the answer is complete
+public record TableReservationsDto(List<TableReservationDto> tableReservations, List<Integer> missingPartitions) {
 
-}
\ No newline at end of file
+    public TableReservationsDto(List<TableReservationDto> tableReservations) {
+        this(tableReservations, List.of());
+    }
+}
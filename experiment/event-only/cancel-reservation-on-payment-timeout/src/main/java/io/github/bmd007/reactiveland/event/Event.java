@@ -5,7 +5,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import jakarta.annotation.Nonnull;
 
 import java.time.Instant;
-import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 
@@ -16,9 +16,10 @@ import java.util.UUID;
 )
 @JsonSubTypes({
         @JsonSubTypes.Type(value = Event.CustomerEvent.class, name = "CustomerEvent"),
+        @JsonSubTypes.Type(value = Event.ReservationEvent.class, name = "ReservationEvent"),
         @JsonSubTypes.Type(value = Event.DefaultEvent.class, name = "DefaultEvent")
 })
-public interface Event {
+public sealed interface Event {
 
     default String type() {
         return this.getClass().getName();
@@ -28,8 +29,12 @@ public interface Event {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * When the event happened, which is what windows and grace periods are measured against. Millisecond precision, like
+     * kafka record timestamps. Null if the event does not know, in which case the timestamp of the kafka record is used.
+     */
     default Instant timestamp() {
-        return ZonedDateTime.now().minusMonths(1L).toInstant();
+        return null;
     }
 
     record DefaultEvent() implements Event {
@@ -44,21 +49,121 @@ public interface Event {
             @JsonSubTypes.Type(value = CustomerEvent.CustomerRequestedTable.class, name = "CustomerRequestedTable"),
             @JsonSubTypes.Type(value = CustomerEvent.CustomerPaidForTable.class, name = "CustomerPaidForReservation"),
     })
-    interface CustomerEvent extends Event {
+    sealed interface CustomerEvent extends Event {
         String customerId();
 
+        /**
+         * Identifies the event across retries: a retried command produces an event with the id of its first try, which
+         * is how duplicates are told apart from repeated events. Null if the event has no id, then it is never taken for
+         * a duplicate.
+         */
+        String eventId();
+
+        @Override
+        default String key() {
+            return customerId();
+        }
+
+        record DefaultCustomerEvent(String customerId, Instant timestamp, String eventId) implements CustomerEvent {
+
+            public DefaultCustomerEvent(String customerId, Instant timestamp) {
+                this(customerId, timestamp, null);
+            }
+
+            public DefaultCustomerEvent(String customerId) {
+                this(customerId, Instant.now().truncatedTo(ChronoUnit.MILLIS), UUID.randomUUID().toString());
+            }
+        }
+
+        record CustomerRequestedTable(String customerId, @Nonnull String tableId, Instant timestamp, String eventId) implements CustomerEvent {
+
+            public CustomerRequestedTable(String customerId, String tableId, Instant timestamp) {
+                this(customerId, tableId, timestamp, null);
+            }
+
+            public CustomerRequestedTable(String customerId, String tableId) {
+                this(customerId, tableId, Instant.now().truncatedTo(ChronoUnit.MILLIS), UUID.randomUUID().toString());
+            }
+        }
+
+        record CustomerPaidForTable(String customerId, @Nonnull String tableId, Instant timestamp, String eventId) implements CustomerEvent {
+
+            public CustomerPaidForTable(String customerId, String tableId, Instant timestamp) {
+                this(customerId, tableId, timestamp, null);
+            }
+
+            public CustomerPaidForTable(String customerId, String tableId) {
+                this(customerId, tableId, Instant.now().truncatedTo(ChronoUnit.MILLIS), UUID.randomUUID().toString());
+            }
+        }
+    }
+
+    @JsonTypeInfo(
+            use = JsonTypeInfo.Id.CLASS,
+            property = "type"
+    )
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = ReservationEvent.ReservationTimedOut.class, name = "ReservationTimedOut"),
+            @JsonSubTypes.Type(value = ReservationEvent.TableGranted.class, name = "TableGranted"),
+            @JsonSubTypes.Type(value = ReservationEvent.TableRejected.class, name = "TableRejected"),
+            @JsonSubTypes.Type(value = ReservationEvent.ReservationConfirmed.class, name = "ReservationConfirmed"),
+            @JsonSubTypes.Type(value = ReservationEvent.ReservationRejected.class, name = "ReservationRejected"),
+            @JsonSubTypes.Type(value = ReservationEvent.PaymentAccepted.class, name = "PaymentAccepted"),
+            @JsonSubTypes.Type(value = ReservationEvent.PaymentRefused.class, name = "PaymentRefused"),
+    })
+    sealed interface ReservationEvent extends Event {
+        String customerId();
+
+        String tableId();
+
         @Override
         default String key() {
             return customerId();
         }
 
-        record DefaultCustomerEvent(String customerId) implements CustomerEvent {
+        record ReservationTimedOut(String customerId, @Nonnull String tableId, Instant paymentDeadline) implements ReservationEvent {
+
+            @Override
+            public Instant timestamp() {
+                return paymentDeadline;
+            }
+        }
+
+        /**
+         * The table is held for the customer until the payment deadline of the request.
+         */
+        record TableGranted(String customerId, @Nonnull String tableId, Instant timestamp) implements ReservationEvent {
+        }
+
+        /**
+         * The table was already held for another customer when the customer requested it.
+         */
+        record TableRejected(String customerId, @Nonnull String tableId, Instant timestamp) implements ReservationEvent {
+        }
+
+        /**
+         * The table was held for the customer, unpaid, when they paid for it: it is now held for the booking.
+         */
+        record PaymentAccepted(String customerId, @Nonnull String tableId, Instant timestamp) implements ReservationEvent {
+        }
+
+        /**
+         * The table was not held for the customer when they paid for it (it went to another customer, its hold expired,
+         * or it was already paid for): the payment books nothing.
+         */
+        record PaymentRefused(String customerId, @Nonnull String tableId, Instant timestamp) implements ReservationEvent {
         }
 
-        record CustomerRequestedTable(String customerId, @Nonnull String tableId) implements CustomerEvent {
+        /**
+         * The customer paid for the table before the payment deadline, at the given time.
+         */
+        record ReservationConfirmed(String customerId, @Nonnull String tableId, Instant timestamp) implements ReservationEvent {
         }
 
-        record CustomerPaidForTable(String customerId, @Nonnull String tableId) implements CustomerEvent {
+        /**
+         * The reservation the customer was awaiting payment for was dropped, as the table went to another customer.
+         */
+        record ReservationRejected(String customerId, @Nonnull String tableId, Instant timestamp) implements ReservationEvent {
         }
     }
 
@@ -0,0 +1,125 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorSupplier;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Drops the customer events whose id was already seen during the last window (of stream time), which is what retried
+ * commands produce, before they reach the aggregate and its changelog.
+ * <li>the ids of the window are kept in a {@link TimeBucketedBloomFilter}: an id it has not seen is new, without any
+ * store lookup, which is the case of most events
+ * <li>an id the filter might have seen is checked against a window store of the ids of the window, so a false
+ * positive of the filter never drops an event
+ * <li>the store has a changelog, the filter is rebuilt from the store when the task starts
+ * <li>events without id, and other events, pass through
+ * Dropped duplicates are counted in reservation.events.duplicates, false positives of the filter in
+ * reservation.events.dedupe.false-positives.
+ */
+@Slf4j
+public class DuplicateEventFilter implements FixedKeyProcessorSupplier<String, Event, Event> {
+
+    private static final int BUCKETS_PER_WINDOW = 4;
+
+    private final Duration window;
+    private final int expectedEventsPerWindow;
+    private final double falsePositiveRate;
+    private final Counter duplicates;
+    private final Counter falsePositives;
+
+    /**
+     * @param expectedEventsPerWindow of a partition, to size the filter for the false positive rate
+     */
+    public DuplicateEventFilter(Duration window, int expectedEventsPerWindow, double falsePositiveRate, MeterRegistry meterRegistry) {
+        this.window = window;
+        this.expectedEventsPerWindow = expectedEventsPerWindow;
+        this.falsePositiveRate = falsePositiveRate;
+        this.duplicates = Counter.builder("reservation.events.duplicates")
+                .description("customer events dropped as duplicates of an event with the same id")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("reservation.events.dedupe.false-positives")
+                .description("customer events the bloom filter took for duplicates, that the store did not")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public FixedKeyProcessor<String, Event, Event> get() {
+        return new DeduplicatingProcessor(new TimeBucketedBloomFilter(window.toMillis(), BUCKETS_PER_WINDOW,
+                Math.max(1, expectedEventsPerWindow / BUCKETS_PER_WINDOW), falsePositiveRate));
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+        // same buckets as the filter; the store keeps one more bucket, the filter decides what is still in the window
+        var bucketSize = Duration.ofMillis(Math.max(1, window.toMillis() / BUCKETS_PER_WINDOW));
+        return Set.of(Stores.windowStoreBuilder(
+                Stores.inMemoryWindowStore(StateStores.SEEN_EVENT_IDS_IN_MEMORY_STATE_STORE, window.plus(bucketSize), bucketSize, false),
+                Serdes.String(), Serdes.String()));
+    }
+
+    private class DeduplicatingProcessor implements FixedKeyProcessor<String, Event, Event> {
+
+        private final TimeBucketedBloomFilter recentEventIds;
+        private FixedKeyProcessorContext<String, Event> context;
+        private WindowStore<String, String> seenEventIds;
+
+        DeduplicatingProcessor(TimeBucketedBloomFilter recentEventIds) {
+            this.recentEventIds = recentEventIds;
+        }
+
+        @Override
+        public void init(FixedKeyProcessorContext<String, Event> context) {
+            this.context = context;
+            this.seenEventIds = context.getStateStore(StateStores.SEEN_EVENT_IDS_IN_MEMORY_STATE_STORE);
+            // the store is restored before the processor is initialized
+            try (var iterator = seenEventIds.all()) {
+                iterator.forEachRemaining(seen -> recentEventIds.put(seen.key.key(), seen.key.window().start()));
+            }
+        }
+
+        @Override
+        public void process(FixedKeyRecord<String, Event> record) {
+            if (record.value() instanceof CustomerEvent customerEvent && customerEvent.eventId() != null
+                    && isDuplicate(customerEvent.eventId(), record.key(), record.timestamp())) {
+                duplicates.increment();
+                log.debug("dropped duplicate {} of customer {}", customerEvent.eventId(), record.key());
+                return;
+            }
+            context.forward(record);
+        }
+
+        private boolean isDuplicate(String eventId, String customerId, long timestamp) {
+            var streamTime = Math.max(context.currentStreamTimeMs(), timestamp);
+            recentEventIds.expire(streamTime);
+            if (recentEventIds.mightContain(eventId)) {
+                if (wasSeen(eventId, streamTime)) {
+                    return true;
+                }
+                falsePositives.increment();
+            }
+            recentEventIds.put(eventId, timestamp);
+            seenEventIds.put(eventId, customerId, recentEventIds.bucketStart(timestamp));
+            return false;
+        }
+
+        private boolean wasSeen(String eventId, long streamTime) {
+            try (var seen = seenEventIds.fetch(eventId, Math.max(0, recentEventIds.oldestBucketStart(streamTime)), Long.MAX_VALUE)) {
+                return seen.hasNext();
+            }
+        }
+    }
+}
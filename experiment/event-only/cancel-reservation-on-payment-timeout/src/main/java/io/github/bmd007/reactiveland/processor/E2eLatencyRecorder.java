@@ -0,0 +1,51 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorSupplier;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes records through, recording how old they are (wall clock time of the stream thread minus record timestamp) in
+ * the kafka.stream.record.e2e.latency histogram, tagged by stage:
+ * <li>right after the aggregate, the timestamp is the one of the latest event of the window: produce to store update
+ * <li>right after the timeout detector, the timestamp is the payment deadline: how late the timeout was emitted
+ */
+public class E2eLatencyRecorder<K, V> implements FixedKeyProcessorSupplier<K, V, V> {
+
+    private final Timer latency;
+
+    public E2eLatencyRecorder(String stage, MeterRegistry meterRegistry) {
+        this.latency = Timer.builder("kafka.stream.record.e2e.latency")
+                .tag("stage", stage)
+                .description("time from the record timestamp to its processing by the stage")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(meterRegistry);
+    }
+
+    @Override
+    public FixedKeyProcessor<K, V, V> get() {
+        return new FixedKeyProcessor<>() {
+
+            private FixedKeyProcessorContext<K, V> context;
+
+            @Override
+            public void init(FixedKeyProcessorContext<K, V> context) {
+                this.context = context;
+            }
+
+            @Override
+            public void process(FixedKeyRecord<K, V> record) {
+                latency.record(Math.max(0, context.currentSystemTimeMs() - record.timestamp()), TimeUnit.MILLISECONDS);
+                context.forward(record);
+            }
+        };
+    }
+}
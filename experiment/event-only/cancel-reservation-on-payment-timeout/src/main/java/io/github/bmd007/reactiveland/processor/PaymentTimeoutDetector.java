@@ -0,0 +1,200 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.domain.PaymentDeadline;
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentRefused;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationConfirmed;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationRejected;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationTimedOut;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableRejected;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Set;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.PAYMENT_DEADLINE_JSON_SERDE;
+
+/**
+ * Follows every table request, given the customer events and the decisions of the table arbiter keyed by customer id,
+ * until its outcome, which it emits keyed by customer id, once per request:
+ * <li>{@link ReservationConfirmed} once the arbiter accepted the payment
+ * <li>{@link ReservationRejected} once the arbiter gave the table to another customer
+ * <li>{@link ReservationTimedOut} once its payment deadline passed without a payment
+ * <br>
+ * The state of a request is kept in a key value store by customer id and table id, not in the reservation window: a
+ * payment is resolved against the deadline of its request whichever window either of them falls in. Deadlines are
+ * indexed by zero padded deadline, so that a punctuation only visits the deadlines that are due.
+ * <br>
+ * Time is event time throughout, like for the arbiter: a deadline is the request's record time + payment timeout and
+ * a payment is in time if its record time is before the deadline. A payment in time stops the deadline, the
+ * reservation then awaits the arbiter's decision on it; a payment arriving after the deadline is refused by the
+ * arbiter, as the hold it checks against expires at the same time.
+ * <br>
+ * Due deadlines are scanned every scan interval on both clocks:
+ * <li>stream time, which only moves with records: a timeout follows the first record past its deadline
+ * <li>wall clock, up to the wall clock - the wall clock grace: a partition no record reaches anymore still times out
+ * its reservations, the grace being how late a payment made in time may still reach the detector
+ */
+@Slf4j
+public class PaymentTimeoutDetector implements ProcessorSupplier<String, Event, String, ReservationEvent> {
+
+    private static final String DEADLINE_KEY_FORMAT = "%s|%s";
+    private static final String INDEX_KEY_FORMAT = "%019d|%s";
+    private static final String INDEX_BOUND_FORMAT = "%019d";
+
+    private final Duration paymentTimeout;
+    private final Duration scanInterval;
+    private final Duration wallClockGrace;
+
+    public PaymentTimeoutDetector(Duration paymentTimeout, Duration scanInterval, Duration wallClockGrace) {
+        this.paymentTimeout = paymentTimeout;
+        this.scanInterval = scanInterval;
+        this.wallClockGrace = wallClockGrace;
+    }
+
+    @Override
+    public Processor<String, Event, String, ReservationEvent> get() {
+        return new DeadlineProcessor();
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+        return Set.of(
+                Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(StateStores.PAYMENT_DEADLINE_IN_MEMORY_STATE_STORE),
+                        Serdes.String(), PAYMENT_DEADLINE_JSON_SERDE),
+                Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(StateStores.PAYMENT_DEADLINE_INDEX_IN_MEMORY_STATE_STORE),
+                        Serdes.String(), Serdes.String())
+        );
+    }
+
+    static String deadlineKey(String customerId, String tableId) {
+        return DEADLINE_KEY_FORMAT.formatted(customerId, tableId);
+    }
+
+    static String indexKey(Instant deadline, String deadlineKey) {
+        return INDEX_KEY_FORMAT.formatted(deadline.toEpochMilli(), deadlineKey);
+    }
+
+    private class DeadlineProcessor implements Processor<String, Event, String, ReservationEvent> {
+
+        private ProcessorContext<String, ReservationEvent> context;
+        private KeyValueStore<String, PaymentDeadline> deadlines;
+        private KeyValueStore<String, String> deadlineIndex;
+
+        @Override
+        public void init(ProcessorContext<String, ReservationEvent> context) {
+            this.context = context;
+            this.deadlines = context.getStateStore(StateStores.PAYMENT_DEADLINE_IN_MEMORY_STATE_STORE);
+            this.deadlineIndex = context.getStateStore(StateStores.PAYMENT_DEADLINE_INDEX_IN_MEMORY_STATE_STORE);
+            context.schedule(scanInterval, PunctuationType.STREAM_TIME, this::emitDueTimeouts);
+            context.schedule(scanInterval, PunctuationType.WALL_CLOCK_TIME, wallClock ->
+                    emitDueTimeouts(Math.max(context.currentStreamTimeMs(), wallClock - wallClockGrace.toMillis())));
+        }
+
+        @Override
+        public void process(Record<String, Event> record) {
+            if (record.key() == null || record.value() == null) {
+                return;
+            }
+            var at = Instant.ofEpochMilli(record.timestamp());
+            switch (record.value()) {
+                case CustomerRequestedTable request -> track(request.customerId(), request.tableId(), at);
+                case CustomerPaidForTable payment -> pay(payment.customerId(), payment.tableId(), at);
+                case PaymentAccepted accepted -> {
+                    // a request has a single outcome: one already timed out is not confirmed anymore
+                    if (resolve(accepted.customerId(), accepted.tableId()) == null) {
+                        log.warn("payment of customer {} for table {} was accepted after its reservation was resolved",
+                                accepted.customerId(), accepted.tableId());
+                        return;
+                    }
+                    forward(new ReservationConfirmed(accepted.customerId(), accepted.tableId(), accepted.timestamp()), record.timestamp());
+                }
+                case TableRejected rejected -> {
+                    if (resolve(rejected.customerId(), rejected.tableId()) != null) {
+                        forward(new ReservationRejected(rejected.customerId(), rejected.tableId(), at), record.timestamp());
+                    }
+                }
+                case PaymentRefused refused -> {
+                    // a payment in time is only refused if the table went to another customer, whose rejection came first
+                    var paymentDeadline = deadlines.get(deadlineKey(refused.customerId(), refused.tableId()));
+                    if (paymentDeadline != null && paymentDeadline.isPaid()) {
+                        resolve(refused.customerId(), refused.tableId());
+                        forward(new ReservationRejected(refused.customerId(), refused.tableId(), at), record.timestamp());
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void track(String customerId, String tableId, Instant requestedAt) {
+            var key = deadlineKey(customerId, tableId);
+            if (deadlines.get(key) != null) {
+                return; // the same table requested again, its deadline keeps running
+            }
+            var deadline = requestedAt.plus(paymentTimeout);
+            deadlines.put(key, new PaymentDeadline(customerId, tableId, deadline, null));
+            deadlineIndex.put(indexKey(deadline, key), key);
+        }
+
+        private void pay(String customerId, String tableId, Instant paidAt) {
+            var key = deadlineKey(customerId, tableId);
+            var paymentDeadline = deadlines.get(key);
+            if (paymentDeadline == null || paymentDeadline.isPaid() || !paymentDeadline.deadline().isAfter(paidAt)) {
+                log.debug("payment of customer {} for table {} at {} is not in time for {}", customerId, tableId, paidAt, paymentDeadline);
+                return;
+            }
+            deadlineIndex.delete(indexKey(paymentDeadline.deadline(), key));
+            deadlines.put(key, paymentDeadline.paidAt(paidAt));
+        }
+
+        private PaymentDeadline resolve(String customerId, String tableId) {
+            var key = deadlineKey(customerId, tableId);
+            var paymentDeadline = deadlines.delete(key);
+            if (paymentDeadline != null && !paymentDeadline.isPaid()) {
+                deadlineIndex.delete(indexKey(paymentDeadline.deadline(), key));
+            }
+            return paymentDeadline;
+        }
+
+        private void forward(ReservationEvent outcome, long timestamp) {
+            context.forward(new Record<>(outcome.customerId(), outcome, timestamp));
+        }
+
+        private void emitDueTimeouts(long now) {
+            var due = new ArrayList<KeyValue<String, String>>();
+            // keys sort by deadline, so the range stops right after the last due deadline
+            try (var iterator = deadlineIndex.range(INDEX_BOUND_FORMAT.formatted(0), INDEX_BOUND_FORMAT.formatted(now + 1))) {
+                iterator.forEachRemaining(due::add);
+            }
+            for (var indexEntry : due) {
+                deadlineIndex.delete(indexEntry.key);
+                var paymentDeadline = deadlines.delete(indexEntry.value);
+                if (paymentDeadline == null) {
+                    continue;
+                }
+                log.info("payment deadline {} passed for customer {} and table {}",
+                        paymentDeadline.deadline(), paymentDeadline.customerId(), paymentDeadline.tableId());
+                forward(new ReservationTimedOut(paymentDeadline.customerId(), paymentDeadline.tableId(), paymentDeadline.deadline()),
+                        paymentDeadline.deadline().toEpochMilli());
+            }
+        }
+    }
+}
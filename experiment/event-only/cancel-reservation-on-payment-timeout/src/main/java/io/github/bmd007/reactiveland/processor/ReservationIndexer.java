@@ -0,0 +1,103 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorSupplier;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Passes the reservation aggregate through, indexing it in a window store of the same windows, by:
+ * <li>table id: <code>table|&lt;tableId>|&lt;customerId></code>
+ * <li>status: <code>status|&lt;status>|&lt;customerId></code>
+ * <br>
+ * The value of an index entry is the customer id. Entries are only added, never updated: an entry may stand for an
+ * older state of the customer's reservations, so readers check the reservations they find through the index. Like the
+ * aggregate, the index forgets a window once it is out of retention.
+ * <br>
+ * Readers range over a prefix, from the prefix to {@link #keyPrefixEnd(String)}.
+ */
+public class ReservationIndexer implements FixedKeyProcessorSupplier<Windowed<String>, CustomerReservations, CustomerReservations> {
+
+    private static final String TABLE_KEY_PREFIX_FORMAT = "table|%s|";
+    private static final String STATUS_KEY_PREFIX_FORMAT = "status|%s|";
+
+    private final Duration windowSize;
+    private final Duration retention;
+
+    public ReservationIndexer(Duration windowSize, Duration retention) {
+        this.windowSize = windowSize;
+        this.retention = retention;
+    }
+
+    public static String tableKeyPrefix(String tableId) {
+        return TABLE_KEY_PREFIX_FORMAT.formatted(tableId);
+    }
+
+    public static String statusKeyPrefix(TableReservation.Status status) {
+        return STATUS_KEY_PREFIX_FORMAT.formatted(status);
+    }
+
+    /**
+     * @return the upper bound of a range over the keys starting with the prefix: keys compare by their utf-8 bytes, in
+     * which no character sorts after all the others, so the bound is the prefix with its closing '|' incremented
+     */
+    public static String keyPrefixEnd(String keyPrefix) {
+        return keyPrefix.substring(0, keyPrefix.length() - 1) + (char) (keyPrefix.charAt(keyPrefix.length() - 1) + 1);
+    }
+
+    @Override
+    public FixedKeyProcessor<Windowed<String>, CustomerReservations, CustomerReservations> get() {
+        return new IndexProcessor();
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+        return Set.of(Stores.windowStoreBuilder(
+                Stores.inMemoryWindowStore(StateStores.RESERVATION_INDEX_IN_MEMORY_STATE_STORE, retention, windowSize, false),
+                Serdes.String(), Serdes.String()));
+    }
+
+    private static class IndexProcessor implements FixedKeyProcessor<Windowed<String>, CustomerReservations, CustomerReservations> {
+
+        private FixedKeyProcessorContext<Windowed<String>, CustomerReservations> context;
+        private WindowStore<String, String> index;
+
+        @Override
+        public void init(FixedKeyProcessorContext<Windowed<String>, CustomerReservations> context) {
+            this.context = context;
+            this.index = context.getStateStore(StateStores.RESERVATION_INDEX_IN_MEMORY_STATE_STORE);
+        }
+
+        @Override
+        public void process(FixedKeyRecord<Windowed<String>, CustomerReservations> record) {
+            var customerReservations = record.value();
+            if (record.key() != null && customerReservations != null) {
+                var customerId = record.key().key();
+                var windowStart = record.key().window().start();
+                for (var tableReservation : customerReservations.reservations()) {
+                    add(tableKeyPrefix(tableReservation.getTableId()) + customerId, customerId, windowStart);
+                    add(statusKeyPrefix(tableReservation.getStatus()) + customerId, customerId, windowStart);
+                }
+            }
+            context.forward(record);
+        }
+
+        // every update of the aggregate comes by, only the entries that are new are written (and so go to the changelog)
+        private void add(String key, String customerId, long windowStart) {
+            if (index.fetch(key, windowStart) == null) {
+                index.put(key, customerId, windowStart);
+            }
+        }
+    }
+}
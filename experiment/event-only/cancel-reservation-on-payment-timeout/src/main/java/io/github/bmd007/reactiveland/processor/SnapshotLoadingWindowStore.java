@@ -0,0 +1,227 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.configuration.TopicCreator;
+import io.github.bmd007.reactiveland.serialization.WindowStoreSnapshotFile;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.errors.ProcessorStateException;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.processor.StateStoreContext;
+import org.apache.kafka.streams.processor.TaskId;
+import org.apache.kafka.streams.query.Position;
+import org.apache.kafka.streams.query.PositionBound;
+import org.apache.kafka.streams.query.Query;
+import org.apache.kafka.streams.query.QueryConfig;
+import org.apache.kafka.streams.query.QueryResult;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.TimestampedBytesStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * A window store (of the DSL, so with timestamped values) that, when initialized for a task, loads the snapshot of its
+ * partition if there is one, and makes kafka streams restore only the tail of the changelog after the snapshot:
+ * <li>the entries of the snapshot are written to the inner store directly, they are already in the changelog
+ * <li>the changelog offset of the snapshot is written to the checkpoint of the task, which kafka streams reads right
+ * after initializing the stores, and only for persistent stores: a store that loaded a snapshot reports itself as
+ * persistent. That relies on internals of kafka streams, all of which are in {@link TaskCheckpoint}
+ * <li>the position of the snapshot is merged into the position of the store, so that reads bound to a position
+ * (interactive queries v2) are served by a bootstrapped store as well
+ * A persistent inner store only loads a snapshot when it is empty and the checkpoint has no offset for its changelog
+ * partition: its own content is more recent otherwise, or (without checkpoint, under exactly once) has to be wiped by
+ * kafka streams first.
+ */
+@Slf4j
+public class SnapshotLoadingWindowStore implements WindowStore<Bytes, byte[]>, TimestampedBytesStore {
+
+    private final WindowStore<Bytes, byte[]> inner;
+    private final Path snapshotDirectory;
+    private boolean loadedSnapshot;
+
+    public SnapshotLoadingWindowStore(WindowStore<Bytes, byte[]> inner, Path snapshotDirectory) {
+        this.inner = inner;
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    @Override
+    public void init(StateStoreContext context, StateStore root) {
+        inner.init(context, root);
+        loadSnapshot(context.taskId(), context.stateDir(), context.applicationId());
+    }
+
+    @Deprecated
+    @Override
+    public void init(ProcessorContext context, StateStore root) {
+        inner.init(context, root);
+        loadSnapshot(context.taskId(), context.stateDir(), context.applicationId());
+    }
+
+    private void loadSnapshot(TaskId taskId, File stateDirectory, String applicationId) {
+        var snapshot = WindowStoreSnapshotFile.path(snapshotDirectory, name(), taskId.partition());
+        if (!Files.isRegularFile(snapshot)) {
+            return;
+        }
+        var changelogPartition = new TopicPartition(TopicCreator.stateStoreTopicName(name(), applicationId), taskId.partition());
+        var checkpoint = new TaskCheckpoint(stateDirectory);
+        try {
+            if (inner.persistent() && (checkpoint.read().containsKey(changelogPartition) || !isEmpty())) {
+                log.info("store {} of task {} has local state, not loading snapshot {}", name(), taskId, snapshot);
+                return;
+            }
+            var header = WindowStoreSnapshotFile.readHeader(snapshot);
+            if (!header.changelogTopic().equals(changelogPartition.topic()) || header.partition() != changelogPartition.partition()) {
+                log.warn("snapshot {} is of {}-{}, not of {}, not loading it", snapshot, header.changelogTopic(), header.partition(), changelogPartition);
+                return;
+            }
+            var start = System.nanoTime();
+            var entries = new long[1];
+            WindowStoreSnapshotFile.read(snapshot, entry -> {
+                var value = ByteBuffer.allocate(Long.BYTES + entry.value().length)
+                        .putLong(entry.timestamp())
+                        .put(entry.value())
+                        .array();
+                inner.put(Bytes.wrap(entry.key().getBytes(StandardCharsets.UTF_8)), value, entry.windowStart());
+                entries[0]++;
+            });
+            inner.getPosition().merge(Position.fromMap(header.position()));
+            checkpoint.put(changelogPartition, header.changelogOffset());
+            loadedSnapshot = true;
+            log.info("loaded {} entries of store {} of task {} from snapshot {} in {} ms, restoring changelog {} from offset {}",
+                    entries[0], name(), taskId, snapshot, (System.nanoTime() - start) / 1_000_000, changelogPartition, header.changelogOffset() + 1);
+        } catch (IOException e) {
+            throw new ProcessorStateException("could not load snapshot " + snapshot + " into store " + name(), e);
+        }
+    }
+
+    private boolean isEmpty() {
+        try (var all = inner.all()) {
+            return !all.hasNext();
+        }
+    }
+
+    @Override
+    public boolean persistent() {
+        return inner.persistent() || loadedSnapshot;
+    }
+
+    @Override
+    public String name() {
+        return inner.name();
+    }
+
+    @Override
+    public void flush() {
+        inner.flush();
+    }
+
+    @Override
+    public void close() {
+        inner.close();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return inner.isOpen();
+    }
+
+    @Override
+    public <R> QueryResult<R> query(Query<R> query, PositionBound positionBound, QueryConfig config) {
+        return inner.query(query, positionBound, config);
+    }
+
+    @Override
+    public Position getPosition() {
+        return inner.getPosition();
+    }
+
+    @Override
+    public void put(Bytes key, byte[] value, long windowStartTimestamp) {
+        inner.put(key, value, windowStartTimestamp);
+    }
+
+    @Override
+    public byte[] fetch(Bytes key, long time) {
+        return inner.fetch(key, time);
+    }
+
+    @Override
+    public WindowStoreIterator<byte[]> fetch(Bytes key, long timeFrom, long timeTo) {
+        return inner.fetch(key, timeFrom, timeTo);
+    }
+
+    @Override
+    public WindowStoreIterator<byte[]> fetch(Bytes key, Instant timeFrom, Instant timeTo) {
+        return inner.fetch(key, timeFrom, timeTo);
+    }
+
+    @Override
+    public WindowStoreIterator<byte[]> backwardFetch(Bytes key, long timeFrom, long timeTo) {
+        return inner.backwardFetch(key, timeFrom, timeTo);
+    }
+
+    @Override
+    public WindowStoreIterator<byte[]> backwardFetch(Bytes key, Instant timeFrom, Instant timeTo) {
+        return inner.backwardFetch(key, timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> fetch(Bytes keyFrom, Bytes keyTo, long timeFrom, long timeTo) {
+        return inner.fetch(keyFrom, keyTo, timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> fetch(Bytes keyFrom, Bytes keyTo, Instant timeFrom, Instant timeTo) {
+        return inner.fetch(keyFrom, keyTo, timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardFetch(Bytes keyFrom, Bytes keyTo, long timeFrom, long timeTo) {
+        return inner.backwardFetch(keyFrom, keyTo, timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardFetch(Bytes keyFrom, Bytes keyTo, Instant timeFrom, Instant timeTo) {
+        return inner.backwardFetch(keyFrom, keyTo, timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> all() {
+        return inner.all();
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardAll() {
+        return inner.backwardAll();
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> fetchAll(long timeFrom, long timeTo) {
+        return inner.fetchAll(timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> fetchAll(Instant timeFrom, Instant timeTo) {
+        return inner.fetchAll(timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardFetchAll(long timeFrom, long timeTo) {
+        return inner.backwardFetchAll(timeFrom, timeTo);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardFetchAll(Instant timeFrom, Instant timeTo) {
+        return inner.backwardFetchAll(timeFrom, timeTo);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bmd007.reactiveland.processor;
+
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.state.WindowBytesStoreSupplier;
+import org.apache.kafka.streams.state.WindowStore;
+
+import java.nio.file.Path;
+
+/**
+ * Supplies the stores of another supplier, wrapped so that they are bootstrapped from a snapshot, when there is one in
+ * the snapshot directory, see {@link SnapshotLoadingWindowStore}.
+ */
+public class SnapshotLoadingWindowStoreSupplier implements WindowBytesStoreSupplier {
+
+    private final WindowBytesStoreSupplier inner;
+    private final Path snapshotDirectory;
+
+    public SnapshotLoadingWindowStoreSupplier(WindowBytesStoreSupplier inner, Path snapshotDirectory) {
+        this.inner = inner;
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    @Override
+    public String name() {
+        return inner.name();
+    }
+
+    @Override
+    public WindowStore<Bytes, byte[]> get() {
+        return new SnapshotLoadingWindowStore(inner.get(), snapshotDirectory);
+    }
+
+    @Override
+    public String metricsScope() {
+        return inner.metricsScope();
+    }
+
+    @Override
+    public long segmentIntervalMs() {
+        return inner.segmentIntervalMs();
+    }
+
+    @Override
+    public long windowSize() {
+        return inner.windowSize();
+    }
+
+    @Override
+    public boolean retainDuplicates() {
+        return inner.retainDuplicates();
+    }
+
+    @Override
+    public long retentionPeriod() {
+        return inner.retentionPeriod();
+    }
+}
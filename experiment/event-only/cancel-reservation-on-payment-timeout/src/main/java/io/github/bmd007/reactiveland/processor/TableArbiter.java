@@ -0,0 +1,116 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.domain.TableHold;
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentRefused;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableRejected;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.TABLE_HOLD_BINARY_SERDE;
+
+/**
+ * Decides which customer gets a table, given the table requests and payments keyed by table id: all the requests of
+ * a table are processed by one stream thread, one at a time, so the inventory needs no lock.
+ * <li>a request for a table that isn't held is granted: the table is held for the customer until the payment deadline
+ * <li>a request for a table held for another customer is rejected
+ * <li>a payment of the customer the table is held for, before the deadline, holds the table for the booking duration and
+ * is accepted: only then is the reservation paid for, a customer whose request lost the table can not book it by paying
+ * before the rejection reaches them
+ * <li>any other payment is refused
+ * <li>a hold is released once its time (the record time of the table's events) has passed, so a reservation that
+ * timed out frees its table without waiting for the timeout to be detected
+ * Decisions are forwarded keyed by customer id, with the time of the request or payment they answer.
+ */
+@Slf4j
+public class TableArbiter implements ProcessorSupplier<String, Event, String, Event> {
+
+    private final Duration paymentTimeout;
+    private final Duration bookingDuration;
+
+    public TableArbiter(Duration paymentTimeout, Duration bookingDuration) {
+        this.paymentTimeout = paymentTimeout;
+        this.bookingDuration = bookingDuration;
+    }
+
+    @Override
+    public Processor<String, Event, String, Event> get() {
+        return new ArbiterProcessor();
+    }
+
+    @Override
+    public Set<StoreBuilder<?>> stores() {
+        return Set.of(Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(StateStores.TABLE_INVENTORY_IN_MEMORY_STATE_STORE),
+                Serdes.String(), TABLE_HOLD_BINARY_SERDE));
+    }
+
+    private class ArbiterProcessor implements Processor<String, Event, String, Event> {
+
+        private ProcessorContext<String, Event> context;
+        private KeyValueStore<String, TableHold> inventory;
+
+        @Override
+        public void init(ProcessorContext<String, Event> context) {
+            this.context = context;
+            this.inventory = context.getStateStore(StateStores.TABLE_INVENTORY_IN_MEMORY_STATE_STORE);
+        }
+
+        @Override
+        public void process(Record<String, Event> record) {
+            var tableId = record.key();
+            if (tableId == null || record.value() == null) {
+                return;
+            }
+            var now = Instant.ofEpochMilli(record.timestamp());
+            var hold = inventory.get(tableId);
+            var currentHold = hold != null && hold.isHeldAt(now) ? hold : null;
+            switch (record.value()) {
+                case CustomerRequestedTable request -> arbitrate(request, currentHold, now, record.timestamp());
+                case CustomerPaidForTable payment -> settle(payment, currentHold, now, record.timestamp());
+                default -> {
+                }
+            }
+        }
+
+        private void arbitrate(CustomerRequestedTable request, TableHold currentHold, Instant now, long timestamp) {
+            var customerId = request.customerId();
+            if (currentHold != null && !currentHold.isFor(customerId)) {
+                log.debug("table {} is held for another customer, rejecting the request of {}", request.tableId(), customerId);
+                context.forward(new Record<>(customerId, new TableRejected(customerId, request.tableId(), now), timestamp));
+                return;
+            }
+            // a request repeated by the customer the table is held for is granted again, without extending the hold
+            if (currentHold == null) {
+                inventory.put(request.tableId(), new TableHold(request.tableId(), customerId, false, now.plus(paymentTimeout)));
+            }
+            context.forward(new Record<>(customerId, new TableGranted(customerId, request.tableId(), now), timestamp));
+        }
+
+        private void settle(CustomerPaidForTable payment, TableHold currentHold, Instant now, long timestamp) {
+            var customerId = payment.customerId();
+            if (currentHold != null && currentHold.isFor(customerId) && !currentHold.paid()) {
+                inventory.put(payment.tableId(), new TableHold(payment.tableId(), customerId, true, now.plus(bookingDuration)));
+                context.forward(new Record<>(customerId, new PaymentAccepted(customerId, payment.tableId(), now), timestamp));
+                return;
+            }
+            log.info("table {} is not held for customer {} awaiting their payment, refusing it", payment.tableId(), customerId);
+            context.forward(new Record<>(customerId, new PaymentRefused(customerId, payment.tableId(), now), timestamp));
+        }
+    }
+}
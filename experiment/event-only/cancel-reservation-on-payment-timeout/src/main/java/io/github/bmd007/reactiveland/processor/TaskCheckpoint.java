@@ -0,0 +1,52 @@
+package io.github.bmd007.reactiveland.processor;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.state.internals.OffsetCheckpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The checkpoint file of a task: the changelog offsets its stores are at, which kafka streams restores from. Not part
+ * of the public api of kafka streams, this class is the only place that relies on how it works (see
+ * ProcessorStateManager and StateManagerUtil of {@value #VERIFIED_KAFKA_STREAMS_VERSION}):
+ * <li>the file is .checkpoint in the directory of the task, in the format of {@link OffsetCheckpoint}
+ * <li>it is read right after the stores of the task are initialized, so offsets written during init are restored from
+ * <li>it is read only for the changelogs of stores that report themselves as persistent
+ * <li>under exactly once, it is deleted once read, and written again on a clean close only
+ * TaskCheckpointTest fails on any other version of kafka streams: check the above before upgrading.
+ */
+final class TaskCheckpoint {
+
+    static final String VERIFIED_KAFKA_STREAMS_VERSION = "3.7";
+    // same as StateManagerUtil.CHECKPOINT_FILE_NAME, which is package private
+    static final String FILE_NAME = ".checkpoint";
+
+    private final File stateDirectory;
+    private final OffsetCheckpoint checkpoint;
+
+    /**
+     * @param stateDirectory the directory of the task
+     */
+    TaskCheckpoint(File stateDirectory) {
+        this.stateDirectory = stateDirectory;
+        this.checkpoint = new OffsetCheckpoint(new File(stateDirectory, FILE_NAME));
+    }
+
+    Map<TopicPartition, Long> read() throws IOException {
+        return new HashMap<>(checkpoint.read());
+    }
+
+    /**
+     * Adds (or replaces) the offset of a changelog partition, keeping the offsets of the other stores of the task.
+     */
+    void put(TopicPartition changelogPartition, long offset) throws IOException {
+        var offsets = read();
+        offsets.put(changelogPartition, offset);
+        Files.createDirectories(stateDirectory.toPath());
+        checkpoint.write(offsets);
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.bmd007.reactiveland.processor;
+
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+
+/**
+ * Bloom filter of the ids seen during the last window of (stream) time, so that most ids that were not seen are told
+ * apart without a store lookup.
+ * <li>the window is split in buckets of time, each with its own bit set sized for the expected ids of a bucket
+ * <li>an id is added to the bucket of its time, and looked up in all the buckets of the window
+ * <li>a bucket is dropped as a whole once it is out of the window, which is how ids are forgotten
+ * <li>no false negatives within the window, false positives at about the given rate
+ * Not thread safe: one per stream task.
+ */
+final class TimeBucketedBloomFilter {
+
+    private final long window;
+    private final long bucketSize;
+    private final int bitCount;
+    private final int hashCount;
+    private final TreeMap<Long, long[]> buckets = new TreeMap<>();
+
+    TimeBucketedBloomFilter(long window, int bucketsPerWindow, int expectedIdsPerBucket, double falsePositiveRate) {
+        this.window = window;
+        this.bucketSize = Math.max(1, window / bucketsPerWindow);
+        var bits = Math.ceil(-expectedIdsPerBucket * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) expectedIdsPerBucket * Math.log(2)));
+    }
+
+    long bucketStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, bucketSize);
+    }
+
+    long bucketSize() {
+        return bucketSize;
+    }
+
+    boolean mightContain(String id) {
+        if (buckets.isEmpty()) {
+            return false;
+        }
+        var h1 = Utils.murmur2(id.getBytes(StandardCharsets.UTF_8));
+        var h2 = id.hashCode();
+        for (var bits : buckets.values()) {
+            if (contains(bits, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void put(String id, long timestamp) {
+        var bits = buckets.computeIfAbsent(bucketStart(timestamp), ignored -> new long[(bitCount + 63) / 64]);
+        var h1 = Utils.murmur2(id.getBytes(StandardCharsets.UTF_8));
+        var h2 = id.hashCode();
+        for (int i = 0; i < hashCount; i++) {
+            var index = index(h1, h2, i);
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * Forgets the buckets that are out of the window ending at the given stream time.
+     */
+    void expire(long streamTime) {
+        buckets.headMap(oldestBucketStart(streamTime)).clear();
+    }
+
+    /**
+     * Start of the oldest bucket still in the window ending at the given stream time.
+     */
+    long oldestBucketStart(long streamTime) {
+        return bucketStart(streamTime - window);
+    }
+
+    private boolean contains(long[] bits, int h1, int h2) {
+        for (int i = 0; i < hashCount; i++) {
+            var index = index(h1, h2, i);
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // double hashing: the i-th hash is h1 + i * h2, which is as good as k independent hashes for a bloom filter
+    private int index(int h1, int h2, int i) {
+        return Math.floorMod(h1 + i * h2, bitCount);
+    }
+}
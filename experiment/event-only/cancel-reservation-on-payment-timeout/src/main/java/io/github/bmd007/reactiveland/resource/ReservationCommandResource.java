@@ -0,0 +1,36 @@
+package io.github.bmd007.reactiveland.resource;
+
+import io.github.bmd007.reactiveland.dto.ReservationCommandAckDto;
+import io.github.bmd007.reactiveland.dto.ReservationCommandDto;
+import io.github.bmd007.reactiveland.service.ReservationCommandService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/tables/reservations/commands")
+public class ReservationCommandResource {
+
+    private final ReservationCommandService reservationCommandService;
+
+    public ReservationCommandResource(ReservationCommandService reservationCommandService) {
+        this.reservationCommandService = reservationCommandService;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<ReservationCommandAckDto> submit(@RequestBody ReservationCommandDto command) {
+        return reservationCommandService.submit(command)
+                .onErrorMap(IllegalArgumentException.class, exception -> new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage(), exception));
+    }
+
+    //one json command per line in, one acknowledgement per line out, as soon as kafka acknowledged it
+    //lines are decoded one by one, so a malformed line is rejected on its own instead of failing the whole stream
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ReservationCommandAckDto> submitAll(@RequestBody Flux<String> lines) {
+        return reservationCommandService.submitAllLines(lines);
+    }
+}
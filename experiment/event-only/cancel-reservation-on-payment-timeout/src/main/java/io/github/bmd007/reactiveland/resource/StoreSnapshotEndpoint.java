@@ -0,0 +1,30 @@
+package io.github.bmd007.reactiveland.resource;
+
+import io.github.bmd007.reactiveland.dto.StoreSnapshotDto;
+import io.github.bmd007.reactiveland.service.StoreSnapshotService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * POST /storesnapshot on the management port: snapshots the local replicas of the reservation store into the snapshot
+ * directory, from where a new instance (the files copied to its own snapshot directory) loads them at startup.
+ */
+@Component
+@Endpoint(id = "storesnapshot")
+public class StoreSnapshotEndpoint {
+
+    private final StoreSnapshotService storeSnapshotService;
+
+    public StoreSnapshotEndpoint(StoreSnapshotService storeSnapshotService) {
+        this.storeSnapshotService = storeSnapshotService;
+    }
+
+    @WriteOperation
+    public List<StoreSnapshotDto> export() throws IOException {
+        return storeSnapshotService.export();
+    }
+}
@@ -1,37 +1,120 @@
 package io.github.bmd007.reactiveland.resource;
 
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import io.github.bmd007.reactiveland.dto.PageDto;
 import io.github.bmd007.reactiveland.dto.TableReservationDto;
 import io.github.bmd007.reactiveland.dto.TableReservationsDto;
+import io.github.bmd007.reactiveland.service.StoreNotReadyException;
+import io.github.bmd007.reactiveland.service.TableReservationChangeFeed;
 import io.github.bmd007.reactiveland.service.TableReservationViewService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Set;
+
 import static io.github.bmd007.reactiveland.service.ViewService.HIGH_LEVEL_QUERY_PARAM_NAME;
 
 @RestController
 @RequestMapping("/api/tables/reservations")
 public class TableReservationViewResource {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_MGET_SIZE = 1000;
+
     private final TableReservationViewService tableReservationViewService;
+    private final TableReservationChangeFeed tableReservationChangeFeed;
 
-    public TableReservationViewResource(TableReservationViewService tableReservationViewService) {
+    public TableReservationViewResource(TableReservationViewService tableReservationViewService,
+                                        TableReservationChangeFeed tableReservationChangeFeed) {
         this.tableReservationViewService = tableReservationViewService;
+        this.tableReservationChangeFeed = tableReservationChangeFeed;
     }
 
-    //isHighLevelQuery query param is related to inter instance communication, it should be true in normal operations or not defined
+    //isHighLevelQuery and partitions query params are related to inter instance communication, they should be true and not defined in normal operations
     @GetMapping
-    public Mono<TableReservationsDto> getLikes(@RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery) {
-        return tableReservationViewService.getAll(isHighLevelQuery);
+    public Mono<TableReservationsDto> getLikes(@RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery,
+                                               @RequestParam(required = false) Set<Integer> partitions) {
+        return tableReservationViewService.getAll(isHighLevelQuery, partitions);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TableReservationDto> streamAll(@RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery) {
+        return tableReservationViewService.streamAll(isHighLevelQuery);
+    }
+
+    //continuationToken is the one returned by the previous page, absent for the first page
+    @GetMapping(params = "pageSize")
+    public Mono<PageDto<TableReservationDto>> getPage(@RequestParam int pageSize,
+                                                      @RequestParam(required = false) String continuationToken,
+                                                      @RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "pageSize must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        return tableReservationViewService.getPage(pageSize, continuationToken, isHighLevelQuery);
+    }
+
+    @PostMapping(value = "/_mget", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<TableReservationsDto> getByCustomerIds(@RequestBody List<String> customerIds,
+                                                       @RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery) {
+        if (customerIds.size() > MAX_MGET_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + MAX_MGET_SIZE + " customer ids can be looked up at once"));
+        }
+        return tableReservationViewService.getByIds(customerIds, isHighLevelQuery);
     }
 
+    //pushes the changes of the reservations (of a customer, of the customers holding a table, or all) as they happen
+    @GetMapping(value = "/_changes", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<TableReservationDto> streamChanges(@RequestParam(required = false) String customerId,
+                                                   @RequestParam(required = false) String tableId,
+                                                   @RequestParam(required = false, defaultValue = "LATEST") TableReservationChangeFeed.Overflow overflow) {
+        return tableReservationChangeFeed.subscribe(customerId, tableId, overflow);
+    }
+
+    //answered from the secondary indexes of the reservations, without scanning the stores
+    @GetMapping("/by-table/{tableId}")
+    public Mono<TableReservationsDto> getByTableId(@PathVariable String tableId,
+                                                   @RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery) {
+        return tableReservationViewService.getByTableId(tableId, isHighLevelQuery);
+    }
+
+    @GetMapping("/by-status/{status}")
+    public Mono<TableReservationsDto> getByStatus(@PathVariable TableReservation.Status status,
+                                                  @RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery) {
+        return tableReservationViewService.getByStatus(status, isHighLevelQuery);
+    }
+
+    //maxLag (in records) allows standby replicas, that may be behind, to answer too
+    //writePartition and writeOffset (from the ack of a command) make the answer wait until it reflects that command
     @GetMapping("/{customerId}")
-    public Mono<TableReservationDto> getLikesByWonderSeekerName(@PathVariable String customerId) {
-        return tableReservationViewService.getById(customerId)
+    public Mono<TableReservationDto> getLikesByWonderSeekerName(@PathVariable String customerId,
+                                                               @RequestParam(required = false) Long maxLag,
+                                                               @RequestParam(required = false) Integer writePartition,
+                                                               @RequestParam(required = false) Long writeOffset,
+                                                               @RequestParam(required = false, value = HIGH_LEVEL_QUERY_PARAM_NAME, defaultValue = "true") boolean isHighLevelQuery) {
+        if (maxLag != null && maxLag < 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxLag can't be negative"));
+        }
+        if ((writePartition == null) != (writeOffset == null)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "writePartition and writeOffset go together"));
+        }
+        var reservation = writeOffset == null
+                ? tableReservationViewService.getById(customerId, maxLag, isHighLevelQuery)
+                : tableReservationViewService.getByIdAfterWrite(customerId, writePartition, writeOffset, isHighLevelQuery);
+        return reservation
                 .switchIfEmpty(
                         Mono.error(
                             new ResponseStatusException(HttpStatus.NOT_FOUND,
                                     String.format("%s not found (%s doesn't exist).", "Table reservations", customerId))));
     }
+
+    @ExceptionHandler
+    public ResponseEntity<Void> storeNotReady(StoreNotReadyException exception) {
+        return ResponseEntity.status(exception.getStatusCode()).headers(exception.getHeaders()).build();
+    }
 }
@@ -0,0 +1,171 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Minimal building blocks of the compact binary format:
+ * <li>unsigned varints (7 bits per byte, least significant group first)
+ * <li>strings as varint(utf8 length + 1) followed by utf8 bytes, 0 meaning null
+ * <li>instants as varint(zigzag(epoch millis) + 1), 0 meaning null
+ * <li>signed longs as varint(zigzag(value)) and byte arrays as varint(length) followed by the bytes
+ */
+final class BinaryCodec {
+
+    private BinaryCodec() {
+    }
+
+    static final class Output {
+
+        private byte[] buffer;
+        private int position;
+
+        Output(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeByte(0);
+                return;
+            }
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] value) {
+            writeVarLong(value.length);
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+
+        void writeInstant(Instant value) {
+            if (value == null) {
+                writeByte(0);
+                return;
+            }
+            var millis = value.toEpochMilli();
+            writeVarLong(((millis << 1) ^ (millis >> 63)) + 1);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        int size() {
+            return position;
+        }
+
+        void writeTo(OutputStream outputStream) throws IOException {
+            outputStream.write(buffer, 0, position);
+        }
+
+        void reset() {
+            position = 0;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new SerializationException("unexpected end of compact binary record");
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                var b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("malformed varint in compact binary record");
+        }
+
+        int readVarInt() {
+            return Math.toIntExact(readVarLong());
+        }
+
+        String readString() {
+            var length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (position + length > buffer.length) {
+                throw new SerializationException("string length %d exceeds compact binary record".formatted(length));
+            }
+            var value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        long readSignedVarLong() {
+            var zigzag = readVarLong();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        byte[] readBytes() {
+            var length = readVarInt();
+            if (length < 0 || position + length > buffer.length) {
+                throw new SerializationException("byte array length %d exceeds compact binary record".formatted(length));
+            }
+            var value = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return value;
+        }
+
+        Instant readInstant() {
+            var encoded = readVarLong();
+            if (encoded == 0) {
+                return null;
+            }
+            var zigzag = encoded - 1;
+            return Instant.ofEpochMilli((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+    }
+}
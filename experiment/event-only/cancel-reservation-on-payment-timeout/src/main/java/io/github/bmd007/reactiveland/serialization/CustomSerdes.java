@@ -1,5 +1,8 @@
 package io.github.bmd007.reactiveland.serialization;
 
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.PaymentDeadline;
+import io.github.bmd007.reactiveland.domain.TableHold;
 import io.github.bmd007.reactiveland.domain.TableReservation;
 import io.github.bmd007.reactiveland.event.Event;
 import org.apache.kafka.common.serialization.Serdes;
@@ -8,8 +11,16 @@ import org.apache.kafka.streams.kstream.Produced;
 import org.springframework.kafka.support.serializer.JsonSerde;
 
 public class CustomSerdes {
-    public static final JsonSerde<TableReservation> RESERVATION_AGGREGATE_JSON_SERDE =
+    public static final JsonSerde<CustomerReservations> RESERVATION_AGGREGATE_JSON_SERDE =
+            new JsonSerde<>(CustomerReservations.class);
+    // the format of the reservation store when it held a single reservation per customer
+    public static final JsonSerde<TableReservation> TABLE_RESERVATION_JSON_SERDE =
             new JsonSerde<>(TableReservation.class);
+    public static final JsonSerde<PaymentDeadline> PAYMENT_DEADLINE_JSON_SERDE =
+            new JsonSerde<>(PaymentDeadline.class);
+    // the format of the table inventory store before it was binary
+    public static final JsonSerde<TableHold> TABLE_HOLD_JSON_SERDE =
+            new JsonSerde<>(TableHold.class);
     public static final JsonSerde<Event> EVENT_JSON_SERDE =
             new JsonSerde<>(Event.class);
     public static final JsonSerde<Event.CustomerEvent> CUSTOMER_EVENT_JSON_SERDE =
@@ -19,11 +30,21 @@ public class CustomSerdes {
     public static final JsonSerde<Event.CustomerEvent.CustomerPaidForTable> CUSTOMER_PAID_FOR_RESERVATION_JSON_SERDE =
             new JsonSerde<>(Event.CustomerEvent.CustomerPaidForTable.class);
 
+
+    public static final EventBinarySerde EVENT_BINARY_SERDE =
+            new EventBinarySerde(EVENT_JSON_SERDE.deserializer());
+    public static final CustomerReservationsBinarySerde RESERVATION_AGGREGATE_BINARY_SERDE =
+            new CustomerReservationsBinarySerde((topic, data) ->
+                    CustomerReservations.of(TABLE_RESERVATION_JSON_SERDE.deserializer().deserialize(topic, data)));
+    public static final TableHoldBinarySerde TABLE_HOLD_BINARY_SERDE =
+            new TableHoldBinarySerde(TABLE_HOLD_JSON_SERDE.deserializer());
+
     public static final Consumed<String, Event> EVENT_CONSUMED =
-            Consumed.with(Serdes.String(), EVENT_JSON_SERDE);
+            Consumed.with(Serdes.String(), EVENT_BINARY_SERDE)
+                    .withTimestampExtractor(new EventTimestampExtractor());
 
     public static final Produced<String, Event> EVENT_PRODUCED =
-            Produced.with(Serdes.String(), EVENT_JSON_SERDE);
+            Produced.with(Serdes.String(), EVENT_BINARY_SERDE);
 
     public static final Consumed<String, Event.CustomerEvent> CUSTOMER_EVENT_CONSUMED =
             Consumed.with(Serdes.String(), CUSTOMER_EVENT_JSON_SERDE);
@@ -0,0 +1,84 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.ArrayList;
+
+/**
+ * Compact binary form of {@link CustomerReservations}, used as the value format of the reservation state store.
+ * <li>version 1: a single {@link TableReservation}: status code (one byte), table id, customer id
+ * <li>version 2: customer id (once, all the reservations are of the same customer), number of reservations, then per
+ * reservation: status code, table id, payment deadline
+ */
+public class CustomerReservationsBinarySerde extends VersionedBinarySerde<CustomerReservations> {
+
+    static final int SCHEMA_VERSION = 2;
+
+    private static final int NO_STATUS = 0xFF;
+
+    public CustomerReservationsBinarySerde(Deserializer<CustomerReservations> legacyJsonDeserializer) {
+        super(SCHEMA_VERSION, legacyJsonDeserializer);
+    }
+
+    @Override
+    protected void write(CustomerReservations customerReservations, BinaryCodec.Output output) {
+        var reservations = customerReservations.reservations();
+        output.writeString(reservations.isEmpty() ? null : reservations.get(0).getCustomerId());
+        output.writeVarLong(reservations.size());
+        for (var tableReservation : reservations) {
+            output.writeByte(statusCode(tableReservation.getStatus()));
+            output.writeString(tableReservation.getTableId());
+            output.writeInstant(tableReservation.getPaymentDeadline());
+        }
+    }
+
+    @Override
+    protected CustomerReservations read(int version, BinaryCodec.Input input) {
+        if (version == 1) {
+            return CustomerReservations.of(TableReservation.builder()
+                    .status(status(input.readByte()))
+                    .tableId(input.readString())
+                    .customerId(input.readString())
+                    .build());
+        }
+        var customerId = input.readString();
+        var count = input.readVarInt();
+        var reservations = new ArrayList<TableReservation>(count);
+        for (int i = 0; i < count; i++) {
+            reservations.add(TableReservation.builder()
+                    .customerId(customerId)
+                    .status(status(input.readByte()))
+                    .tableId(input.readString())
+                    .paymentDeadline(input.readInstant())
+                    .build());
+        }
+        return new CustomerReservations(reservations);
+    }
+
+    // explicit codes instead of ordinals, so reordering the enum can not corrupt stored reservations
+    static int statusCode(TableReservation.Status status) {
+        if (status == null) {
+            return NO_STATUS;
+        }
+        return switch (status) {
+            case AVAILABLE -> 0;
+            case RESERVED_AWAITING_PAYMENT -> 1;
+            case PAID_FOR -> 2;
+            case REQUESTED -> 3;
+        };
+    }
+
+    static TableReservation.Status status(int code) {
+        return switch (code) {
+            case 0 -> TableReservation.Status.AVAILABLE;
+            case 1 -> TableReservation.Status.RESERVED_AWAITING_PAYMENT;
+            case 2 -> TableReservation.Status.PAID_FOR;
+            case 3 -> TableReservation.Status.REQUESTED;
+            case NO_STATUS -> null;
+            default -> throw new SerializationException("unknown table reservation status code " + code);
+        };
+    }
+}
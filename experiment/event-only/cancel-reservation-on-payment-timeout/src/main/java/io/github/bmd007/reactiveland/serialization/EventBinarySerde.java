@@ -0,0 +1,147 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.DefaultCustomerEvent;
+import io.github.bmd007.reactiveland.event.Event.DefaultEvent;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentRefused;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationConfirmed;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationRejected;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationTimedOut;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableRejected;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.time.Instant;
+
+/**
+ * Compact binary form of {@link Event}: a one byte type tag, a small number replacing the class name json carries as
+ * type id, followed by the components of the event.
+ * <li>customer events: customer id, table id (but for the default customer event), timestamp since version 2 and event
+ * id since version 3
+ * <li>table decisions, payment decisions and reservation outcomes: customer id, table id and timestamp, which is the
+ * payment deadline of a time out
+ * <li>the default event: nothing
+ * Tags are part of the schema, never reuse or renumber them. A tag the reader does not know is read as a
+ * {@link DefaultEvent}, which every processor ignores: a new type of event only needs a new tag, while a new component
+ * of an existing event needs a new version.
+ */
+public class EventBinarySerde extends VersionedBinarySerde<Event> {
+
+    static final int SCHEMA_VERSION = 3;
+
+    private static final int DEFAULT_EVENT = 0;
+    private static final int DEFAULT_CUSTOMER_EVENT = 1;
+    private static final int CUSTOMER_REQUESTED_TABLE = 2;
+    private static final int CUSTOMER_PAID_FOR_TABLE = 3;
+    private static final int RESERVATION_TIMED_OUT = 4;
+    private static final int TABLE_GRANTED = 5;
+    private static final int TABLE_REJECTED = 6;
+    private static final int RESERVATION_CONFIRMED = 7;
+    private static final int RESERVATION_REJECTED = 8;
+    private static final int PAYMENT_ACCEPTED = 9;
+    private static final int PAYMENT_REFUSED = 10;
+
+    public EventBinarySerde(Deserializer<Event> legacyJsonDeserializer) {
+        super(SCHEMA_VERSION, legacyJsonDeserializer);
+    }
+
+    @Override
+    protected void write(Event event, BinaryCodec.Output output) {
+        switch (event) {
+            case DefaultEvent ignored -> output.writeByte(DEFAULT_EVENT);
+            case DefaultCustomerEvent defaultCustomerEvent -> {
+                output.writeByte(DEFAULT_CUSTOMER_EVENT);
+                output.writeString(defaultCustomerEvent.customerId());
+                output.writeInstant(defaultCustomerEvent.timestamp());
+                output.writeString(defaultCustomerEvent.eventId());
+            }
+            case CustomerRequestedTable customerRequestedTable -> {
+                output.writeByte(CUSTOMER_REQUESTED_TABLE);
+                output.writeString(customerRequestedTable.customerId());
+                output.writeString(customerRequestedTable.tableId());
+                output.writeInstant(customerRequestedTable.timestamp());
+                output.writeString(customerRequestedTable.eventId());
+            }
+            case CustomerPaidForTable customerPaidForTable -> {
+                output.writeByte(CUSTOMER_PAID_FOR_TABLE);
+                output.writeString(customerPaidForTable.customerId());
+                output.writeString(customerPaidForTable.tableId());
+                output.writeInstant(customerPaidForTable.timestamp());
+                output.writeString(customerPaidForTable.eventId());
+            }
+            case ReservationTimedOut reservationTimedOut -> {
+                output.writeByte(RESERVATION_TIMED_OUT);
+                output.writeString(reservationTimedOut.customerId());
+                output.writeString(reservationTimedOut.tableId());
+                output.writeInstant(reservationTimedOut.paymentDeadline());
+            }
+            case TableGranted tableGranted -> {
+                output.writeByte(TABLE_GRANTED);
+                output.writeString(tableGranted.customerId());
+                output.writeString(tableGranted.tableId());
+                output.writeInstant(tableGranted.timestamp());
+            }
+            case TableRejected tableRejected -> {
+                output.writeByte(TABLE_REJECTED);
+                output.writeString(tableRejected.customerId());
+                output.writeString(tableRejected.tableId());
+                output.writeInstant(tableRejected.timestamp());
+            }
+            case ReservationConfirmed reservationConfirmed -> {
+                output.writeByte(RESERVATION_CONFIRMED);
+                output.writeString(reservationConfirmed.customerId());
+                output.writeString(reservationConfirmed.tableId());
+                output.writeInstant(reservationConfirmed.timestamp());
+            }
+            case ReservationRejected reservationRejected -> {
+                output.writeByte(RESERVATION_REJECTED);
+                output.writeString(reservationRejected.customerId());
+                output.writeString(reservationRejected.tableId());
+                output.writeInstant(reservationRejected.timestamp());
+            }
+            case PaymentAccepted paymentAccepted -> {
+                output.writeByte(PAYMENT_ACCEPTED);
+                output.writeString(paymentAccepted.customerId());
+                output.writeString(paymentAccepted.tableId());
+                output.writeInstant(paymentAccepted.timestamp());
+            }
+            case PaymentRefused paymentRefused -> {
+                output.writeByte(PAYMENT_REFUSED);
+                output.writeString(paymentRefused.customerId());
+                output.writeString(paymentRefused.tableId());
+                output.writeInstant(paymentRefused.timestamp());
+            }
+        }
+    }
+
+    @Override
+    protected Event read(int version, BinaryCodec.Input input) {
+        var tag = input.readByte();
+        return switch (tag) {
+            case DEFAULT_EVENT -> new DefaultEvent();
+            case DEFAULT_CUSTOMER_EVENT -> new DefaultCustomerEvent(input.readString(), readTimestamp(version, input), readEventId(version, input));
+            case CUSTOMER_REQUESTED_TABLE -> new CustomerRequestedTable(input.readString(), input.readString(), readTimestamp(version, input), readEventId(version, input));
+            case CUSTOMER_PAID_FOR_TABLE -> new CustomerPaidForTable(input.readString(), input.readString(), readTimestamp(version, input), readEventId(version, input));
+            case RESERVATION_TIMED_OUT -> new ReservationTimedOut(input.readString(), input.readString(), input.readInstant());
+            case TABLE_GRANTED -> new TableGranted(input.readString(), input.readString(), input.readInstant());
+            case TABLE_REJECTED -> new TableRejected(input.readString(), input.readString(), input.readInstant());
+            case RESERVATION_CONFIRMED -> new ReservationConfirmed(input.readString(), input.readString(), input.readInstant());
+            case RESERVATION_REJECTED -> new ReservationRejected(input.readString(), input.readString(), input.readInstant());
+            case PAYMENT_ACCEPTED -> new PaymentAccepted(input.readString(), input.readString(), input.readInstant());
+            case PAYMENT_REFUSED -> new PaymentRefused(input.readString(), input.readString(), input.readInstant());
+            // written by a newer instance, its components are left unread
+            default -> new DefaultEvent();
+        };
+    }
+
+    private static Instant readTimestamp(int version, BinaryCodec.Input input) {
+        return version >= 2 ? input.readInstant() : null;
+    }
+
+    private static String readEventId(int version, BinaryCodec.Input input) {
+        return version >= 3 ? input.readString() : null;
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import io.github.bmd007.reactiveland.event.Event;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.streams.processor.TimestampExtractor;
+
+/**
+ * Drives windows by event time instead of by the timestamp the producer happened to put on the kafka record, so a
+ * producer with a skewed clock can't move stream time forward and close windows early.
+ * <li>events that know when they happened use {@link Event#timestamp()}
+ * <li>otherwise (legacy records, tombstones) the record timestamp is used, or the partition time if that is invalid
+ */
+public class EventTimestampExtractor implements TimestampExtractor {
+
+    @Override
+    public long extract(ConsumerRecord<Object, Object> record, long partitionTime) {
+        if (record.value() instanceof Event event && event.timestamp() != null) {
+            return event.timestamp().toEpochMilli();
+        }
+        return record.timestamp() >= 0 ? record.timestamp() : partitionTime;
+    }
+}
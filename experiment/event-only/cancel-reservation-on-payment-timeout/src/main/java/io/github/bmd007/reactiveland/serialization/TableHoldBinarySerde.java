@@ -0,0 +1,30 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import io.github.bmd007.reactiveland.domain.TableHold;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Compact binary form of {@link TableHold}, used as the value format of the table inventory store.
+ * <li>version 1: table id, customer id, paid (one byte, 1 if paid), held until
+ */
+public class TableHoldBinarySerde extends VersionedBinarySerde<TableHold> {
+
+    static final int SCHEMA_VERSION = 1;
+
+    public TableHoldBinarySerde(Deserializer<TableHold> legacyJsonDeserializer) {
+        super(SCHEMA_VERSION, legacyJsonDeserializer);
+    }
+
+    @Override
+    protected void write(TableHold tableHold, BinaryCodec.Output output) {
+        output.writeString(tableHold.tableId());
+        output.writeString(tableHold.customerId());
+        output.writeByte(tableHold.paid() ? 1 : 0);
+        output.writeInstant(tableHold.heldUntil());
+    }
+
+    @Override
+    protected TableHold read(int version, BinaryCodec.Input input) {
+        return new TableHold(input.readString(), input.readString(), input.readByte() == 1, input.readInstant());
+    }
+}
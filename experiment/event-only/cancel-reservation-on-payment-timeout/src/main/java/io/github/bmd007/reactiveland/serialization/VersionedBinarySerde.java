@@ -0,0 +1,87 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Base of the compact binary serdes. Every record starts with one schema version byte, followed by the body written
+ * by the subclass for that version. Versions are kept below 0x20, so they never collide with the first byte of a json
+ * document: records that do not start with a known version are handed to the json deserializer the topic used before.
+ * <br>
+ * A json document may also start with whitespace, so the bytes {@link Character#isWhitespace(int)} accepts (9 to 13
+ * and 28 to 31) are reserved: they are never a version, the next version after 8 is 14.
+ */
+public abstract class VersionedBinarySerde<T> implements Serde<T>, Serializer<T>, Deserializer<T> {
+
+    private static final int MAX_VERSION = 0x1F;
+
+    private final int currentVersion;
+    private final Deserializer<T> legacyJsonDeserializer;
+
+    protected VersionedBinarySerde(int currentVersion, Deserializer<T> legacyJsonDeserializer) {
+        if (currentVersion < 1 || currentVersion > MAX_VERSION) {
+            throw new IllegalArgumentException("schema version must be between 1 and " + MAX_VERSION);
+        }
+        if (isReserved(currentVersion)) {
+            throw new IllegalArgumentException("schema version %d is reserved for json whitespace".formatted(currentVersion));
+        }
+        this.currentVersion = currentVersion;
+        this.legacyJsonDeserializer = legacyJsonDeserializer;
+    }
+
+    protected abstract void write(T data, BinaryCodec.Output output);
+
+    protected abstract T read(int version, BinaryCodec.Input input);
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        if (data == null) {
+            return null;
+        }
+        var output = new BinaryCodec.Output(64);
+        output.writeByte(currentVersion);
+        write(data, output);
+        return output.toByteArray();
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        var version = data[0] & 0xFF;
+        if (version > MAX_VERSION || isReserved(version)) {
+            return legacyJsonDeserializer.deserialize(topic, data);
+        }
+        if (version == 0 || version > currentVersion) {
+            throw new SerializationException("unsupported compact binary schema version " + version);
+        }
+        return read(version, new BinaryCodec.Input(data, 1));
+    }
+
+    private static boolean isReserved(int version) {
+        return Character.isWhitespace(version);
+    }
+
+    @Override
+    public Serializer<T> serializer() {
+        return this;
+    }
+
+    @Override
+    public Deserializer<T> deserializer() {
+        return this;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
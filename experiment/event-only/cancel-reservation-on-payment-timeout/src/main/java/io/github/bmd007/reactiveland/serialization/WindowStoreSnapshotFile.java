@@ -0,0 +1,153 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * File format of the snapshots of window stores, a sequence of length prefixed frames in the compact binary format:
+ * <li>a header frame: magic, format version, changelog topic and partition, the offset of the last changelog record
+ * the snapshot covers and the position (offsets of the input topics) of the store
+ * <li>one frame per entry: key, window start, timestamp and value (as serialized by the value serde of the store)
+ * <li>an empty frame marking the end, so truncated files are detected
+ * Files are written next to their final path and moved in place once complete.
+ */
+public final class WindowStoreSnapshotFile {
+
+    private static final String MAGIC = "reactive-land-window-store-snapshot";
+    private static final int FORMAT_VERSION = 1;
+
+    private WindowStoreSnapshotFile() {
+    }
+
+    public record Header(String changelogTopic, int partition, long changelogOffset, Map<String, Map<Integer, Long>> position) {
+    }
+
+    public record Entry(String key, long windowStart, long timestamp, byte[] value) {
+    }
+
+    public static Path path(Path directory, String storeName, int partition) {
+        return directory.resolve(storeName + "-" + partition + ".snapshot");
+    }
+
+    /**
+     * @return number of entries written
+     */
+    public static long write(Path file, Header header, Iterator<Entry> entries) throws IOException {
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (var outputStream = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+            var frame = new BinaryCodec.Output(256);
+            frame.writeString(MAGIC);
+            frame.writeVarLong(FORMAT_VERSION);
+            frame.writeString(header.changelogTopic());
+            frame.writeVarLong(header.partition());
+            frame.writeVarLong(header.changelogOffset());
+            frame.writeVarLong(header.position().size());
+            header.position().forEach((topic, offsets) -> {
+                frame.writeString(topic);
+                frame.writeVarLong(offsets.size());
+                offsets.forEach((partition, offset) -> {
+                    frame.writeVarLong(partition);
+                    frame.writeVarLong(offset);
+                });
+            });
+            writeFrame(outputStream, frame);
+            while (entries.hasNext()) {
+                var entry = entries.next();
+                frame.reset();
+                frame.writeString(entry.key());
+                frame.writeSignedVarLong(entry.windowStart());
+                frame.writeSignedVarLong(entry.timestamp());
+                frame.writeBytes(entry.value());
+                writeFrame(outputStream, frame);
+                count++;
+            }
+            frame.reset();
+            writeFrame(outputStream, frame);
+        }
+        Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        return count;
+    }
+
+    public static Header readHeader(Path file) throws IOException {
+        try (var inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            return readHeader(inputStream);
+        }
+    }
+
+    /**
+     * @return the header, after all the entries were handed to the consumer
+     */
+    public static Header read(Path file, Consumer<Entry> entryConsumer) throws IOException {
+        try (var inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            var header = readHeader(inputStream);
+            for (var frame = readFrame(inputStream); frame.length > 0; frame = readFrame(inputStream)) {
+                var input = new BinaryCodec.Input(frame, 0);
+                entryConsumer.accept(new Entry(input.readString(), input.readSignedVarLong(), input.readSignedVarLong(), input.readBytes()));
+            }
+            return header;
+        }
+    }
+
+    private static Header readHeader(InputStream inputStream) throws IOException {
+        var input = new BinaryCodec.Input(readFrame(inputStream), 0);
+        if (!MAGIC.equals(input.readString())) {
+            throw new SerializationException("not a window store snapshot");
+        }
+        var version = input.readVarInt();
+        if (version != FORMAT_VERSION) {
+            throw new SerializationException("unsupported window store snapshot version " + version);
+        }
+        var changelogTopic = input.readString();
+        var partition = input.readVarInt();
+        var changelogOffset = input.readVarLong();
+        var position = new HashMap<String, Map<Integer, Long>>();
+        for (int topics = input.readVarInt(); topics > 0; topics--) {
+            var offsets = position.computeIfAbsent(input.readString(), ignored -> new HashMap<>());
+            for (int partitions = input.readVarInt(); partitions > 0; partitions--) {
+                offsets.put(input.readVarInt(), input.readVarLong());
+            }
+        }
+        return new Header(changelogTopic, partition, changelogOffset, position);
+    }
+
+    private static void writeFrame(OutputStream outputStream, BinaryCodec.Output frame) throws IOException {
+        var length = frame.size();
+        while ((length & ~0x7F) != 0) {
+            outputStream.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        outputStream.write(length);
+        frame.writeTo(outputStream);
+    }
+
+    private static byte[] readFrame(InputStream inputStream) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = inputStream.read();
+            if (b < 0) {
+                throw new EOFException("window store snapshot is truncated");
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return inputStream.readNBytes(length);
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.bmd007.reactiveland.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque (to clients) position of a paginated scan over a window store spread over instances:
+ * the instance (host:port) being scanned and the last returned entry, ordered by window start then key (in the byte
+ * order of the store, which for utf8 strings is code point order).
+ * A token without position points at the start of that instance's store. The instance comes from the client, so it is
+ * only trusted once found among the instances hosting the store.
+ * Tokens are positions, not snapshots: entries written or moved by a rebalance after a page was returned may be
+ * skipped or seen twice.
+ */
+record ContinuationToken(String instance, Long windowStart, String key) {
+
+    private static final String SEPARATOR = "|";
+
+    static ContinuationToken startOf(String instance) {
+        return new ContinuationToken(instance, null, null);
+    }
+
+    static ContinuationToken at(String instance, long windowStart, String key) {
+        return new ContinuationToken(instance, windowStart, key);
+    }
+
+    boolean hasPosition() {
+        return windowStart != null;
+    }
+
+    String host() {
+        return instance.substring(0, instance.lastIndexOf(':'));
+    }
+
+    int port() {
+        return Integer.parseInt(instance.substring(instance.lastIndexOf(':') + 1));
+    }
+
+    String encode() {
+        var plain = hasPosition() ? instance + SEPARATOR + windowStart + SEPARATOR + key : instance;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ContinuationToken decode(String token) {
+        try {
+            var plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var parts = plain.split("\\" + SEPARATOR, 3);
+            var instance = parts[0];
+            if (!instance.contains(":")) {
+                throw new IllegalArgumentException("no instance in token");
+            }
+            if (parts.length == 1) {
+                return startOf(instance);
+            }
+            return at(instance, Long.parseLong(parts[1]), parts[2]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid continuation token", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.bmd007.reactiveland.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the answers of other instances for single key lookups, so hot keys don't cost an inter instance call each time.
+ * <li>bounded by the (approximate) weight of the entries, not their count
+ * <li>entries expire after the retention of the view, since the view itself forgets them by then
+ * <li>kept fresh by the changelog of the store: entries are replaced or dropped as soon as their key changes, keys that
+ * are not cached are ignored
+ * <li>entries are versioned by the window start of their state, a change of an older window than the cached one is
+ * ignored; an answer of another instance doesn't tell its window, so only a change of the latest window replaces it,
+ * any other change drops it
+ * <li>an answer of another instance is only cached if the key didn't change while it was on its way, and never
+ * overwrites an entry that the changelog put meanwhile
+ * <li>hits, misses and evictions are published as cache.* metrics tagged with the name of the cache
+ */
+public class NearCache<M> {
+
+    private static final long UNKNOWN_VERSION = Long.MIN_VALUE;
+
+    private final Cache<String, Versioned<M>> cache;
+    // the loads in flight, by key; a change of the key removes its load so that the answer is not cached
+    private final ConcurrentMap<String, Object> loads = new ConcurrentHashMap<>();
+
+    private record Versioned<M>(M value, long version) {
+    }
+
+    public NearCache(String name, long maximumWeight, Duration expireAfterWrite, Weigher<String, M> weigher, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String id, Versioned<M> versioned) -> weigher.weigh(id, versioned.value()))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    public Optional<M> get(String id) {
+        return Optional.ofNullable(cache.getIfPresent(id)).map(Versioned::value);
+    }
+
+    /**
+     * @param remote the lookup of the id on the instance that owns it, its answer is cached
+     */
+    public Mono<M> load(String id, Mono<M> remote) {
+        return Mono.defer(() -> {
+            var load = new Object();
+            loads.put(id, load);
+            return remote
+                    .doOnNext(value -> {
+                        if (loads.remove(id, load)) {
+                            cache.asMap().putIfAbsent(id, new Versioned<>(value, UNKNOWN_VERSION));
+                        }
+                    })
+                    .doFinally(ignored -> loads.remove(id, load));
+        });
+    }
+
+    /**
+     * @param value    the new state of the id, null when it got deleted
+     * @param version  the window start of the state
+     * @param isLatest whether the state is of the latest window, the one lookups read
+     */
+    public void refreshIfPresent(String id, M value, long version, boolean isLatest) {
+        loads.remove(id);
+        cache.asMap().computeIfPresent(id, (ignored, cached) -> {
+            if (cached.version() == UNKNOWN_VERSION && !isLatest) {
+                return null;
+            }
+            if (version < cached.version()) {
+                return cached;
+            }
+            return value == null ? null : new Versioned<>(value, version);
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.bmd007.reactiveland.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bmd007.reactiveland.configuration.KafkaEventProducer;
+import io.github.bmd007.reactiveland.configuration.Topics;
+import io.github.bmd007.reactiveland.dto.ReservationCommandAckDto;
+import io.github.bmd007.reactiveland.dto.ReservationCommandDto;
+import io.github.bmd007.reactiveland.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Write path of the reservation commands: validates them and turns them into customer events.
+ * Streams are piped into kafka with at most max-concurrency unacknowledged commands, so a slow broker slows down
+ * reading the request body instead of piling up commands in memory.
+ */
+@Service
+public class ReservationCommandService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReservationCommandService.class);
+
+    private final KafkaEventProducer kafkaEventProducer;
+    private final ObjectMapper objectMapper;
+    private final int maxConcurrency;
+
+    public ReservationCommandService(KafkaEventProducer kafkaEventProducer,
+                                     ObjectMapper objectMapper,
+                                     @Value("${reservation.commands.max-concurrency}") int maxConcurrency) {
+        this.kafkaEventProducer = kafkaEventProducer;
+        this.objectMapper = objectMapper;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Mono<ReservationCommandAckDto> submit(ReservationCommandDto command) {
+        var validationError = validate(command);
+        if (validationError != null) {
+            return Mono.error(new IllegalArgumentException(validationError));
+        }
+        return kafkaEventProducer.produceEvent(toEvent(command), Topics.CUSTOMER_EVENTS_TOPIC)
+                .map(recordMetadata -> ReservationCommandAckDto.accepted(command, recordMetadata));
+    }
+
+    /**
+     * Commands in json, one per line, answered with one acknowledgement per command in the order of the lines. A
+     * command that is invalid or could not be produced, or a line that is not a command, gets a rejected
+     * acknowledgement (without command for the latter) instead of failing the whole stream. Blank lines are skipped.
+     */
+    public Flux<ReservationCommandAckDto> submitAllLines(Flux<String> lines) {
+        return lines
+                .filter(line -> !line.isBlank())
+                .flatMapSequential(line -> {
+                    try {
+                        return submitOrReject(objectMapper.readValue(line, ReservationCommandDto.class));
+                    } catch (JsonProcessingException exception) {
+                        LOGGER.warn("rejected malformed command {}: {}", line, exception.getOriginalMessage());
+                        return Mono.just(ReservationCommandAckDto.rejected(null, "malformed command: " + exception.getOriginalMessage()));
+                    }
+                }, maxConcurrency);
+    }
+
+    private Mono<ReservationCommandAckDto> submitOrReject(ReservationCommandDto command) {
+        return submit(command)
+                .onErrorResume(throwable -> {
+                    LOGGER.warn("rejected command {}: {}", command, throwable.getMessage());
+                    return Mono.just(ReservationCommandAckDto.rejected(command, throwable.getMessage()));
+                });
+    }
+
+    private static String validate(ReservationCommandDto command) {
+        if (command.type() == null) {
+            return "type is required";
+        }
+        if (command.customerId() == null || command.customerId().isBlank()) {
+            return "customerId is required";
+        }
+        if (command.tableId() == null || command.tableId().isBlank()) {
+            return "tableId is required";
+        }
+        if (command.commandId() != null && command.commandId().isBlank()) {
+            return "commandId can not be blank";
+        }
+        return null;
+    }
+
+    private static Event toEvent(ReservationCommandDto command) {
+        var occurredAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        var eventId = command.commandId() == null ? UUID.randomUUID().toString() : command.commandId();
+        return switch (command.type()) {
+            case REQUEST_TABLE -> new Event.CustomerEvent.CustomerRequestedTable(command.customerId(), command.tableId(), occurredAt, eventId);
+            case PAY_FOR_TABLE -> new Event.CustomerEvent.CustomerPaidForTable(command.customerId(), command.tableId(), occurredAt, eventId);
+        };
+    }
+}
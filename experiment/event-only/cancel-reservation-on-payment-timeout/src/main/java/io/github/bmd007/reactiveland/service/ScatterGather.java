@@ -0,0 +1,81 @@
+package io.github.bmd007.reactiveland.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Fans a query out to the instances that own the partitions of a store and gathers whatever came back in time.
+ * <li>every shard (the partitions of one instance) gets its own deadline, so the slowest instance only costs its own
+ * partitions instead of the whole answer
+ * <li>if a shard has a hedge (the same partitions read from standby replicas), the hedge is fired after the hedge delay
+ * unless the primary answered before; the first successful answer wins
+ * <li>a shard that neither the primary nor the hedge answered in time is reported as missing partitions, and so is a
+ * shard that answered with an error: the client only turns a 404 into an (empty) answer, a 400 is a failed shard
+ */
+public class ScatterGather {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScatterGather.class);
+
+    private final Duration perInstanceTimeout;
+    private final Duration hedgeDelay;
+    private final boolean hedging;
+    private final int maxConcurrency;
+
+    public ScatterGather(Duration perInstanceTimeout, Duration hedgeDelay, boolean hedging, int maxConcurrency) {
+        this.perInstanceTimeout = perInstanceTimeout;
+        this.hedgeDelay = hedgeDelay;
+        this.hedging = hedging;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @param instance   description of the primary, for logging
+     * @param partitions the partitions the shard answers for
+     * @param primary    the query against the active instance
+     * @param hedge      the same query against standby replicas, or null if they don't cover all the partitions
+     */
+    public record Shard<T>(String instance, Set<Integer> partitions, Mono<List<T>> primary, Mono<List<T>> hedge) {
+    }
+
+    public record Gathered<T>(List<T> items, SortedSet<Integer> missingPartitions) {
+
+        public boolean isPartial() {
+            return !missingPartitions.isEmpty();
+        }
+    }
+
+    public <T> Mono<Gathered<T>> gather(List<Shard<T>> shards) {
+        return Flux.fromIterable(shards)
+                .flatMap(shard -> answer(shard)
+                                .map(items -> new Gathered<T>(items, new TreeSet<>()))
+                                .onErrorResume(throwable -> {
+                                    LOGGER.warn("no answer from {} for partitions {} in time: {}", shard.instance(), shard.partitions(), throwable.toString());
+                                    return Mono.just(new Gathered<>(List.of(), new TreeSet<>(shard.partitions())));
+                                }),
+                        maxConcurrency)
+                .collect(() -> new Gathered<T>(new ArrayList<>(), new TreeSet<>()), (all, one) -> {
+                    all.items().addAll(one.items());
+                    all.missingPartitions().addAll(one.missingPartitions());
+                });
+    }
+
+    private <T> Mono<List<T>> answer(Shard<T> shard) {
+        var primary = shard.primary().timeout(perInstanceTimeout);
+        if (!hedging || shard.hedge() == null) {
+            return primary;
+        }
+        var hedge = Mono.delay(hedgeDelay)
+                .doOnNext(ignored -> LOGGER.debug("hedging {} for partitions {}", shard.instance(), shard.partitions()))
+                .then(shard.hedge().timeout(perInstanceTimeout));
+        return Mono.firstWithValue(primary, hedge);
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.bmd007.reactiveland.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * The store couldn't be queried in time (typically during a rebalance). Comes with a Retry-After hint for the caller.
+ */
+public class StoreNotReadyException extends ResponseStatusException {
+
+    private final Duration retryAfter;
+
+    public StoreNotReadyException(String storeName, Duration retryAfter) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, String.format("store %s is not queryable at the moment", storeName));
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        var headers = new HttpHeaders();
+        headers.putAll(super.getHeaders());
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return headers;
+    }
+}
@@ -0,0 +1,208 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.github.bmd007.reactiveland.configuration.KafkaStreamsStateListeners;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.LagInfo;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.query.FailureReason;
+import org.apache.kafka.streams.query.Position;
+import org.apache.kafka.streams.query.PositionBound;
+import org.apache.kafka.streams.query.StateQueryRequest;
+import org.apache.kafka.streams.query.WindowKeyQuery;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.apache.kafka.streams.KafkaStreams.State.REBALANCING;
+import static org.apache.kafka.streams.KafkaStreams.State.RUNNING;
+
+/**
+ * Hands out the handle of a window store without ever blocking the caller.
+ * <li>the handle is cached once the store is queryable, and dropped when kafka streams stops running or a read of it
+ * fails because a rebalance moved partitions away, see {@link #readFailure(Throwable)}
+ * <li>while there is no handle, callers wait (without a thread) for a state change, or the next retry tick, that makes
+ * the store queryable
+ * <li>callers that waited longer than the timeout get a {@link StoreNotReadyException}, which means 503 + Retry-After
+ * <li>lags of the local replicas are fetched (it's a call to the brokers) at most once per lag refresh interval
+ * <li>reads bound to a position (interactive queries v2) are retried with backoff until the store caught up with it
+ */
+public class StoreReadiness<I> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreReadiness.class);
+
+    private static final Set<KafkaStreams.State> QUERYABLE_STATES = Set.of(RUNNING, REBALANCING);
+    private static final Set<FailureReason> RETRYABLE_FAILURES = Set.of(FailureReason.NOT_UP_TO_BOUND, FailureReason.NOT_PRESENT, FailureReason.NOT_ACTIVE);
+    private static final Duration MIN_POSITION_BACKOFF = Duration.ofMillis(5);
+
+    private final StreamsBuilderFactoryBean streams;
+    private final String storeName;
+    private final Duration timeout;
+    private final Duration retryInterval;
+    private final Duration positionTimeout;
+    private final Sinks.Many<KafkaStreams.State> states = Sinks.many().replay().latest();
+    private final Mono<Map<String, Map<Integer, LagInfo>>> localLags;
+    private volatile ReadOnlyWindowStore<String, I> store;
+
+    public StoreReadiness(StreamsBuilderFactoryBean streams,
+                          KafkaStreamsStateListeners stateListeners,
+                          String storeName,
+                          Duration timeout,
+                          Duration retryInterval,
+                          Duration lagRefreshInterval,
+                          Duration positionTimeout) {
+        this.streams = streams;
+        this.storeName = storeName;
+        this.timeout = timeout;
+        this.retryInterval = retryInterval;
+        this.positionTimeout = positionTimeout;
+        this.localLags = Mono.fromCallable(() -> Objects.requireNonNull(streams.getKafkaStreams()).allLocalStorePartitionLags())
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache(lagRefreshInterval);
+        stateListeners.register((newState, oldState) -> {
+            if (!QUERYABLE_STATES.contains(newState)) {
+                store = null;
+            }
+            states.tryEmitNext(newState);
+        });
+    }
+
+    public Mono<ReadOnlyWindowStore<String, I>> store() {
+        var cached = store;
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Flux.merge(states.asFlux(), Flux.interval(Duration.ZERO, retryInterval))
+                .concatMap(ignored -> tryResolve())
+                .next()
+                .timeout(timeout, Mono.error(this::notReady));
+    }
+
+    /**
+     * Only the given partition, once it is queryable here as an active replica.
+     */
+    public Mono<ReadOnlyWindowStore<String, I>> store(int partition) {
+        return store().flatMap(ignored -> Mono.fromCallable(() -> Objects.requireNonNull(streams.getKafkaStreams())
+                        .store(StoreQueryParameters.fromNameAndType(storeName, QueryableStoreTypes.<String, I>windowStore())
+                                .withPartition(partition)))
+                .onErrorMap(InvalidStateStoreException.class, e -> notReady()));
+    }
+
+    /**
+     * Only the given partition, also when this instance has it as a standby or is still restoring it.
+     */
+    public Mono<ReadOnlyWindowStore<String, I>> staleStore(int partition) {
+        return Mono.fromCallable(() -> Objects.requireNonNull(streams.getKafkaStreams())
+                        .store(StoreQueryParameters.fromNameAndType(storeName, QueryableStoreTypes.<String, I>windowStore())
+                                .withPartition(partition)
+                                .enableStaleStores()))
+                .onErrorMap(InvalidStateStoreException.class, e -> notReady());
+    }
+
+    /**
+     * How many records the local replica (active or standby) of the partition is behind the changelog, empty if this
+     * instance has no replica of it.
+     */
+    public Mono<Long> localOffsetLag(int partition) {
+        return localLags.mapNotNull(lags -> lags.getOrDefault(storeName, Map.of()).get(partition))
+                .map(LagInfo::offsetLag);
+    }
+
+    /**
+     * The value of the latest window of the key that starts in [from, to], read once the local replica of the partition
+     * has processed the given offset of the topic, so that it reflects the write at that offset and all before it.
+     */
+    public Mono<I> fetchLatest(String key, Instant from, Instant to, String topic, int partition, long offset) {
+        var request = StateQueryRequest.inStore(storeName)
+                .withQuery(WindowKeyQuery.<String, ValueAndTimestamp<I>>withKeyAndWindowStartRange(key, from, to))
+                .withPartitions(Set.of(partition))
+                .withPositionBound(PositionBound.at(Position.emptyPosition().withComponent(topic, partition, offset)));
+        return Mono.fromCallable(() -> fetchLatest(request, partition))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_POSITION_BACKOFF)
+                        .maxBackoff(retryInterval)
+                        .filter(NotCaughtUpException.class::isInstance))
+                .timeout(positionTimeout, Mono.error(this::notReady))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    // the stores of the DSL keep the timestamp next to the value
+    private Optional<I> fetchLatest(StateQueryRequest<WindowStoreIterator<ValueAndTimestamp<I>>> request, int partition) {
+        var kafkaStreams = streams.getKafkaStreams();
+        if (kafkaStreams == null || !QUERYABLE_STATES.contains(kafkaStreams.state())) {
+            throw new NotCaughtUpException("kafka streams is " + (kafkaStreams == null ? "not created" : kafkaStreams.state()));
+        }
+        var result = kafkaStreams.query(request).getPartitionResults().get(partition);
+        if (result == null) {
+            throw new NotCaughtUpException("no result for partition " + partition);
+        }
+        if (result.isFailure()) {
+            if (RETRYABLE_FAILURES.contains(result.getFailureReason())) {
+                throw new NotCaughtUpException(result.getFailureMessage());
+            }
+            throw new IllegalStateException(String.format("querying %s failed: %s %s", storeName, result.getFailureReason(), result.getFailureMessage()));
+        }
+        I latest = null;
+        try (var iterator = result.getResult()) {
+            while (iterator.hasNext()) {
+                latest = iterator.next().value.value();
+            }
+        }
+        return Optional.ofNullable(latest);
+    }
+
+    /**
+     * To map the failures of reads of a handle {@link #store()} gave: a rebalance that moved partitions away from this
+     * instance since fails them with an {@link InvalidStateStoreException}, which drops the cached handle and is
+     * {@link #notReady()} like a store that is not queryable yet.
+     */
+    public Throwable readFailure(Throwable failure) {
+        if (failure instanceof InvalidStateStoreException) {
+            LOGGER.debug("store {} stopped being queryable: {}", storeName, failure.getMessage());
+            store = null;
+            return notReady();
+        }
+        return failure;
+    }
+
+    public StoreNotReadyException notReady() {
+        return new StoreNotReadyException(storeName, retryInterval);
+    }
+
+    private Mono<ReadOnlyWindowStore<String, I>> tryResolve() {
+        var kafkaStreams = streams.getKafkaStreams();
+        if (kafkaStreams == null || !QUERYABLE_STATES.contains(kafkaStreams.state())) {
+            return Mono.empty();
+        }
+        try {
+            var resolved = kafkaStreams.store(StoreQueryParameters.fromNameAndType(storeName, QueryableStoreTypes.<String, I>windowStore()));
+            store = resolved;
+            return Mono.just(resolved);
+        } catch (InvalidStateStoreException e) {
+            LOGGER.debug("store {} is not queryable yet: {}", storeName, e.getMessage());
+            return Mono.empty();
+        }
+    }
+
+    private static final class NotCaughtUpException extends RuntimeException {
+
+        private NotCaughtUpException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
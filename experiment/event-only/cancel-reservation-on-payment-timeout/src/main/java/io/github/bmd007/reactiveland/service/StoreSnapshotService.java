@@ -0,0 +1,148 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.configuration.TopicCreator;
+import io.github.bmd007.reactiveland.configuration.Topics;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.dto.StoreSnapshotDto;
+import io.github.bmd007.reactiveland.serialization.WindowStoreSnapshotFile;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.query.Position;
+import org.apache.kafka.streams.query.StateQueryRequest;
+import org.apache.kafka.streams.query.WindowRangeQuery;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.RESERVATION_AGGREGATE_BINARY_SERDE;
+
+/**
+ * Writes a snapshot of every local replica (active or standby) of the reservation store, to be loaded by new instances
+ * at startup (see SnapshotLoadingWindowStore) instead of restoring the whole changelog:
+ * <li>the changelog offset of a replica is read before its content, so the content is at least as recent as the
+ * offset and restoring from there on can only replay writes the snapshot already has
+ * <li>under exactly once, the content of an active replica can be ahead of the committed changelog (writes of a
+ * transaction that may still abort), so only standby replicas, which only restore committed records, are snapshotted
+ */
+@Service
+public class StoreSnapshotService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreSnapshotService.class);
+
+    private static final String STORE_NAME = StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE;
+
+    private final StreamsBuilderFactoryBean streams;
+    private final HostInfo localHost;
+    private final String applicationName;
+    private final Path snapshotDirectory;
+
+    public StoreSnapshotService(StreamsBuilderFactoryBean streams,
+                                @Value("${kafka.streams.server.config.app-ip}") String ip,
+                                @Value("${kafka.streams.server.config.app-port}") int port,
+                                @Value("${spring.application.name}") String applicationName,
+                                @Value("${kafka.streams.snapshot.dir}") Path snapshotDirectory) {
+        this.streams = streams;
+        this.localHost = new HostInfo(ip, port);
+        this.applicationName = applicationName;
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    public List<StoreSnapshotDto> export() throws IOException {
+        var kafkaStreams = streams.getKafkaStreams();
+        if (kafkaStreams == null || kafkaStreams.state() != KafkaStreams.State.RUNNING) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "kafka streams is not running");
+        }
+        var standbyPartitions = kafkaStreams.streamsMetadataForStore(STORE_NAME).stream()
+                .filter(metadata -> metadata.hostInfo().equals(localHost))
+                .flatMap(metadata -> metadata.standbyTopicPartitions().stream())
+                .filter(topicPartition -> topicPartition.topic().equals(Topics.CUSTOMER_EVENTS_TOPIC))
+                .map(TopicPartition::partition)
+                .collect(Collectors.toSet());
+        var exactlyOnce = StreamsConfig.EXACTLY_ONCE_V2.equals(
+                Objects.requireNonNull(streams.getStreamsConfiguration()).getProperty(StreamsConfig.PROCESSING_GUARANTEE_CONFIG));
+        var lags = new TreeMap<>(kafkaStreams.allLocalStorePartitionLags().getOrDefault(STORE_NAME, Map.of()));
+        Files.createDirectories(snapshotDirectory);
+        var snapshots = new ArrayList<StoreSnapshotDto>();
+        for (var lag : lags.entrySet()) {
+            var partition = lag.getKey();
+            // read before the content: a standby reports the offset of the last record it restored, a running active
+            // replica the end offset of the changelog; 0 is also what a replica that restored nothing reports
+            var standby = standbyPartitions.contains(partition);
+            if (exactlyOnce && !standby) {
+                LOGGER.info("not snapshotting active partition {} of {}: under exactly once it can hold uncommitted writes", partition, STORE_NAME);
+                continue;
+            }
+            var currentOffsetPosition = lag.getValue().currentOffsetPosition();
+            var changelogOffset = standby ? currentOffsetPosition : currentOffsetPosition - 1;
+            if (currentOffsetPosition <= 0) {
+                LOGGER.info("nothing to snapshot yet for partition {} of {}", partition, STORE_NAME);
+                continue;
+            }
+            var request = StateQueryRequest.inStore(STORE_NAME)
+                    .withQuery(WindowRangeQuery.<String, ValueAndTimestamp<CustomerReservations>>withWindowStartRange(Instant.EPOCH, Instant.ofEpochMilli(Long.MAX_VALUE)))
+                    .withPartitions(Set.of(partition));
+            var result = kafkaStreams.query(request).getPartitionResults().get(partition);
+            if (result == null || result.isFailure()) {
+                LOGGER.warn("could not snapshot partition {} of {}: {}", partition, STORE_NAME, result == null ? "no result" : result.getFailureMessage());
+                continue;
+            }
+            var file = WindowStoreSnapshotFile.path(snapshotDirectory, STORE_NAME, partition);
+            var header = new WindowStoreSnapshotFile.Header(TopicCreator.stateStoreTopicName(STORE_NAME, applicationName),
+                    partition, changelogOffset, toMap(result.getPosition()));
+            long entries;
+            try (var iterator = result.getResult()) {
+                entries = WindowStoreSnapshotFile.write(file, header, toEntries(iterator));
+            }
+            LOGGER.info("wrote snapshot of partition {} of {} at changelog offset {} with {} entries to {}", partition, STORE_NAME, changelogOffset, entries, file);
+            snapshots.add(new StoreSnapshotDto(STORE_NAME, partition, standby, changelogOffset, entries, file.toString()));
+        }
+        return snapshots;
+    }
+
+    private static Iterator<WindowStoreSnapshotFile.Entry> toEntries(KeyValueIterator<Windowed<String>, ValueAndTimestamp<CustomerReservations>> iterator) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public WindowStoreSnapshotFile.Entry next() {
+                KeyValue<Windowed<String>, ValueAndTimestamp<CustomerReservations>> next = iterator.next();
+                return new WindowStoreSnapshotFile.Entry(next.key.key(), next.key.window().start(), next.value.timestamp(),
+                        RESERVATION_AGGREGATE_BINARY_SERDE.serialize(null, next.value.value()));
+            }
+        };
+    }
+
+    private static Map<String, Map<Integer, Long>> toMap(Position position) {
+        var map = new HashMap<String, Map<Integer, Long>>();
+        position.getTopics().forEach(topic -> map.put(topic, position.getPartitionPositions(topic)));
+        return map;
+    }
+}
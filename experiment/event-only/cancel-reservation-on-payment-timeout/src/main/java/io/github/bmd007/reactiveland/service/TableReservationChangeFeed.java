@@ -0,0 +1,116 @@
+package io.github.bmd007.reactiveland.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.github.bmd007.reactiveland.dto.TableReservationDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes the changes of the reservation view to subscribers, instead of having them poll the view.
+ * <li>fed by the changelog of the store, which every instance follows for all partitions: any instance can serve any
+ * subscriber
+ * <li>a subscriber only gets the changes of a customer, or of the customers holding a table, or all of them; a change
+ * that releases a table (cancelled, timed out or rejected reservation) still goes to the subscribers of the table, it
+ * is matched against the tables the customer held before the change as well
+ * <li>every subscriber has its own bounded buffer, so a slow subscriber never holds back the others nor the changelog;
+ * once its buffer is full, the {@link Overflow} it chose decides which changes it misses
+ * <li>missed changes are counted in reservation.changes.dropped, tagged by overflow strategy
+ */
+@Service
+public class TableReservationChangeFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableReservationChangeFeed.class);
+
+    public enum Overflow {
+        // keep what is buffered, drop the new changes until the subscriber catches up
+        DROP,
+        // drop the oldest buffered changes, so the subscriber always ends up with the latest state
+        LATEST,
+    }
+
+    private record Change(String customerId, Set<String> tableIds, Set<String> previousTableIds, TableReservationDto reservation) {
+
+        boolean matches(String customerId, String tableId) {
+            return (customerId == null || customerId.equals(this.customerId))
+                    && (tableId == null || tableIds.contains(tableId) || previousTableIds.contains(tableId));
+        }
+    }
+
+    private final Sinks.Many<Change> changes = Sinks.many().multicast().directBestEffort();
+    // the tables of the last change of each customer holding any, only touched by the publishing thread; forgotten once
+    // the window of that change is out of the store, whose changelog does not tell when it drops a window
+    private final Cache<String, Set<String>> tableIdsByCustomer;
+    private final int bufferSize;
+    private final Map<Overflow, Counter> dropped = new EnumMap<>(Overflow.class);
+
+    @Autowired
+    public TableReservationChangeFeed(@Value("${kafka.streams.query.changes.buffer-size}") int bufferSize,
+                                      @Value("${kafka.streams.query.changes.table-retention}") Duration tableRetention,
+                                      MeterRegistry meterRegistry) {
+        this(bufferSize, tableRetention, Ticker.systemTicker(), meterRegistry);
+    }
+
+    TableReservationChangeFeed(int bufferSize, Duration tableRetention, Ticker ticker, MeterRegistry meterRegistry) {
+        this.tableIdsByCustomer = Caffeine.newBuilder()
+                .expireAfterWrite(tableRetention)
+                .ticker(ticker)
+                .build();
+        this.bufferSize = bufferSize;
+        for (var overflow : Overflow.values()) {
+            dropped.put(overflow, Counter.builder("reservation.changes.dropped")
+                    .tag("overflow", overflow.name())
+                    .description("changes a subscriber missed because its buffer was full")
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Called by a single thread: the changelog listener.
+     */
+    public void publish(String customerId, TableReservationDto reservation) {
+        var tableIds = reservation.reservations().stream()
+                .map(TableReservationDto.Reservation::tableId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableSet());
+        var previousTableIds = tableIdsByCustomer.getIfPresent(customerId);
+        if (tableIds.isEmpty()) {
+            tableIdsByCustomer.invalidate(customerId);
+        } else {
+            tableIdsByCustomer.put(customerId, tableIds);
+        }
+        var result = changes.tryEmitNext(new Change(customerId, tableIds, previousTableIds == null ? Set.of() : previousTableIds, reservation));
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            LOGGER.warn("could not publish the change of the reservations of {}: {}", customerId, result);
+        }
+    }
+
+    /**
+     * @param customerId only the changes of this customer, if not null
+     * @param tableId    only the changes of the customers holding this table, if not null
+     */
+    public Flux<TableReservationDto> subscribe(String customerId, String tableId, Overflow overflow) {
+        var strategy = overflow == Overflow.LATEST ? BufferOverflowStrategy.DROP_OLDEST : BufferOverflowStrategy.DROP_LATEST;
+        var droppedCounter = dropped.get(overflow);
+        return changes.asFlux()
+                .filter(change -> change.matches(customerId, tableId))
+                .map(Change::reservation)
+                .onBackpressureBuffer(bufferSize, ignored -> droppedCounter.increment(), strategy);
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.configuration.TopicCreator;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.RESERVATION_AGGREGATE_BINARY_SERDE;
+
+/**
+ * Follows the changelog of the reservation view (all partitions, from the moment this instance started) so the near
+ * cache of remote lookups sees every change made by the owners of the keys, and so that subscribers to the change feed
+ * get them pushed. Each instance uses its own consumer group.
+ */
+@Component
+public class TableReservationChangelogListener {
+
+    // changelog keys of window stores are the key followed by the window start (8 bytes) and a sequence number (4 bytes)
+    private static final int WINDOW_KEY_SUFFIX_LENGTH = 12;
+
+    private final TableReservationViewService tableReservationViewService;
+    private final TableReservationChangeFeed tableReservationChangeFeed;
+    private final String changelogTopic;
+
+    public TableReservationChangelogListener(TableReservationViewService tableReservationViewService,
+                                             TableReservationChangeFeed tableReservationChangeFeed,
+                                             @Value("${spring.application.name}") String applicationName) {
+        this.tableReservationViewService = tableReservationViewService;
+        this.tableReservationChangeFeed = tableReservationChangeFeed;
+        this.changelogTopic = TopicCreator.stateStoreTopicName(StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE, applicationName);
+    }
+
+    public String getChangelogTopic() {
+        return changelogTopic;
+    }
+
+    @KafkaListener(
+            topics = "#{__listener.changelogTopic}",
+            groupId = "${spring.application.name}-near-cache-${random.uuid}",
+            properties = {
+                    ConsumerConfig.AUTO_OFFSET_RESET_CONFIG + "=latest",
+                    ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG + "=false",
+                    // under exactly once, states of aborted transactions reach neither the near cache nor the subscribers
+                    ConsumerConfig.ISOLATION_LEVEL_CONFIG + "=read_committed",
+                    ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG + "=org.apache.kafka.common.serialization.ByteArrayDeserializer",
+                    ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG + "=org.apache.kafka.common.serialization.ByteArrayDeserializer"
+            })
+    public void onChange(ConsumerRecord<byte[], byte[]> record) {
+        if (record.key() == null || record.key().length < WINDOW_KEY_SUFFIX_LENGTH) {
+            return;
+        }
+        var customerId = new String(Arrays.copyOf(record.key(), record.key().length - WINDOW_KEY_SUFFIX_LENGTH), StandardCharsets.UTF_8);
+        var windowStart = ByteBuffer.wrap(record.key(), record.key().length - WINDOW_KEY_SUFFIX_LENGTH, Long.BYTES).getLong();
+        var customerReservations = RESERVATION_AGGREGATE_BINARY_SERDE.deserialize(record.topic(), record.value());
+        tableReservationViewService.onChange(customerId, customerReservations, windowStart);
+        // a deleted state is a customer without reservations, whose subscribers are told so
+        tableReservationChangeFeed.publish(customerId, TableReservationViewService.DTO_MAPPER.apply(customerId,
+                customerReservations == null ? CustomerReservations.none() : customerReservations));
+    }
+}
@@ -1,31 +1,118 @@
 package io.github.bmd007.reactiveland.service;
 
+import com.github.benmanes.caffeine.cache.Weigher;
+import io.github.bmd007.reactiveland.configuration.KafkaStreamsStateListeners;
 import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.configuration.Topics;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
 import io.github.bmd007.reactiveland.domain.TableReservation;
 import io.github.bmd007.reactiveland.dto.TableReservationDto;
 import io.github.bmd007.reactiveland.dto.TableReservationsDto;
+import io.github.bmd007.reactiveland.processor.ReservationIndexer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.streams.state.KeyValueIterator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.config.StreamsBuilderFactoryBean;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 @Service
-public class TableReservationViewService extends ViewService<TableReservationsDto, TableReservationDto, TableReservation> {
+public class TableReservationViewService extends ViewService<TableReservationsDto, TableReservationDto, CustomerReservations> {
 
+    // the window the views read the reservations of, see ViewService
+    private static final Duration VIEW_WINDOW = Duration.ofSeconds(15);
     private static final Function<TableReservationsDto, List<TableReservationDto>> LIST_EXTRACTOR = TableReservationsDto::tableReservations;
-    private static final Function<List<TableReservationDto>, TableReservationsDto> LIST_WRAPPER = TableReservationsDto::new;
-    private static final BiFunction<String, TableReservation, TableReservationDto> DTO_MAPPER = (customerId, tableReservation) ->
-                    new TableReservationDto(tableReservation.getCustomerId(), tableReservation.getTableId(), tableReservation.getStatus().toString());
+    private static final BiFunction<List<TableReservationDto>, List<Integer>, TableReservationsDto> LIST_WRAPPER = TableReservationsDto::new;
+    static final BiFunction<String, CustomerReservations, TableReservationDto> DTO_MAPPER = (customerId, customerReservations) -> {
+        var latest = customerReservations.latest();
+        if (latest == null) {
+            return new TableReservationDto(customerId, null, TableReservation.Status.AVAILABLE.toString());
+        }
+        var reservations = customerReservations.reservations().stream()
+                .map(tableReservation -> new TableReservationDto.Reservation(tableReservation.getTableId(),
+                        tableReservation.getStatus().toString(), tableReservation.getPaymentDeadline()))
+                .toList();
+        return new TableReservationDto(customerId, latest.getTableId(), latest.getStatus().toString(), reservations);
+    };
+
+    // roughly what the key and the strings of the dto take on the heap
+    private static final Weigher<String, TableReservationDto> WEIGHER = (customerId, dto) ->
+            64 + 2 * (customerId.length() + length(dto.customerId()) + length(dto.tableId()) + length(dto.status()))
+                    + dto.reservations().stream()
+                    .mapToInt(reservation -> 48 + 2 * (length(reservation.tableId()) + length(reservation.status())))
+                    .sum();
+
+    private final StoreReadiness<String> indexReadiness;
 
     public TableReservationViewService(StreamsBuilderFactoryBean streams,
                                        @Value("${kafka.streams.server.config.app-ip}") String ip,
                                        @Value("${kafka.streams.server.config.app-port}") int port,
-                                       ViewResourcesClient commonClient) {
-        super(ip, port, streams, StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE,
+                                       ViewResourcesClient commonClient,
+                                       @Value("${kafka.streams.query.per-instance-timeout}") Duration perInstanceTimeout,
+                                       @Value("${kafka.streams.query.hedge-delay}") Duration hedgeDelay,
+                                       @Value("${kafka.streams.query.hedging}") boolean hedging,
+                                       @Value("${kafka.streams.query.max-concurrency}") int maxConcurrency,
+                                       @Value("${kafka.streams.query.near-cache.maximum-weight}") DataSize nearCacheMaximumWeight,
+                                       @Value("${kafka.streams.query.near-cache.expire-after-write}") Duration nearCacheExpireAfterWrite,
+                                       @Value("${kafka.streams.query.readiness-timeout}") Duration readinessTimeout,
+                                       @Value("${kafka.streams.query.readiness-retry-interval}") Duration readinessRetryInterval,
+                                       @Value("${kafka.streams.query.lag-refresh-interval}") Duration lagRefreshInterval,
+                                       @Value("${kafka.streams.query.position-timeout}") Duration positionTimeout,
+                                       KafkaStreamsStateListeners stateListeners,
+                                       MeterRegistry meterRegistry) {
+        super(ip, port, streams, StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE, VIEW_WINDOW,
                 TableReservationsDto.class, TableReservationDto.class,
-                DTO_MAPPER, LIST_EXTRACTOR, LIST_WRAPPER, "/api/tables/reservations", commonClient);
+                DTO_MAPPER, LIST_EXTRACTOR, LIST_WRAPPER, "/api/tables/reservations", Topics.CUSTOMER_EVENTS_TOPIC, commonClient,
+                new ScatterGather(perInstanceTimeout, hedgeDelay, hedging, maxConcurrency),
+                new NearCache<>("table-reservation-near-cache", nearCacheMaximumWeight.toBytes(), nearCacheExpireAfterWrite, WEIGHER, meterRegistry),
+                new StoreReadiness<>(streams, stateListeners, StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE, readinessTimeout, readinessRetryInterval, lagRefreshInterval, positionTimeout));
+        this.indexReadiness = new StoreReadiness<>(streams, stateListeners, StateStores.RESERVATION_INDEX_IN_MEMORY_STATE_STORE,
+                readinessTimeout, readinessRetryInterval, lagRefreshInterval, positionTimeout);
+    }
+
+    /**
+     * @return the customers holding a reservation (awaiting payment or paid for) of the table, not the ones whose request
+     * still awaits the decision of the table arbiter
+     */
+    public Mono<TableReservationsDto> getByTableId(String tableId, boolean isHighLevelQuery) {
+        return getByIndex("/by-table/" + UriUtils.encodePathSegment(tableId, StandardCharsets.UTF_8),
+                indexedCustomerIds(ReservationIndexer.tableKeyPrefix(tableId)),
+                dto -> dto.reservations().stream().anyMatch(reservation -> tableId.equals(reservation.tableId())
+                        && !TableReservation.Status.REQUESTED.toString().equals(reservation.status())),
+                isHighLevelQuery);
+    }
+
+    /**
+     * @return the customers holding at least one reservation of the status
+     */
+    public Mono<TableReservationsDto> getByStatus(TableReservation.Status status, boolean isHighLevelQuery) {
+        return getByIndex("/by-status/" + status,
+                indexedCustomerIds(ReservationIndexer.statusKeyPrefix(status)),
+                dto -> dto.reservations().stream().anyMatch(reservation -> status.toString().equals(reservation.status())),
+                isHighLevelQuery);
+    }
+
+    private Flux<String> indexedCustomerIds(String keyPrefix) {
+        return indexReadiness.store()
+                .flatMapMany(index -> Flux.using(
+                        () -> index.fetch(keyPrefix, ReservationIndexer.keyPrefixEnd(keyPrefix), Instant.now().minus(VIEW_WINDOW), Instant.now()),
+                        iterator -> Flux.fromIterable(() -> iterator),
+                        KeyValueIterator::close))
+                .onErrorMap(indexReadiness::readFailure)
+                .map(keyValue -> keyValue.value);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
     }
 }
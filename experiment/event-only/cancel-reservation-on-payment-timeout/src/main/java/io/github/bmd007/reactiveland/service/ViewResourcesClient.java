@@ -1,8 +1,12 @@
 package io.github.bmd007.reactiveland.service;
 
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -33,9 +37,46 @@ public class ViewResourcesClient {
                 .onErrorResume(this::handleClientError);
     }
 
-    Mono handleClientError(Throwable throwable) {
+    public <T> Mono<T> getOne(ParameterizedTypeReference<T> bodyType, String url) {
+        return webClientBuilder
+                .build()
+                .get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(bodyType)
+                .onErrorResume(this::handleClientError);
+    }
+
+    public <T> Mono<T> postOne(Class<T> bodyType, String url, Object body) {
+        return webClientBuilder
+                .build()
+                .post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(bodyType)
+                .onErrorResume(this::handleClientError);
+    }
+
+    public <T> Flux<T> getMany(Class<T> bodyType, String url) {
+        return webClientBuilder
+                .build()
+                .get()
+                .uri(url)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .bodyToFlux(bodyType)
+                .onErrorResume(throwable -> this.<T>handleClientError(throwable).flux());
+    }
+
+    /**
+     * Only a 404 is an answer (there is nothing to return), any other error, 4xx included, is passed on so that the
+     * caller can tell a failed instance apart from an empty one, e.g. to report its partitions as missing.
+     */
+    <T> Mono<T> handleClientError(Throwable throwable) {
         if (throwable instanceof WebClientResponseException webClientResponseException &&
-                webClientResponseException.getStatusCode().is4xxClientError()) {
+                webClientResponseException.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
             return Mono.empty();
         } else {
             return Mono.error(throwable);
@@ -1,14 +1,22 @@
 package io.github.bmd007.reactiveland.service;
 
+import io.github.bmd007.reactiveland.dto.PageDto;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StoreQueryParameters;
 import org.apache.kafka.streams.StreamsMetadata;
-import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
 import org.apache.kafka.streams.state.QueryableStoreTypes;
 import org.apache.kafka.streams.state.ReadOnlyWindowStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
 import org.springframework.http.HttpStatus;
 import org.springframework.kafka.config.StreamsBuilderFactoryBean;
 import org.springframework.web.server.ResponseStatusException;
@@ -16,12 +24,24 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.naming.ServiceUnavailableException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
 
@@ -31,88 +51,371 @@ import static java.util.Objects.isNull;
  * <li>M is the external representation of I (dto)
  * <li>E is a Dto that includes a list of Ms. So for getting more than one instance of I, instead of
  * <code>Flux&lt;M></code>, it will be <code>Mono&lt;E></code> <br>
- * For now we don't test this class separately. Instead, we test each resource class that uses this class.
+ * The resource classes that use this class are tested with it mocked, see ViewServiceTest for this class itself.
  **/
 public class ViewService<E, M, I> {
 
     public static final String HIGH_LEVEL_QUERY_PARAM_NAME = "isHighLevelQuery";
     private static final Logger LOGGER = LoggerFactory.getLogger(ViewService.class);
     private final String storeName;
+    private final Duration window;
     private final Class<E> externalClass;
     private final Class<M> middleClass;
     private final BiFunction<String, I, M> domainToDtoMapper;
     private final Function<E, List<M>> dtoListContainerToListOfDtos;
-    private final Function<List<M>, E> listOfDtosToDtoListContainer;
+    private final BiFunction<List<M>, List<Integer>, E> listOfDtosToDtoListContainer;
     private final String pathPart;
+    private final String sourceTopic;
     private final String ip;
     private final int port;
     private final StreamsBuilderFactoryBean streams;
     private final ViewResourcesClient commonClient;
+    private final ParameterizedTypeReference<PageDto<M>> pageType;
+    private final ScatterGather scatterGather;
+    private final NearCache<M> nearCache;
+    private final StoreReadiness<I> storeReadiness;
 
     public ViewService(String ip,
                        int port,
                        StreamsBuilderFactoryBean streams,
                        String storeName,
+                       Duration window,
                        Class<E> externalClass,
                        Class<M> middleClass,
                        BiFunction<String, I, M> domainToDtoMapper,
                        Function<E, List<M>> dtoListContainerToListOfDtos,
-                       Function<List<M>, E> listOfDtosToDtoListContainer,
+                       BiFunction<List<M>, List<Integer>, E> listOfDtosToDtoListContainer,
                        String pathPart,
-                       ViewResourcesClient commonClient) {
+                       String sourceTopic,
+                       ViewResourcesClient commonClient,
+                       ScatterGather scatterGather,
+                       NearCache<M> nearCache,
+                       StoreReadiness<I> storeReadiness) {
         this.ip = ip;
         this.port = port;
         this.streams = streams;
         this.storeName = storeName;
+        this.window = window;
         this.externalClass = externalClass;
         this.middleClass = middleClass;
         this.domainToDtoMapper = domainToDtoMapper;
         this.dtoListContainerToListOfDtos = dtoListContainerToListOfDtos;
         this.listOfDtosToDtoListContainer = listOfDtosToDtoListContainer;
         this.pathPart = pathPart;
+        this.sourceTopic = sourceTopic;
         this.commonClient = commonClient;
+        this.scatterGather = scatterGather;
+        this.nearCache = nearCache;
+        this.storeReadiness = storeReadiness;
+        this.pageType = ParameterizedTypeReference.forType(ResolvableType.forClassWithGenerics(PageDto.class, middleClass).getType());
     }
 
     public Mono<E> getAll(boolean isHighLevelQuery) {
-        var localData = getFromLocalStorage();
-        if (isHighLevelQuery) {
-            var remoteData = getAllFromRemoteStorage();
-            var allData = Flux.concat(localData, remoteData);
-            return allData.collectList().map(listOfDtosToDtoListContainer);
-        } else {
-            return localData.collectList().map(listOfDtosToDtoListContainer);
+        return getAll(isHighLevelQuery, null);
+    }
+
+    /**
+     * @param partitions only used by inter instance queries: when set, the local replicas (active or standby) of these
+     *                   partitions are read, instead of the local active partitions
+     */
+    public Mono<E> getAll(boolean isHighLevelQuery, Set<Integer> partitions) {
+        if (!isHighLevelQuery) {
+            var localData = partitions == null || partitions.isEmpty() ? getFromLocalStorage() : getFromLocalReplicas(partitions);
+            return localData.collectList().map(list -> listOfDtosToDtoListContainer.apply(list, List.of()));
+        }
+        var metadataCollection = Objects.requireNonNull(streams.getKafkaStreams()).streamsMetadataForStore(storeName);
+        if (metadataCollection.isEmpty()) {
+            return Mono.error(() -> new ServiceUnavailableException("No metadata found for " + storeName));
+        }
+        var shards = metadataCollection.stream()
+                .map(metadata -> shardOf(metadata, metadataCollection))
+                .toList();
+        return gather(shards, "all");
+    }
+
+    /**
+     * Same fan out as {@link #getAll(boolean, Set)}, but each instance only reads the ids its local secondary index
+     * gives for the query, instead of its whole store.
+     *
+     * @param queryPath the path of the query relative to the path of this view, used to ask the other instances
+     * @param localIds  the ids the local index gives for the query
+     * @param matches   whether the current state of an id answers the query: index entries may be of older states
+     */
+    public Mono<E> getByIndex(String queryPath, Flux<String> localIds, Predicate<M> matches, boolean isHighLevelQuery) {
+        var localData = localIds.distinct().collectList()
+                .flatMapMany(this::getFromLocalStorage)
+                .filter(matches);
+        if (!isHighLevelQuery) {
+            return localData.collectList().map(list -> listOfDtosToDtoListContainer.apply(list, List.of()));
+        }
+        var metadataCollection = Objects.requireNonNull(streams.getKafkaStreams()).streamsMetadataForStore(storeName);
+        if (metadataCollection.isEmpty()) {
+            return Mono.error(() -> new ServiceUnavailableException("No metadata found for " + storeName));
         }
+        var shards = metadataCollection.stream()
+                .map(metadata -> new ScatterGather.Shard<>(metadata.hostInfo().toString(), storePartitions(metadata.topicPartitions()),
+                        isRemoteNode(metadata) ? getFromRemoteStorage(metadata, queryPath).collectList() : localData.collectList(),
+                        null))
+                .toList();
+        return gather(shards, queryPath);
+    }
+
+    private Mono<E> gather(List<ScatterGather.Shard<M>> shards, String query) {
+        return gather(shards, query, List.of());
+    }
+
+    /**
+     * @param known items of the answer that need no instance, e.g. from the near cache
+     */
+    private Mono<E> gather(List<ScatterGather.Shard<M>> shards, String query, List<M> known) {
+        return scatterGather.gather(shards)
+                .doOnNext(gathered -> {
+                    if (gathered.isPartial()) {
+                        LOGGER.warn("partial answer for {} of {}, missing partitions {}", query, storeName, gathered.missingPartitions());
+                    }
+                    gathered.items().addAll(known);
+                })
+                .map(gathered -> listOfDtosToDtoListContainer.apply(gathered.items(), List.copyOf(gathered.missingPartitions())));
     }
 
     //**
     // Use this method for fetching all the data ONLY if the assigned store is GLOBAL
     // **//
     public Mono<E> getAllFromGlobalStore() {
-        return getFromLocalStorage().collectList().map(listOfDtosToDtoListContainer);
+        return getFromLocalStorage().collectList().map(list -> listOfDtosToDtoListContainer.apply(list, List.of()));
+    }
+
+    private ScatterGather.Shard<M> shardOf(StreamsMetadata metadata, Collection<StreamsMetadata> metadataCollection) {
+        var partitions = storePartitions(metadata.topicPartitions());
+        var primary = isRemoteNode(metadata)
+                ? getFromRemoteStorage(metadata).collectList()
+                : getFromLocalStorage().collectList();
+        return new ScatterGather.Shard<>(metadata.hostInfo().toString(), partitions, primary, hedgeOf(metadata, partitions, metadataCollection));
+    }
+
+    /**
+     * The same partitions, read from the instances holding standby replicas of them; null unless every partition has one.
+     */
+    private Mono<List<M>> hedgeOf(StreamsMetadata active, Set<Integer> partitions, Collection<StreamsMetadata> metadataCollection) {
+        var partitionsByStandby = new HashMap<StreamsMetadata, Set<Integer>>();
+        for (var partition : partitions) {
+            var standby = metadataCollection.stream()
+                    .filter(candidate -> !candidate.equals(active))
+                    .filter(candidate -> storePartitions(candidate.standbyTopicPartitions()).contains(partition))
+                    .findFirst();
+            if (standby.isEmpty()) {
+                return null;
+            }
+            partitionsByStandby.computeIfAbsent(standby.get(), ignored -> new TreeSet<>()).add(partition);
+        }
+        if (partitionsByStandby.isEmpty()) {
+            return null;
+        }
+        return Flux.fromIterable(partitionsByStandby.entrySet())
+                .flatMap(standby -> isRemoteNode(standby.getKey())
+                        ? getFromRemoteReplicas(standby.getKey(), standby.getValue())
+                        : getFromLocalReplicas(standby.getValue()))
+                .collectList();
+    }
+
+    private Set<Integer> storePartitions(Set<TopicPartition> topicPartitions) {
+        return topicPartitions.stream()
+                .filter(topicPartition -> topicPartition.topic().equals(sourceTopic))
+                .map(TopicPartition::partition)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private Flux<M> getFromRemoteStorage(StreamsMetadata metadata) {
+        String url = String.format("%s?%s=false", instanceUrl(metadata.host(), metadata.port()), HIGH_LEVEL_QUERY_PARAM_NAME);
+        return commonClient.getOne(externalClass, url).flatMapIterable(dtoListContainerToListOfDtos);
+    }
+
+    private Flux<M> getFromRemoteStorage(StreamsMetadata metadata, String queryPath) {
+        String url = String.format("%s%s?%s=false", instanceUrl(metadata.host(), metadata.port()), queryPath, HIGH_LEVEL_QUERY_PARAM_NAME);
+        return commonClient.getOne(externalClass, url).flatMapIterable(dtoListContainerToListOfDtos);
+    }
+
+    private Flux<M> getFromRemoteReplicas(StreamsMetadata metadata, Set<Integer> partitions) {
+        var partitionList = partitions.stream().map(String::valueOf).collect(Collectors.joining(","));
+        String url = String.format("%s?%s=false&partitions=%s", instanceUrl(metadata.host(), metadata.port()), HIGH_LEVEL_QUERY_PARAM_NAME, partitionList);
+        return commonClient.getOne(externalClass, url).flatMapIterable(dtoListContainerToListOfDtos);
+    }
+
+    private Flux<M> getFromLocalReplicas(Set<Integer> partitions) {
+        var kafkaStreams = Objects.requireNonNull(streams.getKafkaStreams());
+        return Flux.fromIterable(partitions)
+                .concatMap(partition -> Flux.using(
+                        () -> kafkaStreams.store(StoreQueryParameters.fromNameAndType(storeName, QueryableStoreTypes.<String, I>windowStore())
+                                .withPartition(partition)
+                                .enableStaleStores()).all(),
+                        iterator -> Flux.fromIterable(() -> iterator),
+                        KeyValueIterator::close))
+                .filter(this::isValid)
+                .map(kv -> domainToDtoMapper.apply(kv.key.key(), kv.value));
+    }
+
+    /**
+     * Same data as {@link #getAll(boolean)}, but emitted entry by entry: local entries straight from the store iterator,
+     * then the entries of each remote instance one instance after the other, read as ndjson.
+     */
+    public Flux<M> streamAll(boolean isHighLevelQuery) {
+        var localData = getFromLocalStorage();
+        if (isHighLevelQuery) {
+            return Flux.concat(localData, streamAllFromRemoteStorage());
+        }
+        return localData;
     }
 
-    private Flux<M> getAllFromRemoteStorage() {
+    private Flux<M> streamAllFromRemoteStorage() {
         var metadataCollection = Objects.requireNonNull(streams.getKafkaStreams()).streamsMetadataForStore(storeName);
         return Flux.fromIterable(metadataCollection)
-                .switchIfEmpty(Flux.error(() -> new ServiceUnavailableException("No metadata found for " + storeName)))
                 .filter(this::isRemoteNode)
-                .flatMap(this::getFromRemoteStorage)
-                .onErrorResume(throwable -> Flux.error(() -> new ServiceUnavailableException("Error " + throwable.getMessage() + " when getting all for store" + storeName)));
+                .concatMap(metadata -> commonClient.getMany(middleClass,
+                        String.format("%s?%s=false", instanceUrl(metadata.host(), metadata.port()), HIGH_LEVEL_QUERY_PARAM_NAME)));
     }
 
-    private Flux<M> getFromRemoteStorage(StreamsMetadata metadata) {
-        String url = String.format("http://%s:%d/%s?%s=false", metadata.host(), metadata.port(), pathPart, HIGH_LEVEL_QUERY_PARAM_NAME);
-        return commonClient.getOne(externalClass, url).flatMapIterable(dtoListContainerToListOfDtos);
+    /**
+     * Returns at most pageSize entries after the position of the continuation token (or from the beginning if there is
+     * none). Instances are scanned one after the other in host:port order, so a page never mixes instances and may hold
+     * fewer than pageSize entries; only a missing continuation token in the response means there is nothing left.
+     */
+    public Mono<PageDto<M>> getPage(int pageSize, String continuationToken, boolean isHighLevelQuery) {
+        var localInstance = ip + ":" + port;
+        if (!isHighLevelQuery) {
+            var from = continuationToken == null ? ContinuationToken.startOf(localInstance) : ContinuationToken.decode(continuationToken);
+            if (!from.instance().equals(localInstance)) {
+                return Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "continuation token of another instance"));
+            }
+            return getPageFromLocalStorage(pageSize, from);
+        }
+        var instances = Objects.requireNonNull(streams.getKafkaStreams()).streamsMetadataForStore(storeName).stream()
+                .map(metadata -> metadata.host() + ":" + metadata.port())
+                .distinct()
+                .sorted()
+                .toList();
+        if (instances.isEmpty()) {
+            return Mono.error(() -> new ServiceUnavailableException("No metadata found for " + storeName));
+        }
+        var from = continuationToken == null ? ContinuationToken.startOf(instances.get(0)) : ContinuationToken.decode(continuationToken);
+        // the instance of the token is what the next request goes to: only ever one that hosts the store
+        if (!instances.contains(from.instance())) {
+            return Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "continuation token of an unknown instance"));
+        }
+        var page = from.instance().equals(localInstance)
+                ? getPageFromLocalStorage(pageSize, from)
+                : getPageFromRemoteStorage(pageSize, from);
+        return page.map(pageDto -> pageDto.continuationToken() != null
+                ? pageDto
+                : new PageDto<>(pageDto.items(), nextInstanceToken(instances, from.instance())));
+    }
+
+    private static String nextInstanceToken(List<String> sortedInstances, String instance) {
+        return sortedInstances.stream()
+                .filter(candidate -> candidate.compareTo(instance) > 0)
+                .findFirst()
+                .map(next -> ContinuationToken.startOf(next).encode())
+                .orElse(null);
+    }
+
+    private Mono<PageDto<M>> getPageFromRemoteStorage(int pageSize, ContinuationToken from) {
+        var url = String.format("%s?pageSize=%d&continuationToken=%s&%s=false",
+                instanceUrl(from.host(), from.port()), pageSize, from.encode(), HIGH_LEVEL_QUERY_PARAM_NAME);
+        return commonClient.getOne(pageType, url)
+                .defaultIfEmpty(new PageDto<>(List.of(), null));
+    }
+
+    /**
+     * Reads the windows of the view one after the other, from the window of the position on. Within a window the
+     * local partitions are range fetched from the key of the position on and merged in key order, so a page costs
+     * about pageSize entries whatever the size of the store.
+     */
+    private Mono<PageDto<M>> getPageFromLocalStorage(int pageSize, ContinuationToken from) {
+        return Flux.fromIterable(localActivePartitions())
+                .concatMap(storeReadiness::store)
+                .collectList()
+                .map(stores -> {
+                    var windowMs = window.toMillis();
+                    var now = System.currentTimeMillis();
+                    // the windows that start in [now - window, now], as the other reads of the view, aligned to the epoch
+                    var firstWindow = Math.ceilDiv(now - windowMs, windowMs) * windowMs;
+                    var resumesInWindow = from.hasPosition() && from.windowStart() >= firstWindow;
+                    var entries = new ArrayList<KeyValue<Windowed<String>, I>>(pageSize + 1);
+                    for (var windowStart = resumesInWindow ? from.windowStart() : firstWindow;
+                         windowStart <= now && entries.size() <= pageSize;
+                         windowStart += windowMs) {
+                        var resumeAfter = resumesInWindow && windowStart == from.windowStart() ? from.key() : null;
+                        readWindow(stores, windowStart, resumeAfter, pageSize + 1 - entries.size(), entries);
+                    }
+                    String next = null;
+                    if (entries.size() > pageSize) {
+                        entries.remove(pageSize);
+                        var last = entries.get(pageSize - 1).key;
+                        next = ContinuationToken.at(from.instance(), last.window().start(), last.key()).encode();
+                    }
+                    var items = entries.stream().map(kv -> domainToDtoMapper.apply(kv.key.key(), kv.value)).toList();
+                    return new PageDto<>(items, next);
+                });
+    }
+
+    // merges the key ordered range fetches of the partitions, taking at most limit entries after resumeAfter
+    private void readWindow(List<ReadOnlyWindowStore<String, I>> stores, long windowStart, String resumeAfter, int limit,
+                            List<KeyValue<Windowed<String>, I>> entries) {
+        var time = Instant.ofEpochMilli(windowStart);
+        var heads = new PriorityQueue<Cursor<I>>(Comparator.comparing((Cursor<I> cursor) -> cursor.key()));
+        var iterators = new ArrayList<KeyValueIterator<Windowed<String>, I>>(stores.size());
+        try {
+            for (var store : stores) {
+                var iterator = resumeAfter == null ? store.fetchAll(time, time) : store.fetch(resumeAfter, null, time, time);
+                iterators.add(iterator);
+                Cursor.next(iterator).ifPresent(heads::add);
+            }
+            var taken = 0;
+            while (taken < limit && !heads.isEmpty()) {
+                var head = heads.poll();
+                if (isValid(head.entry()) && !head.entry().key.key().equals(resumeAfter)) {
+                    entries.add(head.entry());
+                    taken++;
+                }
+                Cursor.next(head.iterator()).ifPresent(heads::add);
+            }
+        } finally {
+            iterators.forEach(KeyValueIterator::close);
+        }
+    }
+
+    private record Cursor<I>(KeyValue<Windowed<String>, I> entry, Bytes key, KeyValueIterator<Windowed<String>, I> iterator) {
+
+        static <I> Optional<Cursor<I>> next(KeyValueIterator<Windowed<String>, I> iterator) {
+            if (!iterator.hasNext()) {
+                return Optional.empty();
+            }
+            var entry = iterator.next();
+            var key = Bytes.wrap(entry.key.key().getBytes(StandardCharsets.UTF_8));
+            return Optional.of(new Cursor<>(entry, key, iterator));
+        }
+    }
+
+    private Set<Integer> localActivePartitions() {
+        return Objects.requireNonNull(streams.getKafkaStreams()).streamsMetadataForStore(storeName).stream()
+                .filter(metadata -> !isRemoteNode(metadata))
+                .flatMap(metadata -> storePartitions(metadata.topicPartitions()).stream())
+                .collect(Collectors.toCollection(TreeSet::new));
     }
 
     private Flux<M> getFromLocalStorage() {
-        var store = waitUntilStoreIsQueryable();
-        var it = store.all(); // hold a reference to close it later
-        return Flux.fromIterable(() -> store.all())
-                .filter(kv -> kv.key != null && !kv.key.key().isEmpty())
-                .filter(kv -> !isNull(kv.value))
-                .map(kv -> domainToDtoMapper.apply(kv.key.key(), kv.value))
-                .doAfterTerminate(it::close);
+        return storeReadiness.store()
+                .flatMapMany(store -> Flux.using(store::all, iterator -> Flux.fromIterable(() -> iterator), KeyValueIterator::close))
+                .onErrorMap(storeReadiness::readFailure)
+                .filter(this::isValid)
+                .map(kv -> domainToDtoMapper.apply(kv.key.key(), kv.value));
+    }
+
+    private boolean isValid(KeyValue<Windowed<String>, I> kv) {
+        return kv.key != null && !kv.key.key().isEmpty() && !isNull(kv.value);
+    }
+
+    private String instanceUrl(String host, int port) {
+        return String.format("http://%s:%d%s", host, port, pathPart);
     }
 
     private boolean isRemoteNode(StreamsMetadata metadata) {
@@ -120,6 +423,15 @@ public class ViewService<E, M, I> {
     }
 
     public Mono<M> getById(String id) {
+        return getById(id, null, true);
+    }
+
+    /**
+     * @param maxLag when set, any replica of the key (active or standby) that is at most this many records behind the
+     *               changelog may answer: the local one first, then the active one, then the other standbys.
+     *               Otherwise only the active replica answers.
+     */
+    public Mono<M> getById(String id, Long maxLag, boolean isHighLevelQuery) {
         var metadata = Objects.requireNonNull(streams.getKafkaStreams()).queryMetadataForKey(storeName, id, new StringSerializer());
 
         if (metadata == null || metadata.equals(KeyQueryMetadata.NOT_AVAILABLE)) {
@@ -127,19 +439,154 @@ public class ViewService<E, M, I> {
             return Mono.empty();//No metadata for that key
         }
 
-        if (metadata.activeHost().host().equals(ip) && metadata.activeHost().port() == port) {
+        if (maxLag != null) {
+            return isHighLevelQuery
+                    ? getFromFreshEnoughReplica(id, metadata, maxLag)
+                    : getFromLocalReplica(id, metadata.partition(), maxLag);
+        }
+
+        if (!isHighLevelQuery || metadata.activeHost().host().equals(ip) && metadata.activeHost().port() == port) {
             LOGGER.debug("Querying local store {} for id: {}", storeName, id);
-            var store = waitUntilStoreIsQueryable();
-            return Mono.justOrEmpty(store.backwardFetch(id, Instant.now().minusSeconds(15), Instant.now()))
-                    .filter(Iterator::hasNext)
-                    .map(iWindowStoreIterator -> iWindowStoreIterator.next().value)
-                    .map(i -> domainToDtoMapper.apply(id, i));//No data for that key locally
+            return storeReadiness.store().mapNotNull(store -> getFromLocalStorage(store, id))//No data for that key locally
+                    .onErrorMap(storeReadiness::readFailure);
         }
 
-        var url = String.format("http://%s:%d/%s/%s", metadata.activeHost().host(), metadata.activeHost().port(), pathPart, id);
+        var cached = nearCache.get(id);
+        if (cached.isPresent()) {
+            return Mono.just(cached.get());
+        }
+        var url = String.format("%s/%s", instanceUrl(metadata.activeHost().host(), metadata.activeHost().port()), id);
         LOGGER.debug("Querying other instance's {} store for id: {} from {}", storeName, id, url);
-        return commonClient.getOne(middleClass, url)
-                .switchIfEmpty(Mono.empty());//No data for that key remotely
+        return nearCache.load(id, commonClient.getOne(middleClass, url));//No data for that key remotely
+    }
+
+    /**
+     * Read-your-writes: answers only once the replica of the key has processed the given offset of the partition of
+     * the source topic (typically the metadata of the write the caller made), waiting for it without blocking.
+     */
+    public Mono<M> getByIdAfterWrite(String id, int writePartition, long writeOffset, boolean isHighLevelQuery) {
+        var metadata = Objects.requireNonNull(streams.getKafkaStreams()).queryMetadataForKey(storeName, id, new StringSerializer());
+        if (metadata == null || metadata.equals(KeyQueryMetadata.NOT_AVAILABLE)) {
+            LOGGER.error("Neither this nor other instances has access to requested key. Metadata: {}", metadata);
+            return Mono.empty();//No metadata for that key
+        }
+        if (!isHighLevelQuery || metadata.activeHost().host().equals(ip) && metadata.activeHost().port() == port) {
+            var now = Instant.now();
+            return storeReadiness.fetchLatest(id, now.minus(window), now, sourceTopic, writePartition, writeOffset)
+                    .map(i -> domainToDtoMapper.apply(id, i));
+        }
+        var url = String.format("%s/%s?%s=false&writePartition=%d&writeOffset=%d",
+                instanceUrl(metadata.activeHost().host(), metadata.activeHost().port()), id, HIGH_LEVEL_QUERY_PARAM_NAME, writePartition, writeOffset);
+        return commonClient.getOne(middleClass, url);
+    }
+
+    private Mono<M> getFromFreshEnoughReplica(String id, KeyQueryMetadata metadata, long maxLag) {
+        var localHost = new HostInfo(ip, port);
+        var replicas = new ArrayList<HostInfo>();
+        replicas.add(metadata.activeHost());
+        replicas.addAll(metadata.standbyHosts());
+        if (replicas.remove(localHost)) {
+            replicas.add(0, localHost);
+        }
+        // a replica that answers, even with nothing, ends the search; one that is too far behind or down doesn't
+        return Flux.fromIterable(replicas)
+                .concatMap(host -> (host.equals(localHost) ? getFromLocalReplica(id, metadata.partition(), maxLag) : getFromRemoteReplica(host, id, maxLag))
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .onErrorResume(throwable -> {
+                            LOGGER.debug("replica {} couldn't answer for id {} within lag {}: {}", host, id, maxLag, throwable.toString());
+                            return Mono.empty();
+                        }))
+                .next()
+                .switchIfEmpty(Mono.error(storeReadiness::notReady))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private Mono<M> getFromLocalReplica(String id, int partition, long maxLag) {
+        return storeReadiness.localOffsetLag(partition)
+                .filter(lag -> lag <= maxLag)
+                .switchIfEmpty(Mono.error(storeReadiness::notReady))
+                .flatMap(ignored -> storeReadiness.staleStore(partition))
+                .mapNotNull(store -> getFromLocalStorage(store, id));
+    }
+
+    private Mono<M> getFromRemoteReplica(HostInfo host, String id, long maxLag) {
+        var url = String.format("%s/%s?%s=false&maxLag=%d", instanceUrl(host.host(), host.port()), id, HIGH_LEVEL_QUERY_PARAM_NAME, maxLag);
+        LOGGER.debug("Querying replica of {} store for id: {} from {}", storeName, id, url);
+        return commonClient.getOne(middleClass, url);
+    }
+
+    /**
+     * Looks up many ids at once: ids are grouped by the instance actively hosting them and each remote instance gets
+     * a single batched request. Ids that no instance hosts, or that have no data, are left out of the answer.
+     * Instances are gathered like in {@link #getAll(boolean, Set)}: one that fails or doesn't answer in time only costs
+     * its own ids, and the partitions of those are reported as missing.
+     */
+    public Mono<E> getByIds(Collection<String> ids, boolean isHighLevelQuery) {
+        var distinctIds = new LinkedHashSet<>(ids);
+        if (!isHighLevelQuery) {
+            return getFromLocalStorage(distinctIds).collectList().map(list -> listOfDtosToDtoListContainer.apply(list, List.of()));
+        }
+        var kafkaStreams = Objects.requireNonNull(streams.getKafkaStreams());
+        var idsByHost = new HashMap<HostInfo, List<String>>();
+        var partitionsByHost = new HashMap<HostInfo, Set<Integer>>();
+        var cached = new ArrayList<M>();
+        for (var id : distinctIds) {
+            var metadata = kafkaStreams.queryMetadataForKey(storeName, id, new StringSerializer());
+            if (metadata == null || metadata.equals(KeyQueryMetadata.NOT_AVAILABLE)) {
+                LOGGER.error("Neither this nor other instances has access to requested key {}. Metadata: {}", id, metadata);
+                continue;
+            }
+            var isLocal = metadata.activeHost().host().equals(ip) && metadata.activeHost().port() == port;
+            var cachedDto = isLocal ? Optional.<M>empty() : nearCache.get(id);
+            if (cachedDto.isPresent()) {
+                cached.add(cachedDto.get());
+            } else {
+                idsByHost.computeIfAbsent(metadata.activeHost(), ignored -> new ArrayList<>()).add(id);
+                partitionsByHost.computeIfAbsent(metadata.activeHost(), ignored -> new TreeSet<>()).add(metadata.partition());
+            }
+        }
+        var shards = idsByHost.entrySet().stream()
+                .map(hostIds -> new ScatterGather.Shard<>(hostIds.getKey().toString(), partitionsByHost.get(hostIds.getKey()),
+                        hostIds.getKey().host().equals(ip) && hostIds.getKey().port() == port
+                                ? getFromLocalStorage(hostIds.getValue()).collectList()
+                                : getFromRemoteStorage(hostIds.getKey(), hostIds.getValue()).collectList(),
+                        null))
+                .toList();
+        return gather(shards, "_mget", cached);
+    }
+
+    private Flux<M> getFromRemoteStorage(HostInfo host, List<String> ids) {
+        var url = String.format("%s/_mget?%s=false", instanceUrl(host.host(), host.port()), HIGH_LEVEL_QUERY_PARAM_NAME);
+        LOGGER.debug("Querying other instance's {} store for {} ids from {}", storeName, ids.size(), url);
+        return commonClient.postOne(externalClass, url, ids).flatMapIterable(dtoListContainerToListOfDtos);
+    }
+
+    /**
+     * To be fed with the changelog of the store, keeps the near cache of remote lookups in sync with the owners.
+     *
+     * @param value       the new state of the id, null when it got deleted
+     * @param windowStart the start of the window of the state
+     */
+    public void onChange(String id, I value, long windowStart) {
+        var now = System.currentTimeMillis();
+        var latestWindowStart = now - Math.floorMod(now, window.toMillis());
+        nearCache.refreshIfPresent(id, value == null ? null : domainToDtoMapper.apply(id, value), windowStart, windowStart >= latestWindowStart);
+    }
+
+    private Flux<M> getFromLocalStorage(Collection<String> ids) {
+        return storeReadiness.store()
+                .flatMapIterable(store -> ids.stream()
+                        .map(id -> getFromLocalStorage(store, id))
+                        .filter(Objects::nonNull)
+                        .toList())
+                .onErrorMap(storeReadiness::readFailure);
+    }
+
+    private M getFromLocalStorage(ReadOnlyWindowStore<String, I> store, String id) {
+        try (var iterator = store.backwardFetch(id, Instant.now().minus(window), Instant.now())) {
+            return iterator.hasNext() ? domainToDtoMapper.apply(id, iterator.next().value) : null;
+        }
     }
 
     public Mono<M> getByIdFromGlobalStore(String id) {
@@ -151,30 +598,7 @@ public class ViewService<E, M, I> {
         }
 
         LOGGER.debug("Querying local part of global store {} for id: {}", storeName, id);
-        var store = waitUntilStoreIsQueryable();
-        return Mono.justOrEmpty(store.backwardFetch(id, Instant.now().minusSeconds(15), Instant.now()))
-                .filter(Iterator::hasNext)
-                .map(iWindowStoreIterator -> iWindowStoreIterator.next().value)
-                .map(i -> domainToDtoMapper.apply(id, i));//No data for that key locally
-    }
-
-    public ReadOnlyWindowStore<String, I> waitUntilStoreIsQueryable() {
-        for (int i = 0; i < 10; i++) {
-            try {
-                var storeQueryParameters = StoreQueryParameters.fromNameAndType(storeName, QueryableStoreTypes.<String, I>windowStore());
-                return Objects.requireNonNull(streams.getKafkaStreams()).store(storeQueryParameters);
-            } catch (InvalidStateStoreException e2) {
-                // store not yet ready for querying
-                LOGGER.error("Invalid State Store Error while fetching the kafkaStream store: {}. A retry will happen after 300 ms", storeName);
-                try {
-                    Thread.sleep(300);
-                } catch (InterruptedException e) {
-                    LOGGER.error("interrupted while waiting for streams store to be ready");
-                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "interrupted while waiting for streams store to be ready", e);
-                }
-            }
-        }
-        throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
-                "Invalid State Store Error while fetching the kafkaStream store. The service is not available at the moment");
+        return storeReadiness.store().mapNotNull(store -> getFromLocalStorage(store, id))//No data for that key locally
+                .onErrorMap(storeReadiness::readFailure);
     }
 }
@@ -17,7 +17,6 @@ import java.util.UUID;
 
 class AcceptanceTests {
 
-    private final static String TABLE_ID = "tableId";
     private KafkaEventProducer kafkaEventProducer;
 
     private WebClient webClient;
@@ -84,10 +83,12 @@ class AcceptanceTests {
 
     private Mono<ExperimentResult> reserveAndPayForTable() {
         String customerId = UUID.randomUUID().toString();
+        // a table per customer: the scenarios are about payments, not about customers competing for a table
+        String tableId = "table-" + customerId;
         long delay = 5L;
-        return requestTable(customerId, TABLE_ID)
+        return requestTable(customerId, tableId)
                 .delayElement(Duration.ofSeconds(delay))
-                .flatMap(ignored -> payForTable(customerId, TABLE_ID))
+                .flatMap(ignored -> payForTable(customerId, tableId))
                 .delayElement(Duration.ofSeconds(2))
                 .flatMap(ignored -> fetchReservationStatus(customerId))
                 .onErrorResume(WebClientResponseException.class, exception -> Mono.just(exception.getStatusCode().toString()))
@@ -105,8 +106,9 @@ class AcceptanceTests {
 
     private Mono<ExperimentResult> reserveTableAndLeave() {
         String customerId = UUID.randomUUID().toString();
+        String tableId = "table-" + customerId;
         long delay = 22L;
-        return requestTable(customerId, TABLE_ID)
+        return requestTable(customerId, tableId)
                 .delayElement(Duration.ofSeconds(delay))
                 .flatMap(ignored -> fetchReservationStatus(customerId))
                 .onErrorResume(WebClientResponseException.class, exception -> Mono.just(exception.getStatusCode().toString()))
@@ -115,23 +117,24 @@ class AcceptanceTests {
 
     private Mono<ExperimentResult> reserveTableAndPayLate() {
         String customerId = UUID.randomUUID().toString();
+        String tableId = "table-" + customerId;
         long delay = 20L;
-        return requestTable(customerId, TABLE_ID)
+        return requestTable(customerId, tableId)
                 .delayElement(Duration.ofSeconds(delay))
-                .flatMap(ignored -> payForTable(customerId, TABLE_ID))
+                .flatMap(ignored -> payForTable(customerId, tableId))
                 .delayElement(Duration.ofSeconds(2))
                 .flatMap(ignored -> fetchReservationStatus(customerId))
                 .map(status -> new ExperimentResult(customerId, status, "reserveTableAndPayLate"));
     }
 
-    private Mono<RecordMetadata> requestTable(String customerId, String TABLE_ID) {
-        var event = new Event.CustomerEvent.CustomerRequestedTable(customerId, TABLE_ID);
+    private Mono<RecordMetadata> requestTable(String customerId, String tableId) {
+        var event = new Event.CustomerEvent.CustomerRequestedTable(customerId, tableId);
         return kafkaEventProducer.produceEvent(event, Topics.CUSTOMER_EVENTS_TOPIC)
                 .log("BMD::requestTable");
     }
 
-    private Mono<RecordMetadata> payForTable(String customerId, String TABLE_ID) {
-        var event = new Event.CustomerEvent.CustomerPaidForTable(customerId, TABLE_ID);
+    private Mono<RecordMetadata> payForTable(String customerId, String tableId) {
+        var event = new Event.CustomerEvent.CustomerPaidForTable(customerId, tableId);
         return kafkaEventProducer.produceEvent(event, Topics.CUSTOMER_EVENTS_TOPIC);
     }
 
@@ -24,14 +24,14 @@ import reactor.test.StepVerifier;
 import java.time.Duration;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 @ActiveProfiles("test")
-@EmbeddedKafka(partitions = 1, topics = {Topics.RESERVATION_EVENTS_TOPIC, Topics.CUSTOMER_EVENTS_TOPIC})
+@EmbeddedKafka(partitions = 1, topics = {Topics.RESERVATION_EVENTS_TOPIC, Topics.CUSTOMER_EVENTS_TOPIC, Topics.TABLE_DECISIONS_TOPIC})
 class ApplicationTests {
 
-    private final static String TABLE_ID = "tableId";
     private static final Logger log = LoggerFactory.getLogger(ApplicationTests.class);
 
     @Autowired
@@ -51,7 +51,8 @@ class ApplicationTests {
     @Test
     void paymentTimeoutDetectionTest() {
         //given
-        Flux<ExperimentResult> booleanFlux = Flux.range(0, 20)
+        Flux<ExperimentResult> booleanFlux = Mono.delay(untilNextWindow())
+                .thenMany(Flux.range(0, 20))
                 .subscribeOn(Schedulers.parallel())
                 .publishOn(Schedulers.parallel())
                 .flatMap(integer ->
@@ -62,12 +63,15 @@ class ApplicationTests {
                             default -> Flux.error(new IllegalStateException("Unexpected value: " + integer % 3));
                         }
                 )
-                .log()
-                .filter(ExperimentResult::wasSuccessful);
+                .log();
         //when
-        StepVerifier.create(booleanFlux)
+        StepVerifier.create(booleanFlux.collectMultimap(ExperimentResult::methodName))
                 //then
-                .expectNextCount(3)
+                .assertNext(resultsByScenario -> {
+                    assertThat(resultsByScenario.get("reserveAndPayForTable")).hasSize(7).allMatch(ExperimentResult::wasSuccessful);
+                    assertThat(resultsByScenario.get("reserveTableAndPayLate")).hasSize(7).allMatch(ExperimentResult::wasSuccessful);
+                    assertThat(resultsByScenario.get("reserveTableAndLeave")).hasSize(6).allMatch(ExperimentResult::wasSuccessful);
+                })
                 .expectComplete()
                 .verify();
     }
@@ -75,7 +79,7 @@ class ApplicationTests {
     @Test
     void reserveAndPayForTableSingleTry() {
         //given
-        Mono<ExperimentResult> booleanFlux = reserveAndPayForTable().log()
+        Mono<ExperimentResult> booleanFlux = Mono.delay(untilNextWindow()).then(Mono.defer(this::reserveAndPayForTable)).log()
                 .filter(ExperimentResult::wasSuccessful);
         //when
         StepVerifier.create(booleanFlux)
@@ -88,7 +92,7 @@ class ApplicationTests {
     @Test
     void reserveTableAndPayLateSingleTry() {
         //given
-        Mono<ExperimentResult> booleanFlux = reserveTableAndPayLate().log()
+        Mono<ExperimentResult> booleanFlux = Mono.delay(untilNextWindow()).then(Mono.defer(this::reserveTableAndPayLate)).log()
                 .filter(ExperimentResult::wasSuccessful);
         //when
         StepVerifier.create(booleanFlux)
@@ -101,7 +105,7 @@ class ApplicationTests {
     @Test
     void reserveTableAndLeaveSingleTry() {
         //given
-        Mono<ExperimentResult> booleanFlux = reserveTableAndLeave().log()
+        Mono<ExperimentResult> booleanFlux = Mono.delay(untilNextWindow()).then(Mono.defer(this::reserveTableAndLeave)).log()
                 .filter(ExperimentResult::wasSuccessful);
         //when
         StepVerifier.create(booleanFlux)
@@ -111,12 +115,21 @@ class ApplicationTests {
                 .verify();
     }
 
+    // the view only reads the window of the present: a scenario starting late in a window could read after the next one
+    // started, without finding what it did in the previous one
+    private static Duration untilNextWindow() {
+        var windowMillis = KStreamAndKTableDefinitions.RESERVATION_WINDOW_SIZE.toMillis();
+        return Duration.ofMillis(windowMillis - System.currentTimeMillis() % windowMillis + 100);
+    }
+
     private Mono<ExperimentResult> reserveAndPayForTable() {
         String customerId = UUID.randomUUID().toString();
+        // a table per customer: the scenarios are about payments, not about customers competing for a table
+        String tableId = "table-" + customerId;
         long delay = 5L;
-        return requestTable(customerId, TABLE_ID)
+        return requestTable(customerId, tableId)
                 .delayElement(Duration.ofSeconds(delay))
-                .flatMap(ignored -> payForTable(customerId, TABLE_ID))
+                .flatMap(ignored -> payForTable(customerId, tableId))
                 .delayElement(Duration.ofSeconds(2))
                 .flatMap(ignored -> fetchReservationStatus(customerId))
                 .onErrorResume(WebClientResponseException.class, exception -> Mono.just(exception.getStatusCode().toString()))
@@ -134,8 +147,9 @@ class ApplicationTests {
 
     private Mono<ExperimentResult> reserveTableAndLeave() {
         String customerId = UUID.randomUUID().toString();
+        String tableId = "table-" + customerId;
         long delay = 22L;
-        return requestTable(customerId, TABLE_ID)
+        return requestTable(customerId, tableId)
                 .delayElement(Duration.ofSeconds(delay))
                 .flatMap(ignored -> fetchReservationStatus(customerId))
                 .onErrorResume(WebClientResponseException.class, exception -> Mono.just(exception.getStatusCode().toString()))
@@ -144,22 +158,23 @@ class ApplicationTests {
 
     private Mono<ExperimentResult> reserveTableAndPayLate() {
         String customerId = UUID.randomUUID().toString();
+        String tableId = "table-" + customerId;
         long delay = 20L;
-        return requestTable(customerId, TABLE_ID)
+        return requestTable(customerId, tableId)
                 .delayElement(Duration.ofSeconds(delay))
-                .flatMap(ignored -> payForTable(customerId, TABLE_ID))
+                .flatMap(ignored -> payForTable(customerId, tableId))
                 .delayElement(Duration.ofSeconds(2))
                 .flatMap(ignored -> fetchReservationStatus(customerId))
                 .map(status -> new ExperimentResult(customerId, status, "reserveTableAndPayLate"));
     }
 
-    private Mono<RecordMetadata> requestTable(String customerId, String TABLE_ID) {
-        var event = new Event.CustomerEvent.CustomerRequestedTable(customerId, TABLE_ID);
+    private Mono<RecordMetadata> requestTable(String customerId, String tableId) {
+        var event = new Event.CustomerEvent.CustomerRequestedTable(customerId, tableId);
         return kafkaEventProducer.produceEvent(event, Topics.CUSTOMER_EVENTS_TOPIC);
     }
 
-    private Mono<RecordMetadata> payForTable(String customerId, String TABLE_ID) {
-        var event = new Event.CustomerEvent.CustomerPaidForTable(customerId, TABLE_ID);
+    private Mono<RecordMetadata> payForTable(String customerId, String tableId) {
+        var event = new Event.CustomerEvent.CustomerPaidForTable(customerId, tableId);
         return kafkaEventProducer.produceEvent(event, Topics.CUSTOMER_EVENTS_TOPIC);
     }
 
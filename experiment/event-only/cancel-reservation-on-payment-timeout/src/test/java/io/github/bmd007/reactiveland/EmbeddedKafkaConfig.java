@@ -1,17 +1,17 @@
 package io.github.bmd007.reactiveland;
 
+import io.github.bmd007.reactiveland.configuration.KafkaStreamsStateListeners;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.kafka.config.StreamsBuilderFactoryBean;
 
 @Configuration
 @Profile("test")
 public class EmbeddedKafkaConfig {
     @Bean
-    public KafkaStreamsAwait kafkaStreamsAwait(StreamsBuilderFactoryBean streams) {
+    public KafkaStreamsAwait kafkaStreamsAwait(KafkaStreamsStateListeners stateListeners) {
         var await = new KafkaStreamsAwait();
-        streams.setStateListener(await);
+        stateListeners.register(await);
         return await;
     }
 }
@@ -1,5 +1,6 @@
 package io.github.bmd007.reactiveland;
 
+import static io.github.bmd007.reactiveland.domain.TableReservation.Status.AVAILABLE;
 import static io.github.bmd007.reactiveland.domain.TableReservation.Status.PAID_FOR;
 
 public record ExperimentResult(String customerId, String resultStatus, String methodName, boolean wasSuccessful) {
@@ -12,7 +13,8 @@ public record ExperimentResult(String customerId, String resultStatus, String me
         return switch (methodName) {
             case "reserveAndPayForTable" -> resultStatus.equals(PAID_FOR.name());
             case "reserveTableAndLeave" -> resultStatus.equals("404 NOT_FOUND");
-            case "reserveTableAndPayLate" -> resultStatus.equals("404 NOT_FOUND");
+            // the late payment is refused, the window it falls in holds no reservation of the customer
+            case "reserveTableAndPayLate" -> resultStatus.equals(AVAILABLE.name());
             default -> throw new IllegalStateException("Unexpected value: " + methodName);
         };
     }
@@ -0,0 +1,200 @@
+package io.github.bmd007.reactiveland;
+
+import io.github.bmd007.reactiveland.configuration.KafkaEventProducer;
+import io.github.bmd007.reactiveland.configuration.StateStores;
+import io.github.bmd007.reactiveland.configuration.Topics;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.processor.ReservationIndexer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.EVENT_BINARY_SERDE;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the topology of {@link KStreamAndKTableDefinitions}, exactly as the application builds it, on a
+ * {@link TopologyTestDriver}: no broker and no real waiting.<br>
+ * Time is simulated: events happen at the current simulated time, and moving the simulated time forward also moves
+ * the wall clock of the driver and pipes a tick, an event the topology ignores, at the new time: like the flow of
+ * customer events does in production, it moves the stream time, which fires the payment timeout punctuation before the
+ * wall clock one does.<br>
+ * Timed out reservations are counted through the e2e latency timer of the payment-timeout stage, which sees every one
+ * of them, so that counting them does not consume the reservation events.
+ */
+public class ReservationTopologyHarness implements AutoCloseable {
+
+    public static final Duration PAYMENT_TIMEOUT = Duration.ofSeconds(15);
+    public static final Duration TIMEOUT_SCAN_INTERVAL = Duration.ofSeconds(1);
+    public static final Duration TIMEOUT_WALL_CLOCK_GRACE = Duration.ofSeconds(5);
+    public static final Duration BOOKING_DURATION = Duration.ofHours(2);
+    public static final Duration DEDUPE_WINDOW = Duration.ofMinutes(5);
+    private static final String TICK_KEY = "tick";
+
+    private final Path stateDir;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TopologyTestDriver driver;
+    private final TestInputTopic<String, Event> customerEvents;
+    private final TestOutputTopic<String, Event> tableDecisions;
+    private final TestOutputTopic<String, Event> reservationEvents;
+    private Instant now;
+
+    public ReservationTopologyHarness(Instant start) {
+        try {
+            stateDir = Files.createTempDirectory("reservation-topology-harness");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var streamsBuilder = new StreamsBuilder();
+        new KStreamAndKTableDefinitions(streamsBuilder, mock(KafkaEventProducer.class), PAYMENT_TIMEOUT, TIMEOUT_SCAN_INTERVAL,
+                TIMEOUT_WALL_CLOCK_GRACE, BOOKING_DURATION, DEDUPE_WINDOW, 10_000, 0.01, Materialized.StoreType.IN_MEMORY,
+                stateDir.resolve("snapshots"), meterRegistry)
+                .configureStores();
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "reservation-topology-harness");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass().getName());
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(streamsBuilder.build(), props, start);
+        customerEvents = driver.createInputTopic(Topics.CUSTOMER_EVENTS_TOPIC, Serdes.String().serializer(), EVENT_BINARY_SERDE);
+        tableDecisions = driver.createOutputTopic(Topics.TABLE_DECISIONS_TOPIC, Serdes.String().deserializer(), EVENT_BINARY_SERDE);
+        reservationEvents = driver.createOutputTopic(Topics.RESERVATION_EVENTS_TOPIC, Serdes.String().deserializer(), EVENT_BINARY_SERDE);
+        now = start;
+    }
+
+    public Instant now() {
+        return now;
+    }
+
+    public void requestTable(String customerId, String tableId) {
+        pipe(new Event.CustomerEvent.CustomerRequestedTable(customerId, tableId, now));
+    }
+
+    public void payForTable(String customerId, String tableId) {
+        pipe(new Event.CustomerEvent.CustomerPaidForTable(customerId, tableId, now));
+    }
+
+    /**
+     * Pipes an event as its producer would, first moving the simulated time to the moment the event happened if that
+     * is later than now.
+     */
+    public void pipe(Event event) {
+        if (event.timestamp() != null && event.timestamp().isAfter(now)) {
+            moveClockTo(event.timestamp());
+        }
+        customerEvents.pipeInput(event.key(), event, now);
+    }
+
+    public void advance(Duration duration) {
+        advanceTo(now.plus(duration));
+    }
+
+    public void advanceTo(Instant instant) {
+        moveClockTo(instant);
+        customerEvents.pipeInput(TICK_KEY, new Event.DefaultEvent(), now);
+    }
+
+    private void moveClockTo(Instant instant) {
+        driver.advanceWallClockTime(Duration.between(now, instant));
+        now = instant;
+    }
+
+    /**
+     * @return the status of the latest reservation of the customer in the current window, null if there is no window
+     * and {@link TableReservation.Status#AVAILABLE} if the customer holds no table in it
+     */
+    public TableReservation.Status status(String customerId) {
+        var customerReservations = reservations(customerId);
+        if (customerReservations == null) {
+            return null;
+        }
+        var latest = customerReservations.latest();
+        return latest == null ? TableReservation.Status.AVAILABLE : latest.getStatus();
+    }
+
+    /**
+     * @return the status of the reservation of the table by the customer in the current window, null if there is none
+     */
+    public TableReservation.Status status(String customerId, String tableId) {
+        var customerReservations = reservations(customerId);
+        if (customerReservations == null) {
+            return null;
+        }
+        return customerReservations.reservation(tableId).map(TableReservation::getStatus).orElse(null);
+    }
+
+    /**
+     * @return the customers the reservation index has under the key prefix in the current window
+     */
+    public List<String> indexedCustomers(String keyPrefix) {
+        var index = driver.<String, String>getWindowStore(StateStores.RESERVATION_INDEX_IN_MEMORY_STATE_STORE);
+        try (var iterator = index.fetch(keyPrefix, ReservationIndexer.keyPrefixEnd(keyPrefix), now.minus(PAYMENT_TIMEOUT), now)) {
+            var customerIds = new ArrayList<String>();
+            iterator.forEachRemaining(keyValue -> customerIds.add(keyValue.value));
+            return customerIds;
+        }
+    }
+
+    /**
+     * @return the decisions of the table arbiter since the last call
+     */
+    public List<Event> tableDecisions() {
+        return tableDecisions.readValuesToList();
+    }
+
+    /**
+     * @return the outcomes of the reservations since the last call
+     */
+    public List<Event> reservationEvents() {
+        return reservationEvents.readValuesToList();
+    }
+
+    public long timedOutReservations() {
+        var timer = meterRegistry.find("kafka.stream.record.e2e.latency").tag("stage", "payment-timeout").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    public long duplicateEvents() {
+        return (long) meterRegistry.get("reservation.events.duplicates").counter().count();
+    }
+
+    @Override
+    public void close() {
+        driver.close();
+        try {
+            Utils.delete(stateDir.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CustomerReservations reservations(String customerId) {
+        var store = driver.<String, CustomerReservations>getTimestampedWindowStore(StateStores.RESERVATION_STATUS_IN_MEMORY_STATE_STORE);
+        try (var iterator = store.backwardFetch(customerId, now.minus(PAYMENT_TIMEOUT), now)) {
+            return iterator.hasNext() ? valueOf(iterator.next().value) : null;
+        }
+    }
+
+    private static CustomerReservations valueOf(ValueAndTimestamp<CustomerReservations> valueAndTimestamp) {
+        return valueAndTimestamp == null ? null : valueAndTimestamp.value();
+    }
+}
@@ -0,0 +1,275 @@
+package io.github.bmd007.reactiveland;
+
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentRefused;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationConfirmed;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationRejected;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationTimedOut;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableRejected;
+import io.github.bmd007.reactiveland.processor.ReservationIndexer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static io.github.bmd007.reactiveland.ReservationTopologyHarness.PAYMENT_TIMEOUT;
+import static io.github.bmd007.reactiveland.ReservationTopologyHarness.TIMEOUT_SCAN_INTERVAL;
+import static io.github.bmd007.reactiveland.domain.TableReservation.Status.AVAILABLE;
+import static io.github.bmd007.reactiveland.domain.TableReservation.Status.PAID_FOR;
+import static io.github.bmd007.reactiveland.domain.TableReservation.Status.RESERVED_AWAITING_PAYMENT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The scenarios of {@link ApplicationTests}, in simulated time. Run with -Ptopology.replay.events=N to replay more
+ * generated events and measure the throughput of the topology.
+ */
+class ReservationTopologyTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReservationTopologyTest.class);
+
+    private static final Instant START = Instant.parse("2024-10-29T18:00:00Z");
+    private static final String TABLE_ID = "tableId";
+    private static final double PAYING_CUSTOMERS = 0.8;
+
+    private ReservationTopologyHarness harness;
+
+    @BeforeEach
+    void beforeEach() {
+        harness = new ReservationTopologyHarness(START);
+    }
+
+    @AfterEach
+    void afterEach() {
+        harness.close();
+    }
+
+    @Test
+    void reserveAndPayForTable() {
+        //given
+        harness.requestTable("customer", TABLE_ID);
+        //when
+        harness.advance(Duration.ofSeconds(5));
+        harness.payForTable("customer", TABLE_ID);
+        harness.advance(Duration.ofSeconds(2));
+        //then
+        assertThat(harness.status("customer")).isEqualTo(PAID_FOR);
+        assertThat(harness.reservationEvents()).containsExactly(new ReservationConfirmed("customer", TABLE_ID, START.plusSeconds(5)));
+        //when
+        harness.advance(PAYMENT_TIMEOUT);
+        //then
+        assertThat(harness.timedOutReservations()).isZero();
+        assertThat(harness.reservationEvents()).isEmpty();
+    }
+
+    @Test
+    void reserveTableAtTheEndOfAWindowAndPayInTheNext() {
+        //given
+        var windowSize = KStreamAndKTableDefinitions.RESERVATION_WINDOW_SIZE;
+        harness.advanceTo(START.plus(windowSize).minusSeconds(1));
+        harness.requestTable("customer", TABLE_ID);
+        //when
+        harness.advance(Duration.ofSeconds(5));
+        harness.payForTable("customer", TABLE_ID);
+        //then
+        assertThat(harness.status("customer")).isEqualTo(PAID_FOR);
+        //when
+        harness.advance(PAYMENT_TIMEOUT);
+        //then
+        assertThat(harness.timedOutReservations()).isZero();
+        assertThat(harness.reservationEvents()).containsExactly(
+                new ReservationConfirmed("customer", TABLE_ID, START.plus(windowSize).plusSeconds(4)));
+    }
+
+    @Test
+    void reserveTableAndPayLate() {
+        //given
+        harness.requestTable("customer", TABLE_ID);
+        //when
+        harness.advance(PAYMENT_TIMEOUT.plus(TIMEOUT_SCAN_INTERVAL));
+        //then
+        assertThat(harness.timedOutReservations()).isEqualTo(1);
+        //when
+        harness.advance(Duration.ofSeconds(4));
+        harness.payForTable("customer", TABLE_ID);
+        //then the table is no longer held for the customer
+        assertThat(harness.tableDecisions()).endsWith(new PaymentRefused("customer", TABLE_ID, harness.now()));
+        assertThat(harness.status("customer")).isNotEqualTo(PAID_FOR);
+    }
+
+    @Test
+    void reserveTableAndLeave() {
+        //given
+        harness.requestTable("customer", TABLE_ID);
+        //when
+        harness.advance(PAYMENT_TIMEOUT.minus(TIMEOUT_SCAN_INTERVAL));
+        //then
+        assertThat(harness.status("customer")).isEqualTo(RESERVED_AWAITING_PAYMENT);
+        assertThat(harness.timedOutReservations()).isZero();
+        //when
+        harness.advance(TIMEOUT_SCAN_INTERVAL.multipliedBy(2));
+        //then
+        assertThat(harness.timedOutReservations()).isEqualTo(1);
+        assertThat(harness.reservationEvents()).containsExactly(new ReservationTimedOut("customer", TABLE_ID, START.plus(PAYMENT_TIMEOUT)));
+    }
+
+    @Test
+    void reserveSeveralTablesAndPayForOne() {
+        //given
+        harness.requestTable("customer", "first-table");
+        harness.advance(Duration.ofSeconds(1));
+        harness.requestTable("customer", "second-table");
+        //when
+        harness.advance(Duration.ofSeconds(2));
+        harness.payForTable("customer", "second-table");
+        harness.advance(Duration.ofSeconds(1));
+        //then
+        assertThat(harness.status("customer", "first-table")).isEqualTo(RESERVED_AWAITING_PAYMENT);
+        assertThat(harness.status("customer", "second-table")).isEqualTo(PAID_FOR);
+        //when
+        harness.advance(PAYMENT_TIMEOUT);
+        //then only the unpaid table timed out
+        assertThat(harness.timedOutReservations()).isEqualTo(1);
+    }
+
+    @Test
+    void indexesReservationsByTableAndStatus() {
+        //given
+        harness.requestTable("first", "first-table");
+        harness.requestTable("second", "second-table");
+        //when
+        harness.advance(Duration.ofSeconds(1));
+        harness.payForTable("second", "second-table");
+        harness.advance(Duration.ofSeconds(1));
+        //then
+        assertThat(harness.indexedCustomers(ReservationIndexer.tableKeyPrefix("second-table"))).containsExactly("second");
+        assertThat(harness.indexedCustomers(ReservationIndexer.statusKeyPrefix(PAID_FOR))).containsExactly("second");
+        // entries of older states stay, readers check them against the reservations
+        assertThat(harness.indexedCustomers(ReservationIndexer.statusKeyPrefix(RESERVED_AWAITING_PAYMENT))).containsExactlyInAnyOrder("first", "second");
+    }
+
+    @Test
+    void indexesCustomersWhoseIdsHaveSupplementaryCharacters() {
+        //given
+        var customerId = "\uD83D\uDE00-customer";
+        //when
+        harness.requestTable(customerId, "table");
+        harness.advance(Duration.ofSeconds(1));
+        //then
+        assertThat(harness.indexedCustomers(ReservationIndexer.tableKeyPrefix("table"))).containsExactly(customerId);
+    }
+
+    @Test
+    void tableGoesToFirstCustomerAndFreesUpWhenTheirPaymentTimesOut() {
+        //given
+        harness.requestTable("first", TABLE_ID);
+        //when
+        harness.advance(Duration.ofSeconds(1));
+        harness.requestTable("second", TABLE_ID);
+        harness.advance(Duration.ofSeconds(1));
+        //then
+        assertThat(harness.tableDecisions()).containsExactly(
+                new TableGranted("first", TABLE_ID, START),
+                new TableRejected("second", TABLE_ID, START.plusSeconds(1)));
+        assertThat(harness.status("first")).isEqualTo(RESERVED_AWAITING_PAYMENT);
+        assertThat(harness.status("second")).isEqualTo(AVAILABLE);
+        assertThat(harness.reservationEvents()).containsExactly(new ReservationRejected("second", TABLE_ID, START.plusSeconds(1)));
+        //when
+        harness.advance(PAYMENT_TIMEOUT);
+        harness.requestTable("third", TABLE_ID);
+        //then
+        assertThat(harness.timedOutReservations()).isEqualTo(1);
+        assertThat(harness.tableDecisions()).containsExactly(new TableGranted("third", TABLE_ID, harness.now()));
+    }
+
+    @Test
+    void customerWhoseRequestLostTheTableCanNotBookItByPaying() {
+        //given
+        harness.requestTable("first", TABLE_ID);
+        harness.requestTable("second", TABLE_ID);
+        //when
+        harness.payForTable("second", TABLE_ID);
+        harness.advance(Duration.ofSeconds(1));
+        harness.payForTable("first", TABLE_ID);
+        //then
+        assertThat(harness.tableDecisions()).containsExactly(
+                new TableGranted("first", TABLE_ID, START),
+                new TableRejected("second", TABLE_ID, START),
+                new PaymentRefused("second", TABLE_ID, START),
+                new PaymentAccepted("first", TABLE_ID, START.plusSeconds(1)));
+        assertThat(harness.status("first")).isEqualTo(PAID_FOR);
+        assertThat(harness.status("second")).isEqualTo(AVAILABLE);
+        assertThat(harness.reservationEvents()).containsExactly(
+                new ReservationRejected("second", TABLE_ID, START),
+                new ReservationConfirmed("first", TABLE_ID, START.plusSeconds(1)));
+    }
+
+    @Test
+    void retriedCommandsAreProcessedOnce() {
+        //given
+        harness.pipe(new CustomerRequestedTable("customer", TABLE_ID, harness.now(), "request"));
+        harness.advance(Duration.ofSeconds(1));
+        harness.pipe(new CustomerRequestedTable("customer", TABLE_ID, harness.now(), "request"));
+        //when
+        harness.advance(Duration.ofSeconds(1));
+        harness.pipe(new CustomerPaidForTable("customer", TABLE_ID, harness.now(), "payment"));
+        harness.pipe(new CustomerPaidForTable("customer", TABLE_ID, harness.now(), "payment"));
+        //then
+        assertThat(harness.duplicateEvents()).isEqualTo(2);
+        assertThat(harness.tableDecisions()).containsExactly(
+                new TableGranted("customer", TABLE_ID, START),
+                new PaymentAccepted("customer", TABLE_ID, START.plusSeconds(2)));
+        assertThat(harness.reservationEvents()).containsExactly(new ReservationConfirmed("customer", TABLE_ID, START.plusSeconds(2)));
+        assertThat(harness.status("customer")).isEqualTo(PAID_FOR);
+    }
+
+    @Test
+    void replaysGeneratedEvents() {
+        //given
+        var eventCount = Integer.getInteger("topology.replay.events", 5_000);
+        var events = generate(eventCount);
+        var leavingCustomers = events.stream().filter(event -> event instanceof CustomerRequestedTable).count()
+                - events.stream().filter(event -> event instanceof CustomerPaidForTable).count();
+        //when
+        var startNanos = System.nanoTime();
+        events.forEach(harness::pipe);
+        var elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        harness.advance(PAYMENT_TIMEOUT.plus(TIMEOUT_SCAN_INTERVAL));
+        //then
+        LOGGER.info("replayed {} events in {} ms, {} records/s", events.size(), elapsed.toMillis(),
+                events.size() * 1_000_000_000L / Math.max(1, elapsed.toNanos()));
+        assertThat(harness.timedOutReservations()).isEqualTo(leavingCustomers);
+    }
+
+    /**
+     * One customer requesting a table every millisecond, most of them paying before their payment deadline, ordered by
+     * time.
+     */
+    private static List<Event> generate(int eventCount) {
+        var random = new Random(42);
+        var events = new ArrayList<Event>(eventCount);
+        for (int i = 0; events.size() < eventCount; i++) {
+            var customerId = "customer-" + i;
+            // no two customers want the same table, competing for tables is covered by the arbiter tests
+            var tableId = "table-" + i;
+            var requestedAt = START.plusMillis(i);
+            events.add(new CustomerRequestedTable(customerId, tableId, requestedAt));
+            if (random.nextDouble() < PAYING_CUSTOMERS && events.size() < eventCount) {
+                events.add(new CustomerPaidForTable(customerId, tableId, requestedAt.plusMillis(random.nextLong(PAYMENT_TIMEOUT.toMillis()))));
+            }
+        }
+        events.sort(Comparator.comparing(Event::timestamp));
+        return events;
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.state.WindowStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedMemoryRocksDBConfigTest {
+
+    private static final Instant START = Instant.parse("2024-10-29T18:00:00Z");
+
+    @TempDir
+    Path stateDir;
+
+    @Test
+    void windowStoreBackedByRocksDbUsesSharedBoundedCache() {
+        //given
+        var builder = new StreamsBuilder();
+        builder.stream("input", Consumed.with(Serdes.String(), Serdes.String()))
+                .groupByKey()
+                .windowedBy(TimeWindows.ofSizeWithNoGrace(Duration.ofSeconds(15)))
+                .count(Materialized.<String, Long, WindowStore<Bytes, byte[]>>as("counts").withStoreType(Materialized.StoreType.ROCKS_DB));
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "bounded-memory-rocksdb-config-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        props.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, BoundedMemoryRocksDBConfig.class);
+        props.put(BoundedMemoryRocksDBConfig.TOTAL_OFF_HEAP_MEMORY_CONFIG, 16 * 1024 * 1024L);
+        props.put(BoundedMemoryRocksDBConfig.TOTAL_MEMTABLE_MEMORY_CONFIG, 4 * 1024 * 1024L);
+        //when
+        try (var driver = new TopologyTestDriver(builder.build(), props, START)) {
+            var input = driver.createInputTopic("input", Serdes.String().serializer(), Serdes.String().serializer());
+            input.pipeInput("customer", "event", START);
+            input.pipeInput("customer", "event", START.plusSeconds(1));
+            //then
+            WindowStore<String, Long> counts = driver.getWindowStore("counts");
+            try (var iterator = counts.fetch("customer", START.minusSeconds(15), START.plusSeconds(15))) {
+                assertThat(iterator.next().value).isEqualTo(2L);
+            }
+            assertThat(BoundedMemoryRocksDBConfig.blockCacheUsage()).isPositive();
+        }
+    }
+}
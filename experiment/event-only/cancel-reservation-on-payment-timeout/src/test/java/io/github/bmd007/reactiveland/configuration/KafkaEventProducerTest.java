@@ -0,0 +1,108 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.EVENT_BINARY_SERDE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KafkaEventProducerTest {
+
+    private static final int MAX_IN_FLIGHT = 2;
+
+    private MockProducer<String, Event> mockProducer;
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaEventProducer kafkaEventProducer;
+
+    @BeforeEach
+    void beforeEach() {
+        mockProducer = new MockProducer<>(false, new StringSerializer(), EVENT_BINARY_SERDE.serializer());
+        meterRegistry = new SimpleMeterRegistry();
+        kafkaEventProducer = new KafkaEventProducer(mockProducer, MAX_IN_FLIGHT, meterRegistry, Schedulers.immediate());
+    }
+
+    @Test
+    void completesFromSendCallback() {
+        //given
+        var produced = kafkaEventProducer.produceEvent(new CustomerRequestedTable("customer", "table"), Topics.CUSTOMER_EVENTS_TOPIC);
+        //when then
+        StepVerifier.create(produced)
+                .then(() -> assertThat(inFlight()).isEqualTo(1))
+                .then(mockProducer::completeNext)
+                .assertNext(recordMetadata -> assertThat(recordMetadata.topic()).isEqualTo(Topics.CUSTOMER_EVENTS_TOPIC))
+                .verifyComplete();
+        assertThat(inFlight()).isZero();
+        assertThat(meterRegistry.get("reservation.producer.send").tag("result", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void propagatesSendFailures() {
+        //given
+        var produced = kafkaEventProducer.produceEvent(new CustomerRequestedTable("customer", "table"), Topics.CUSTOMER_EVENTS_TOPIC);
+        //when then
+        StepVerifier.create(produced)
+                .then(() -> mockProducer.errorNext(new IllegalStateException("broker down")))
+                .expectErrorMessage("broker down")
+                .verify();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void boundsInFlightSends() {
+        //given
+        var events = Flux.range(0, 5).map(i -> (Event) new CustomerRequestedTable("customer" + i, "table"));
+        //when then
+        StepVerifier.create(kafkaEventProducer.produceEvents(events, Topics.CUSTOMER_EVENTS_TOPIC))
+                .then(() -> assertThat(mockProducer.history()).hasSize(MAX_IN_FLIGHT))
+                .then(mockProducer::completeNext)
+                .assertNext(recordMetadata -> assertThat(recordMetadata.offset()).isZero())
+                .then(() -> assertThat(mockProducer.history()).hasSize(MAX_IN_FLIGHT + 1))
+                .then(() -> {
+                    while (mockProducer.completeNext()) {
+                        // drain whatever is in flight until the flux completes
+                    }
+                })
+                .thenConsumeWhile(recordMetadata -> {
+                    while (mockProducer.completeNext()) {
+                        // every acknowledgement lets one more event in
+                    }
+                    return true;
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        assertThat(mockProducer.history()).hasSize(5);
+    }
+
+    @Test
+    void signalsOnTheSchedulerInsteadOfTheCallbackThread() {
+        //given
+        var scheduler = Schedulers.newSingle("event-producer-test");
+        var producer = new KafkaEventProducer(mockProducer, MAX_IN_FLIGHT, meterRegistry, scheduler);
+        var produced = producer.produceEvent(new CustomerRequestedTable("customer", "table"), Topics.CUSTOMER_EVENTS_TOPIC)
+                .map(ignored -> Thread.currentThread().getName());
+        //when then
+        try {
+            StepVerifier.create(produced)
+                    .then(mockProducer::completeNext)
+                    .assertNext(threadName -> assertThat(threadName).startsWith("event-producer-test"))
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("reservation.producer.in-flight").gauge().value();
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+
+import static org.apache.kafka.streams.KafkaStreams.State.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class KafkaStreamsRestoreHealthIndicatorTest {
+
+    private static final String STORE = "store";
+    private static final TopicPartition CHANGELOG = new TopicPartition("app-store-changelog", 2);
+
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaStreamsStateListeners stateListeners;
+    private StateRestoreProgress restoreProgress;
+    private KafkaStreamsRestoreHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void beforeEach() {
+        var streams = mock(StreamsBuilderFactoryBean.class);
+        meterRegistry = new SimpleMeterRegistry();
+        stateListeners = new KafkaStreamsStateListeners(streams);
+        restoreProgress = new StateRestoreProgress(streams, meterRegistry);
+        healthIndicator = new KafkaStreamsRestoreHealthIndicator(restoreProgress, stateListeners);
+    }
+
+    @Test
+    void downUntilRunning() {
+        //when
+        stateListeners.onChange(REBALANCING, CREATED);
+        //then
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+        //when
+        stateListeners.onChange(RUNNING, REBALANCING);
+        //then
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void downWhileStoresRestoreAfterRebalance() {
+        //given
+        stateListeners.onChange(RUNNING, REBALANCING);
+        stateListeners.onChange(REBALANCING, RUNNING);
+        //when
+        restoreProgress.onRestoreStart(CHANGELOG, STORE, 100, 1100);
+        restoreProgress.onBatchRestored(CHANGELOG, STORE, 399, 300);
+        //then
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(restoreProgress.restoring()).containsExactly(new StateRestoreProgress.Restoring(STORE, 2, 300, 700));
+        assertThat(meterRegistry.get("kafka.stream.restore.restored.records").tag("store", STORE).tag("partition", "2").gauge().value()).isEqualTo(300);
+        assertThat(meterRegistry.get("kafka.stream.restore.remaining.records").tag("store", STORE).tag("partition", "2").gauge().value()).isEqualTo(700);
+        assertThat(meterRegistry.get("kafka.stream.restore.rate").tag("store", STORE).tag("partition", "2").gauge().value()).isPositive();
+        //when
+        restoreProgress.onRestoreEnd(CHANGELOG, STORE, 1000);
+        //then
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(meterRegistry.get("kafka.stream.restore.remaining.records").gauge().value()).isZero();
+    }
+
+    @Test
+    void rateStopsChangingOnceRestored() throws InterruptedException {
+        //given
+        restoreProgress.onRestoreStart(CHANGELOG, STORE, 100, 1100);
+        restoreProgress.onBatchRestored(CHANGELOG, STORE, 1099, 1000);
+        restoreProgress.onRestoreEnd(CHANGELOG, STORE, 1000);
+        var rate = meterRegistry.get("kafka.stream.restore.rate").tag("store", STORE).tag("partition", "2").gauge();
+        var rateAtEnd = rate.value();
+        //when
+        Thread.sleep(20);
+        //then
+        assertThat(rateAtEnd).isPositive();
+        assertThat(rate.value()).isEqualTo(rateAtEnd);
+    }
+
+    @Test
+    void downAgainOnceStreamsStopped() {
+        //given
+        stateListeners.onChange(RUNNING, REBALANCING);
+        //when
+        stateListeners.onChange(PENDING_ERROR, RUNNING);
+        //then
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.bmd007.reactiveland.configuration;
+
+import io.github.bmd007.reactiveland.configuration.StreamThreadAutoscaler.Decision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.ThreadMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StreamThreadAutoscalerTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+    private static final long INTERVAL = 10 * SECOND;
+
+    private StreamThreadAutoscaler autoscaler;
+
+    @BeforeEach
+    void beforeEach() {
+        autoscaler = new StreamThreadAutoscaler(mock(StreamsBuilderFactoryBean.class), 1, 3, Duration.ofHours(1),
+                10_000, 1_000, Duration.ofSeconds(30), 3, Duration.ofSeconds(60), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void afterEach() {
+        autoscaler.stop();
+    }
+
+    @Test
+    void scalesUpOnlyAfterLagStayedHighForStableIntervals() {
+        //given
+        var now = System.nanoTime();
+        //when
+        var first = autoscaler.decide(50_000, 100, 1, now);
+        var second = autoscaler.decide(50_000, 100, 1, now + INTERVAL);
+        var third = autoscaler.decide(50_000, 100, 1, now + 2 * INTERVAL);
+        //then
+        assertThat(first).isEqualTo(Decision.NONE);
+        assertThat(second).isEqualTo(Decision.NONE);
+        assertThat(third).isEqualTo(Decision.UP);
+    }
+
+    @Test
+    void doesNotScaleUpWhenLagIsCaughtUpFastEnough() {
+        //given
+        var now = System.nanoTime();
+        //when
+        for (int i = 0; i < 5; i++) {
+            //then 50_000 records at 10_000 records/s is 5s of catching up
+            assertThat(autoscaler.decide(50_000, 10_000, 1, now + i * INTERVAL)).isEqualTo(Decision.NONE);
+        }
+    }
+
+    @Test
+    void spikeInterruptedByLowLagResetsHysteresis() {
+        //given
+        var now = System.nanoTime();
+        autoscaler.decide(50_000, 100, 1, now);
+        autoscaler.decide(50_000, 100, 1, now + INTERVAL);
+        //when
+        autoscaler.decide(5_000, 100, 1, now + 2 * INTERVAL);
+        var afterReset = autoscaler.decide(50_000, 100, 1, now + 3 * INTERVAL);
+        //then
+        assertThat(afterReset).isEqualTo(Decision.NONE);
+    }
+
+    @Test
+    void waitsForCooldownAndStaysWithinBounds() {
+        //given
+        var now = System.nanoTime();
+        for (int i = 0; i < 2; i++) {
+            autoscaler.decide(50_000, 100, 1, now + i * INTERVAL);
+        }
+        assertThat(autoscaler.decide(50_000, 100, 1, now + 2 * INTERVAL)).isEqualTo(Decision.UP);
+        //when within the cooldown
+        for (int i = 3; i < 8; i++) {
+            //then
+            assertThat(autoscaler.decide(50_000, 100, 2, now + i * INTERVAL)).isEqualTo(Decision.NONE);
+        }
+        //when after the cooldown
+        assertThat(autoscaler.decide(50_000, 100, 2, now + 8 * INTERVAL)).isEqualTo(Decision.UP);
+        //then at max
+        for (int i = 16; i < 20; i++) {
+            assertThat(autoscaler.decide(50_000, 100, 3, now + i * INTERVAL)).isEqualTo(Decision.NONE);
+        }
+    }
+
+    @Test
+    void scalesDownAfterLagStayedLowButNotBelowMin() {
+        //given
+        var now = System.nanoTime();
+        autoscaler.decide(10, 100, 2, now);
+        autoscaler.decide(10, 100, 2, now + INTERVAL);
+        //when
+        var down = autoscaler.decide(10, 100, 2, now + 2 * INTERVAL);
+        //then
+        assertThat(down).isEqualTo(Decision.DOWN);
+        for (int i = 9; i < 13; i++) {
+            assertThat(autoscaler.decide(10, 100, 1, now + i * INTERVAL)).isEqualTo(Decision.NONE);
+        }
+    }
+
+    @Test
+    void removesThreadOffTheAutoscalerThreadAndOneAtATime() throws InterruptedException {
+        //given
+        var streams = mock(StreamsBuilderFactoryBean.class);
+        var kafkaStreams = mock(KafkaStreams.class);
+        when(streams.getKafkaStreams()).thenReturn(kafkaStreams);
+        when(kafkaStreams.state()).thenReturn(KafkaStreams.State.RUNNING);
+        when(kafkaStreams.metrics()).thenReturn(Map.of());
+        when(kafkaStreams.metadataForLocalThreads()).thenReturn(Set.of(mock(ThreadMetadata.class), mock(ThreadMetadata.class)));
+        var removal = new CountDownLatch(1);
+        var removingThread = new AtomicReference<String>();
+        when(kafkaStreams.removeStreamThread(any(Duration.class))).thenAnswer(invocation -> {
+            removingThread.set(Thread.currentThread().getName());
+            removal.await();
+            return Optional.of("stream-thread-2");
+        });
+        var runningAutoscaler = new StreamThreadAutoscaler(streams, 1, 3, Duration.ofMillis(10),
+                10_000, 1_000, Duration.ofSeconds(30), 1, Duration.ZERO, new SimpleMeterRegistry());
+        //when
+        runningAutoscaler.start();
+        Thread.sleep(200);
+        //then the checks go on while the removal waits, without removing another thread
+        verify(kafkaStreams, atLeast(5)).state();
+        verify(kafkaStreams, times(1)).removeStreamThread(any(Duration.class));
+        assertThat(removingThread.get()).doesNotStartWith("stream-thread-autoscaler");
+        removal.countDown();
+        runningAutoscaler.stop();
+    }
+}
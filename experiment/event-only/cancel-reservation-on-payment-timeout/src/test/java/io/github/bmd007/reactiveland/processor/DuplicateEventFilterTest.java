@@ -0,0 +1,113 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.EVENT_BINARY_SERDE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateEventFilterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(4);
+    private static final Instant START = Instant.parse("2024-10-29T18:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Event> events;
+    private TestOutputTopic<String, Event> deduplicated;
+
+    @AfterEach
+    void afterEach() {
+        driver.close();
+    }
+
+    @Test
+    void dropsEventsWhoseIdWasAlreadySeen() {
+        //given
+        start(1_000, 0.01);
+        var request = new CustomerRequestedTable("customer", "table", START, "request");
+        var payment = new CustomerPaidForTable("customer", "table", START.plusSeconds(2), "payment");
+        //when
+        events.pipeInput("customer", request, START);
+        events.pipeInput("customer", request, START.plusSeconds(1));
+        events.pipeInput("customer", payment, START.plusSeconds(2));
+        events.pipeInput("customer", payment, START.plusSeconds(3));
+        //then
+        assertThat(deduplicated.readValuesToList()).containsExactly(request, payment);
+        assertThat(meterRegistry.get("reservation.events.duplicates").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void passesEventsWithoutId() {
+        //given
+        start(1_000, 0.01);
+        var request = new CustomerRequestedTable("customer", "table", START);
+        var decision = new TableGranted("customer", "table", START);
+        //when
+        events.pipeInput("customer", request, START);
+        events.pipeInput("customer", request, START);
+        events.pipeInput("customer", decision, START);
+        events.pipeInput("customer", decision, START);
+        //then
+        assertThat(deduplicated.readValuesToList()).containsExactly(request, request, decision, decision);
+    }
+
+    @Test
+    void forgetsIdsOnceOutOfTheWindow() {
+        //given
+        start(1_000, 0.01);
+        var request = new CustomerRequestedTable("customer", "table", START, "request");
+        events.pipeInput("customer", request, START);
+        //when
+        var late = START.plus(WINDOW).plus(WINDOW.dividedBy(4));
+        events.pipeInput("customer", request, late);
+        //then
+        assertThat(deduplicated.readValuesToList()).containsExactly(request, request);
+    }
+
+    @Test
+    void falsePositivesOfTheBloomFilterAreNotDropped() {
+        //given a filter sized far too small, that takes almost every id for one it has seen
+        start(1, 0.5);
+        var requests = IntStream.range(0, 100)
+                .mapToObj(i -> (Event) new CustomerRequestedTable("customer", "table-" + i, START, "request-" + i))
+                .toList();
+        //when
+        requests.forEach(request -> events.pipeInput("customer", request, START));
+        //then
+        assertThat(deduplicated.readValuesToList()).containsExactlyElementsOf(requests);
+        assertThat(meterRegistry.get("reservation.events.dedupe.false-positives").counter().count()).isPositive();
+        assertThat(meterRegistry.get("reservation.events.duplicates").counter().count()).isZero();
+    }
+
+    private void start(int expectedEventsPerWindow, double falsePositiveRate) {
+        var builder = new StreamsBuilder();
+        builder.stream("events", Consumed.with(Serdes.String(), EVENT_BINARY_SERDE))
+                .processValues(new DuplicateEventFilter(WINDOW, expectedEventsPerWindow, falsePositiveRate, meterRegistry))
+                .to("deduplicated", Produced.with(Serdes.String(), EVENT_BINARY_SERDE));
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "duplicate-event-filter-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(builder.build(), props, START);
+        events = driver.createInputTopic("events", Serdes.String().serializer(), EVENT_BINARY_SERDE);
+        deduplicated = driver.createOutputTopic("deduplicated", Serdes.String().deserializer(), EVENT_BINARY_SERDE);
+    }
+}
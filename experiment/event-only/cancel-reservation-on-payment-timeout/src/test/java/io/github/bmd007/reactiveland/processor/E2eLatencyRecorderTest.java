@@ -0,0 +1,49 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class E2eLatencyRecorderTest {
+
+    private static final Instant START = Instant.parse("2024-10-29T18:00:00Z");
+
+    @Test
+    void recordsAgeOfRecordsAndPassesThemThrough() {
+        //given
+        var meterRegistry = new SimpleMeterRegistry();
+        var builder = new StreamsBuilder();
+        builder.stream("input", Consumed.with(Serdes.String(), Serdes.String()))
+                .processValues(new E2eLatencyRecorder<>("stage", meterRegistry))
+                .to("output", Produced.with(Serdes.String(), Serdes.String()));
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "e2e-latency-recorder-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        try (var driver = new TopologyTestDriver(builder.build(), props, START)) {
+            var input = driver.createInputTopic("input", Serdes.String().serializer(), Serdes.String().serializer());
+            var output = driver.createOutputTopic("output", Serdes.String().deserializer(), Serdes.String().deserializer());
+            //when
+            input.pipeInput("customer", "event", START.minusSeconds(2));
+            driver.advanceWallClockTime(Duration.ofSeconds(1));
+            input.pipeInput("customer", "event", START.minusSeconds(2));
+            //then
+            assertThat(output.readValuesToList()).containsExactly("event", "event");
+            var latency = meterRegistry.get("kafka.stream.record.e2e.latency").tag("stage", "stage").timer();
+            assertThat(latency.count()).isEqualTo(2);
+            assertThat(latency.max(TimeUnit.MILLISECONDS)).isEqualTo(3000);
+            assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5000);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentRefused;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationConfirmed;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationRejected;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationTimedOut;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableRejected;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.EVENT_BINARY_SERDE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentTimeoutDetectorTest {
+
+    private static final Duration PAYMENT_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration WALL_CLOCK_GRACE = Duration.ofSeconds(5);
+    private static final Instant START = Instant.parse("2024-10-29T18:00:00Z");
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Event> events;
+    private TestOutputTopic<String, Event> outcomes;
+
+    @BeforeEach
+    void beforeEach() {
+        var builder = new StreamsBuilder();
+        builder.stream("events", Consumed.with(Serdes.String(), EVENT_BINARY_SERDE))
+                .process(new PaymentTimeoutDetector(PAYMENT_TIMEOUT, Duration.ofSeconds(1), WALL_CLOCK_GRACE))
+                .mapValues(Event.class::cast)
+                .to("outcomes", Produced.with(Serdes.String(), EVENT_BINARY_SERDE));
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "payment-timeout-detector-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(builder.build(), props, START);
+        events = driver.createInputTopic("events", Serdes.String().serializer(), EVENT_BINARY_SERDE);
+        outcomes = driver.createOutputTopic("outcomes", Serdes.String().deserializer(), EVENT_BINARY_SERDE);
+    }
+
+    @AfterEach
+    void afterEach() {
+        driver.close();
+    }
+
+    @Test
+    void emitsTimeoutOnlyAfterDeadlinePassed() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        //when
+        tick(START.plus(PAYMENT_TIMEOUT).minusSeconds(1));
+        //then
+        assertThat(outcomes.isEmpty()).isTrue();
+        //when
+        tick(START.plus(PAYMENT_TIMEOUT));
+        //then
+        assertThat(outcomes.readKeyValuesToList())
+                .singleElement()
+                .satisfies(keyValue -> {
+                    assertThat(keyValue.key).isEqualTo("customer");
+                    assertThat(keyValue.value).isEqualTo(new ReservationTimedOut("customer", "table", START.plus(PAYMENT_TIMEOUT)));
+                });
+    }
+
+    @Test
+    void emitsTimeoutOnWallClockOnceNoRecordArrives() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        //when
+        driver.advanceWallClockTime(PAYMENT_TIMEOUT.plus(WALL_CLOCK_GRACE).minusSeconds(1));
+        //then
+        assertThat(outcomes.isEmpty()).isTrue();
+        //when
+        driver.advanceWallClockTime(Duration.ofSeconds(1));
+        //then
+        assertThat(outcomes.readValuesToList())
+                .containsExactly(new ReservationTimedOut("customer", "table", START.plus(PAYMENT_TIMEOUT)));
+    }
+
+    @Test
+    void acceptedPaymentConfirmsReservationAndCancelsDeadline() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        pipe(new TableGranted("customer", "table", START));
+        //when
+        pipe(new CustomerPaidForTable("customer", "table", START.plusSeconds(5)));
+        pipe(new PaymentAccepted("customer", "table", START.plusSeconds(5)));
+        tick(START.plus(PAYMENT_TIMEOUT.multipliedBy(2)));
+        //then
+        assertThat(outcomes.readValuesToList())
+                .containsExactly(new ReservationConfirmed("customer", "table", START.plusSeconds(5)));
+    }
+
+    @Test
+    void paymentInTimeAwaitsTheDecisionOfTheArbiterPastTheDeadline() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        pipe(new CustomerPaidForTable("customer", "table", START.plus(PAYMENT_TIMEOUT).minusMillis(1)));
+        //when
+        tick(START.plus(PAYMENT_TIMEOUT).plusSeconds(5));
+        pipe(new PaymentAccepted("customer", "table", START.plus(PAYMENT_TIMEOUT).minusMillis(1)));
+        //then
+        assertThat(outcomes.readValuesToList())
+                .containsExactly(new ReservationConfirmed("customer", "table", START.plus(PAYMENT_TIMEOUT).minusMillis(1)));
+    }
+
+    @Test
+    void paymentAcceptedAfterTheTimeoutDoesNotConfirmTheReservation() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        driver.advanceWallClockTime(PAYMENT_TIMEOUT.plus(WALL_CLOCK_GRACE));
+        //when
+        pipe(new CustomerPaidForTable("customer", "table", START.plus(PAYMENT_TIMEOUT).minusMillis(1)));
+        pipe(new PaymentAccepted("customer", "table", START.plus(PAYMENT_TIMEOUT).minusMillis(1)));
+        tick(START.plus(PAYMENT_TIMEOUT.multipliedBy(2)));
+        //then
+        assertThat(outcomes.readValuesToList())
+                .containsExactly(new ReservationTimedOut("customer", "table", START.plus(PAYMENT_TIMEOUT)));
+    }
+
+    @Test
+    void paymentAtTheDeadlineIsLate() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        //when
+        pipe(new CustomerPaidForTable("customer", "table", START.plus(PAYMENT_TIMEOUT)));
+        pipe(new PaymentRefused("customer", "table", START.plus(PAYMENT_TIMEOUT)));
+        tick(START.plus(PAYMENT_TIMEOUT).plusSeconds(1));
+        //then
+        assertThat(outcomes.readValuesToList())
+                .containsExactly(new ReservationTimedOut("customer", "table", START.plus(PAYMENT_TIMEOUT)));
+    }
+
+    @Test
+    void rejectedRequestIsRejectedEvenIfPaidFor() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        pipe(new CustomerPaidForTable("customer", "table", START.plusSeconds(1)));
+        //when
+        pipe(new TableRejected("customer", "table", START));
+        pipe(new PaymentRefused("customer", "table", START.plusSeconds(1)));
+        tick(START.plus(PAYMENT_TIMEOUT.multipliedBy(2)));
+        //then
+        assertThat(outcomes.readValuesToList())
+                .containsExactly(new ReservationRejected("customer", "table", START));
+    }
+
+    @Test
+    void repeatedRequestOfSameTableKeepsFirstDeadline() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "table", START));
+        //when
+        pipe(new CustomerRequestedTable("customer", "table", START.plusSeconds(10)));
+        tick(START.plus(PAYMENT_TIMEOUT));
+        //then
+        assertThat(outcomes.readValuesToList())
+                .containsExactly(new ReservationTimedOut("customer", "table", START.plus(PAYMENT_TIMEOUT)));
+    }
+
+    @Test
+    void everyTableOfCustomerHasItsOwnDeadline() {
+        //given
+        pipe(new CustomerRequestedTable("customer", "first", START));
+        pipe(new CustomerRequestedTable("customer", "second", START.plusSeconds(5)));
+        //when
+        pipe(new CustomerPaidForTable("customer", "first", START.plusSeconds(12)));
+        pipe(new PaymentAccepted("customer", "first", START.plusSeconds(12)));
+        tick(START.plus(PAYMENT_TIMEOUT.multipliedBy(2)));
+        //then
+        assertThat(outcomes.readValuesToList()).containsExactly(
+                new ReservationConfirmed("customer", "first", START.plusSeconds(12)),
+                new ReservationTimedOut("customer", "second", START.plusSeconds(5).plus(PAYMENT_TIMEOUT)));
+    }
+
+    private void pipe(Event event) {
+        events.pipeInput(event.key(), event, event.timestamp());
+    }
+
+    // moves stream time, which is what the punctuation runs on
+    private void tick(Instant at) {
+        events.pipeInput("other-customer", new Event.DefaultEvent(), at);
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.configuration.TopicCreator;
+import io.github.bmd007.reactiveland.serialization.WindowStoreSnapshotFile;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotLoadingWindowStoreTest {
+
+    private static final String APPLICATION_ID = "snapshot-loading-window-store-test";
+    private static final String STORE_NAME = "counts";
+    private static final Duration WINDOW_SIZE = Duration.ofSeconds(15);
+    private static final Instant START = Instant.parse("2024-10-29T18:00:00Z");
+
+    @TempDir
+    Path stateDir;
+
+    @TempDir
+    Path snapshotDir;
+
+    @Test
+    void storeStartsFromSnapshotAndCheckpointsItsChangelogOffset() throws Exception {
+        //given
+        var changelogPartition = new TopicPartition(TopicCreator.stateStoreTopicName(STORE_NAME, APPLICATION_ID), 0);
+        var header = new WindowStoreSnapshotFile.Header(changelogPartition.topic(), 0, 41L, Map.of("input", Map.of(0, 99L)));
+        var entry = new WindowStoreSnapshotFile.Entry("customer", START.toEpochMilli(), START.plusSeconds(1).toEpochMilli(), Serdes.Long().serializer().serialize(null, 2L));
+        WindowStoreSnapshotFile.write(WindowStoreSnapshotFile.path(snapshotDir, STORE_NAME, 0), header, List.of(entry).iterator());
+        var builder = new StreamsBuilder();
+        var storeSupplier = Stores.inMemoryWindowStore(STORE_NAME, WINDOW_SIZE, WINDOW_SIZE, false);
+        builder.stream("input", Consumed.with(Serdes.String(), Serdes.String()))
+                .groupByKey()
+                .windowedBy(TimeWindows.ofSizeWithNoGrace(WINDOW_SIZE))
+                .count(Materialized.as(new SnapshotLoadingWindowStoreSupplier(storeSupplier, snapshotDir)));
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, APPLICATION_ID);
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        //when
+        try (var driver = new TopologyTestDriver(builder.build(), props, START)) {
+            //then
+            var counts = driver.<String, Long>getTimestampedWindowStore(STORE_NAME);
+            assertThat(counts.persistent()).isTrue();
+            assertThat(new TaskCheckpoint(stateDir.resolve(APPLICATION_ID).resolve("0_0").toFile()).read())
+                    .containsEntry(changelogPartition, 41L);
+            //when
+            var input = driver.createInputTopic("input", Serdes.String().serializer(), Serdes.String().serializer());
+            input.pipeInput("customer", "event", START.plusSeconds(2));
+            //then
+            try (var iterator = counts.fetch("customer", START, START)) {
+                assertThat(iterator.next().value).isEqualTo(ValueAndTimestamp.make(3L, START.plusSeconds(2).toEpochMilli()));
+            }
+        }
+    }
+
+    @Test
+    void storeWithoutSnapshotStartsEmpty() {
+        //given
+        var builder = new StreamsBuilder();
+        var storeSupplier = Stores.inMemoryWindowStore(STORE_NAME, WINDOW_SIZE, WINDOW_SIZE, false);
+        builder.stream("input", Consumed.with(Serdes.String(), Serdes.String()))
+                .groupByKey()
+                .windowedBy(TimeWindows.ofSizeWithNoGrace(WINDOW_SIZE))
+                .count(Materialized.as(new SnapshotLoadingWindowStoreSupplier(storeSupplier, snapshotDir)));
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, APPLICATION_ID);
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        //when
+        try (var driver = new TopologyTestDriver(builder.build(), props, START)) {
+            var input = driver.createInputTopic("input", Serdes.String().serializer(), Serdes.String().serializer());
+            input.pipeInput("customer", "event", START.plusSeconds(2));
+            //then
+            var counts = driver.<String, Long>getTimestampedWindowStore(STORE_NAME);
+            try (var iterator = counts.fetch("customer", START, START)) {
+                assertThat(iterator.next().value.value()).isEqualTo(1L);
+            }
+            assertThat(counts.persistent()).isFalse();
+            assertThat(Files.exists(stateDir.resolve(APPLICATION_ID).resolve("0_0").resolve(TaskCheckpoint.FILE_NAME))).isFalse();
+        }
+    }
+}
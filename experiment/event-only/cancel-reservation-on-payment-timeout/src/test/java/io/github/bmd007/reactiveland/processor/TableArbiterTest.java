@@ -0,0 +1,154 @@
+package io.github.bmd007.reactiveland.processor;
+
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentAccepted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.PaymentRefused;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableGranted;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.TableRejected;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.EVENT_BINARY_SERDE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TableArbiterTest {
+
+    private static final Duration PAYMENT_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration BOOKING_DURATION = Duration.ofHours(2);
+    private static final Instant START = Instant.parse("2024-10-29T18:00:00Z");
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, Event> tableEvents;
+    private TestOutputTopic<String, Event> decisions;
+
+    @BeforeEach
+    void beforeEach() {
+        var builder = new StreamsBuilder();
+        builder.stream("table-events", Consumed.with(Serdes.String(), EVENT_BINARY_SERDE))
+                .process(new TableArbiter(PAYMENT_TIMEOUT, BOOKING_DURATION))
+                .to("decisions", Produced.with(Serdes.String(), EVENT_BINARY_SERDE));
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "table-arbiter-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(builder.build(), props, START);
+        tableEvents = driver.createInputTopic("table-events", Serdes.String().serializer(), EVENT_BINARY_SERDE);
+        decisions = driver.createOutputTopic("decisions", Serdes.String().deserializer(), EVENT_BINARY_SERDE);
+    }
+
+    @AfterEach
+    void afterEach() {
+        driver.close();
+    }
+
+    @Test
+    void grantsFirstRequestAndRejectsConcurrentOnes() {
+        //when
+        request("first", START);
+        request("second", START);
+        //then
+        assertThat(decisions.readKeyValuesToList())
+                .satisfiesExactly(
+                        keyValue -> {
+                            assertThat(keyValue.key).isEqualTo("first");
+                            assertThat(keyValue.value).isEqualTo(new TableGranted("first", "table", START));
+                        },
+                        keyValue -> {
+                            assertThat(keyValue.key).isEqualTo("second");
+                            assertThat(keyValue.value).isEqualTo(new TableRejected("second", "table", START));
+                        });
+    }
+
+    @Test
+    void repeatedRequestOfHolderIsGrantedAgain() {
+        //when
+        request("customer", START);
+        request("customer", START.plusSeconds(1));
+        //then
+        assertThat(decisions.readValuesToList()).containsExactly(
+                new TableGranted("customer", "table", START),
+                new TableGranted("customer", "table", START.plusSeconds(1)));
+    }
+
+    @Test
+    void unpaidHoldIsReleasedAtPaymentDeadline() {
+        //given
+        request("first", START);
+        //when
+        request("second", START.plus(PAYMENT_TIMEOUT).minusMillis(1));
+        request("third", START.plus(PAYMENT_TIMEOUT));
+        //then
+        assertThat(decisions.readValuesToList()).containsExactly(
+                new TableGranted("first", "table", START),
+                new TableRejected("second", "table", START.plus(PAYMENT_TIMEOUT).minusMillis(1)),
+                new TableGranted("third", "table", START.plus(PAYMENT_TIMEOUT)));
+    }
+
+    @Test
+    void paymentHoldsTableForBookingDuration() {
+        //given
+        request("first", START);
+        pay("first", START.plusSeconds(5));
+        //when
+        request("second", START.plus(PAYMENT_TIMEOUT).plusSeconds(1));
+        request("third", START.plusSeconds(5).plus(BOOKING_DURATION));
+        //then
+        assertThat(decisions.readValuesToList()).containsExactly(
+                new TableGranted("first", "table", START),
+                new PaymentAccepted("first", "table", START.plusSeconds(5)),
+                new TableRejected("second", "table", START.plus(PAYMENT_TIMEOUT).plusSeconds(1)),
+                new TableGranted("third", "table", START.plusSeconds(5).plus(BOOKING_DURATION)));
+    }
+
+    @Test
+    void lateOrForeignPaymentsAreRefusedAndDoNotHoldTable() {
+        //given
+        request("first", START);
+        pay("second", START.plusSeconds(1));
+        pay("first", START.plus(PAYMENT_TIMEOUT));
+        //when
+        request("third", START.plus(PAYMENT_TIMEOUT).plusSeconds(1));
+        //then
+        assertThat(decisions.readValuesToList()).containsExactly(
+                new TableGranted("first", "table", START),
+                new PaymentRefused("second", "table", START.plusSeconds(1)),
+                new PaymentRefused("first", "table", START.plus(PAYMENT_TIMEOUT)),
+                new TableGranted("third", "table", START.plus(PAYMENT_TIMEOUT).plusSeconds(1)));
+    }
+
+    @Test
+    void secondPaymentOfHolderIsRefused() {
+        //given
+        request("customer", START);
+        pay("customer", START.plusSeconds(1));
+        //when
+        pay("customer", START.plusSeconds(2));
+        //then
+        assertThat(decisions.readValuesToList()).containsExactly(
+                new TableGranted("customer", "table", START),
+                new PaymentAccepted("customer", "table", START.plusSeconds(1)),
+                new PaymentRefused("customer", "table", START.plusSeconds(2)));
+    }
+
+    private void request(String customerId, Instant at) {
+        tableEvents.pipeInput("table", new CustomerRequestedTable(customerId, "table", at), at);
+    }
+
+    private void pay(String customerId, Instant at) {
+        tableEvents.pipeInput("table", new CustomerPaidForTable(customerId, "table", at), at);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bmd007.reactiveland.processor;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.AppInfoParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskCheckpointTest {
+
+    @TempDir
+    Path taskDir;
+
+    @Test
+    void reliesOnTheVerifiedVersionOfKafkaStreams() {
+        //given
+        //when
+        var version = AppInfoParser.getVersion();
+        //then
+        assertThat(version)
+                .as("TaskCheckpoint relies on internals of kafka streams %s, check them against %s before upgrading",
+                        TaskCheckpoint.VERIFIED_KAFKA_STREAMS_VERSION, version)
+                .startsWith(TaskCheckpoint.VERIFIED_KAFKA_STREAMS_VERSION + ".");
+    }
+
+    @Test
+    void usesTheFileNameOfTheStateManager() throws Exception {
+        //given
+        var field = Class.forName("org.apache.kafka.streams.processor.internals.StateManagerUtil").getDeclaredField("CHECKPOINT_FILE_NAME");
+        field.setAccessible(true);
+        //when
+        var fileName = field.get(null);
+        //then
+        assertThat(fileName).isEqualTo(TaskCheckpoint.FILE_NAME);
+    }
+
+    @Test
+    void addsOffsetToThoseOfTheOtherStores() throws Exception {
+        //given
+        var checkpoint = new TaskCheckpoint(taskDir.toFile());
+        checkpoint.put(new TopicPartition("other-changelog", 0), 7L);
+        //when
+        checkpoint.put(new TopicPartition("store-changelog", 0), 41L);
+        //then
+        assertThat(checkpoint.read())
+                .containsEntry(new TopicPartition("other-changelog", 0), 7L)
+                .containsEntry(new TopicPartition("store-changelog", 0), 41L);
+        // version 0 of the format: version, number of entries, then one entry per line
+        assertThat(Files.readAllLines(taskDir.resolve(TaskCheckpoint.FILE_NAME)))
+                .startsWith("0", "2")
+                .contains("other-changelog 0 7", "store-changelog 0 41");
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.bmd007.reactiveland.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bmd007.reactiveland.configuration.KafkaEventProducer;
+import io.github.bmd007.reactiveland.configuration.Topics;
+import io.github.bmd007.reactiveland.dto.ReservationCommandAckDto;
+import io.github.bmd007.reactiveland.dto.ReservationCommandDto;
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.service.ReservationCommandService;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static io.github.bmd007.reactiveland.dto.ReservationCommandDto.Type.PAY_FOR_TABLE;
+import static io.github.bmd007.reactiveland.dto.ReservationCommandDto.Type.REQUEST_TABLE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReservationCommandResourceTest {
+
+    private KafkaEventProducer kafkaEventProducer;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void beforeEach() {
+        kafkaEventProducer = mock(KafkaEventProducer.class);
+        when(kafkaEventProducer.produceEvent(any(), eq(Topics.CUSTOMER_EVENTS_TOPIC)))
+                .thenReturn(Mono.just(new RecordMetadata(new TopicPartition(Topics.CUSTOMER_EVENTS_TOPIC, 3), 41L, 1, 0L, 0, 0)));
+        var resource = new ReservationCommandResource(new ReservationCommandService(kafkaEventProducer, new ObjectMapper(), 4));
+        webTestClient = WebTestClient.bindToController(resource).build();
+    }
+
+    @Test
+    void acceptsSingleCommand() {
+        //given
+        var command = new ReservationCommandDto(REQUEST_TABLE, "customer", "table");
+        //when
+        webTestClient.post()
+                .uri("/api/tables/reservations/commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(command)
+                .exchange()
+                //then
+                .expectStatus().isAccepted()
+                .expectBody(ReservationCommandAckDto.class)
+                .isEqualTo(new ReservationCommandAckDto(command, true, 3, 42L, null));
+        verify(kafkaEventProducer).produceEvent(argThat(event -> event instanceof Event.CustomerEvent.CustomerRequestedTable requested
+                && requested.customerId().equals("customer") && requested.tableId().equals("table") && requested.timestamp() != null
+                && requested.eventId() != null),
+                eq(Topics.CUSTOMER_EVENTS_TOPIC));
+    }
+
+    @Test
+    void retriedCommandKeepsItsEventId() {
+        //given
+        var command = new ReservationCommandDto(PAY_FOR_TABLE, "customer", "table", "command-1");
+        //when
+        for (int i = 0; i < 2; i++) {
+            webTestClient.post()
+                    .uri("/api/tables/reservations/commands")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(command)
+                    .exchange()
+                    .expectStatus().isAccepted();
+        }
+        //then
+        verify(kafkaEventProducer, times(2)).produceEvent(argThat(event -> event instanceof Event.CustomerEvent.CustomerPaidForTable paid
+                && paid.eventId().equals("command-1")), eq(Topics.CUSTOMER_EVENTS_TOPIC));
+    }
+
+    @Test
+    void rejectsInvalidSingleCommand() {
+        //given
+        var command = new ReservationCommandDto(PAY_FOR_TABLE, "customer", " ");
+        //when
+        webTestClient.post()
+                .uri("/api/tables/reservations/commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(command)
+                .exchange()
+                //then
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(kafkaEventProducer);
+    }
+
+    @Test
+    void acknowledgesEveryStreamedCommandInOrder() {
+        //given
+        var body = """
+                {"type":"REQUEST_TABLE","customerId":"first","tableId":"table"}
+                {"type":"PAY_FOR_TABLE","customerId":"second"}
+                {"type":"PAY_FOR_TABLE","customerId":"first","tableId":"table"}
+                """;
+        //when
+        var acknowledgements = webTestClient.post()
+                .uri("/api/tables/reservations/commands")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ReservationCommandAckDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        //then
+        assertThat(acknowledgements)
+                .extracting(ReservationCommandAckDto::accepted)
+                .containsExactly(true, false, true);
+        assertThat(acknowledgements.get(1).error()).isEqualTo("tableId is required");
+        verify(kafkaEventProducer, times(2)).produceEvent(any(), eq(Topics.CUSTOMER_EVENTS_TOPIC));
+    }
+
+    @Test
+    void rejectsMalformedLineAndKeepsStreaming() {
+        //given
+        var body = """
+                {"type":"REQUEST_TABLE","customerId":"first","tableId":"table"}
+                {"type":"REQUEST_TABLE",
+                {"type":"PAY_FOR_TABLE","customerId":"first","tableId":"table"}
+                """;
+        //when
+        var acknowledgements = webTestClient.post()
+                .uri("/api/tables/reservations/commands")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ReservationCommandAckDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        //then
+        assertThat(acknowledgements)
+                .extracting(ReservationCommandAckDto::accepted)
+                .containsExactly(true, false, true);
+        assertThat(acknowledgements.get(1).command()).isNull();
+        assertThat(acknowledgements.get(1).error()).startsWith("malformed command");
+        verify(kafkaEventProducer, times(2)).produceEvent(any(), eq(Topics.CUSTOMER_EVENTS_TOPIC));
+    }
+}
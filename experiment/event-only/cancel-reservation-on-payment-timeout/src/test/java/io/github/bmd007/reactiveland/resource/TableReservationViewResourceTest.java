@@ -0,0 +1,223 @@
+package io.github.bmd007.reactiveland.resource;
+
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import io.github.bmd007.reactiveland.dto.PageDto;
+import io.github.bmd007.reactiveland.dto.TableReservationDto;
+import io.github.bmd007.reactiveland.dto.TableReservationsDto;
+import io.github.bmd007.reactiveland.service.StoreNotReadyException;
+import io.github.bmd007.reactiveland.service.TableReservationChangeFeed;
+import io.github.bmd007.reactiveland.service.TableReservationViewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class TableReservationViewResourceTest {
+
+    private static final TableReservationDto RESERVATION = new TableReservationDto("customer", "table", "PAID_FOR");
+
+    private TableReservationViewService tableReservationViewService;
+    private TableReservationChangeFeed tableReservationChangeFeed;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void beforeEach() {
+        tableReservationViewService = mock(TableReservationViewService.class);
+        tableReservationChangeFeed = mock(TableReservationChangeFeed.class);
+        webTestClient = WebTestClient.bindToController(new TableReservationViewResource(tableReservationViewService, tableReservationChangeFeed)).build();
+    }
+
+    @Test
+    void returnsAllAsJsonByDefault() {
+        //given
+        when(tableReservationViewService.getAll(true, null)).thenReturn(Mono.just(new TableReservationsDto(List.of(RESERVATION))));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations")
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody(TableReservationsDto.class)
+                .isEqualTo(new TableReservationsDto(List.of(RESERVATION)));
+    }
+
+    @Test
+    void streamsAllAsNdjson() {
+        //given
+        when(tableReservationViewService.streamAll(true)).thenReturn(Flux.just(RESERVATION, RESERVATION));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(TableReservationDto.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void returnsPages() {
+        //given
+        when(tableReservationViewService.getPage(10, "token", true)).thenReturn(Mono.just(new PageDto<>(List.of(RESERVATION), "next")));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations?pageSize=10&continuationToken=token")
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<PageDto<TableReservationDto>>() {
+                })
+                .isEqualTo(new PageDto<>(List.of(RESERVATION), "next"));
+    }
+
+    @Test
+    void rejectsOversizedPages() {
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations?pageSize=100000")
+                .exchange()
+                //then
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(tableReservationViewService);
+    }
+
+    @Test
+    void looksUpManyCustomersInOneRequest() {
+        //given
+        when(tableReservationViewService.getByIds(List.of("customer", "unknown"), true)).thenReturn(Mono.just(new TableReservationsDto(List.of(RESERVATION))));
+        //when
+        webTestClient.post()
+                .uri("/api/tables/reservations/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of("customer", "unknown"))
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectBody(TableReservationsDto.class)
+                .isEqualTo(new TableReservationsDto(List.of(RESERVATION)));
+    }
+
+    @Test
+    void pushesChangesOfCustomerAsServerSentEvents() {
+        //given
+        when(tableReservationChangeFeed.subscribe("customer", null, TableReservationChangeFeed.Overflow.DROP)).thenReturn(Flux.just(RESERVATION));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/_changes?customerId=customer&overflow=DROP")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(TableReservationDto.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNext(RESERVATION)
+                .verifyComplete();
+    }
+
+    @Test
+    void findsCustomersHoldingTable() {
+        //given
+        when(tableReservationViewService.getByTableId("table", true)).thenReturn(Mono.just(new TableReservationsDto(List.of(RESERVATION))));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/by-table/table")
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectBody(TableReservationsDto.class)
+                .isEqualTo(new TableReservationsDto(List.of(RESERVATION)));
+    }
+
+    @Test
+    void findsCustomersByReservationStatus() {
+        //given
+        when(tableReservationViewService.getByStatus(TableReservation.Status.PAID_FOR, true)).thenReturn(Mono.just(new TableReservationsDto(List.of(RESERVATION))));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/by-status/PAID_FOR")
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectBody(TableReservationsDto.class)
+                .isEqualTo(new TableReservationsDto(List.of(RESERVATION)));
+    }
+
+    @Test
+    void rejectsUnknownReservationStatus() {
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/by-status/CANCELLED")
+                .exchange()
+                //then
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(tableReservationViewService);
+    }
+
+    @Test
+    void answersServiceUnavailableWithRetryAfterWhileStoreIsNotReady() {
+        //given
+        when(tableReservationViewService.getById("customer", null, true)).thenReturn(Mono.error(new StoreNotReadyException("store", Duration.ofSeconds(2))));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/customer")
+                .exchange()
+                //then
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+    }
+
+    @Test
+    void letsReplicasWithinMaxLagAnswer() {
+        //given
+        when(tableReservationViewService.getById("customer", 100L, true)).thenReturn(Mono.just(RESERVATION));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/customer?maxLag=100")
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectBody(TableReservationDto.class)
+                .isEqualTo(RESERVATION);
+    }
+
+    @Test
+    void waitsForOwnWriteWhenItsPositionIsGiven() {
+        //given
+        when(tableReservationViewService.getByIdAfterWrite("customer", 3, 42L, true)).thenReturn(Mono.just(RESERVATION));
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/customer?writePartition=3&writeOffset=42")
+                .exchange()
+                //then
+                .expectStatus().isOk()
+                .expectBody(TableReservationDto.class)
+                .isEqualTo(RESERVATION);
+    }
+
+    @Test
+    void rejectsWriteOffsetWithoutPartition() {
+        //when
+        webTestClient.get()
+                .uri("/api/tables/reservations/customer?writeOffset=42")
+                .exchange()
+                //then
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(tableReservationViewService);
+    }
+}
@@ -0,0 +1,207 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableHold;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import io.github.bmd007.reactiveland.event.Event;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerPaidForTable;
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import io.github.bmd007.reactiveland.event.Event.ReservationEvent.ReservationTimedOut;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactBinarySerdesTest {
+
+    private static final String TOPIC = "topic";
+
+    @Test
+    void eventsRoundTrip() {
+        //given
+        var customerId = UUID.randomUUID().toString();
+        var events = new Event[]{
+                new Event.DefaultEvent(),
+                new Event.CustomerEvent.DefaultCustomerEvent(customerId),
+                new CustomerRequestedTable(customerId, "tableId"),
+                new CustomerPaidForTable(customerId, "tableId"),
+                new CustomerPaidForTable(customerId, "tableId", null),
+                new ReservationTimedOut(customerId, "tableId", Instant.ofEpochMilli(1_730_224_800_123L)),
+                new ReservationTimedOut(customerId, "tableId", null),
+                new Event.ReservationEvent.TableGranted(customerId, "tableId", Instant.ofEpochMilli(1_730_224_800_123L)),
+                new Event.ReservationEvent.TableRejected(customerId, "tableId", Instant.ofEpochMilli(1_730_224_800_123L)),
+                new Event.ReservationEvent.ReservationConfirmed(customerId, "tableId", Instant.ofEpochMilli(1_730_224_800_123L)),
+                new Event.ReservationEvent.ReservationRejected(customerId, "tableId", Instant.ofEpochMilli(1_730_224_800_123L)),
+                new Event.ReservationEvent.PaymentAccepted(customerId, "tableId", Instant.ofEpochMilli(1_730_224_800_123L)),
+                new Event.ReservationEvent.PaymentRefused(customerId, "tableId", Instant.ofEpochMilli(1_730_224_800_123L))
+        };
+        for (var event : events) {
+            //when
+            var bytes = EVENT_BINARY_SERDE.serialize(TOPIC, event);
+            //then
+            assertThat(EVENT_BINARY_SERDE.deserialize(TOPIC, bytes)).isEqualTo(event);
+        }
+    }
+
+    @Test
+    void customerReservationsRoundTrip() {
+        //given
+        var customerId = UUID.randomUUID().toString();
+        var awaitingPayment = TableReservation.createTableReservation().withTableId("tableId").awaitPayment(customerId)
+                .withPaymentDeadline(Instant.ofEpochMilli(1_730_224_800_123L));
+        var otherTable = TableReservation.createTableReservation().withTableId("otherTableId").awaitPayment(customerId);
+        var requested = TableReservation.createTableReservation().withTableId("requestedTableId").request(customerId);
+        var allReservations = new CustomerReservations[]{
+                CustomerReservations.none(),
+                CustomerReservations.of(awaitingPayment),
+                new CustomerReservations(List.of(awaitingPayment.paidFor(), otherTable, requested))
+        };
+        for (var customerReservations : allReservations) {
+            //when
+            var bytes = RESERVATION_AGGREGATE_BINARY_SERDE.serialize(TOPIC, customerReservations);
+            //then
+            assertThat(RESERVATION_AGGREGATE_BINARY_SERDE.deserialize(TOPIC, bytes)).isEqualTo(customerReservations);
+        }
+    }
+
+    @Test
+    void tableHoldsRoundTrip() {
+        //given
+        var heldUntil = Instant.ofEpochMilli(1_730_224_800_123L);
+        var tableHolds = new TableHold[]{
+                new TableHold("tableId", UUID.randomUUID().toString(), false, heldUntil),
+                new TableHold("tableId", UUID.randomUUID().toString(), true, heldUntil)
+        };
+        for (var tableHold : tableHolds) {
+            //when
+            var bytes = TABLE_HOLD_BINARY_SERDE.serialize(TOPIC, tableHold);
+            //then
+            assertThat(TABLE_HOLD_BINARY_SERDE.deserialize(TOPIC, bytes)).isEqualTo(tableHold);
+        }
+    }
+
+    @Test
+    void readsVersion1SingleTableReservation() {
+        //given
+        var customerId = UUID.randomUUID().toString();
+        var version1 = new BinaryCodec.Output(32);
+        version1.writeByte(1);
+        version1.writeByte(CustomerReservationsBinarySerde.statusCode(TableReservation.Status.RESERVED_AWAITING_PAYMENT));
+        version1.writeString("tableId");
+        version1.writeString(customerId);
+        //when
+        var customerReservations = RESERVATION_AGGREGATE_BINARY_SERDE.deserialize(TOPIC, version1.toByteArray());
+        //then
+        assertThat(customerReservations).isEqualTo(CustomerReservations.of(
+                TableReservation.createTableReservation().withTableId("tableId").awaitPayment(customerId)));
+    }
+
+    @Test
+    void decodesLegacyJson() {
+        //given
+        var event = new CustomerRequestedTable(UUID.randomUUID().toString(), "tableId");
+        var tableReservation = TableReservation.createTableReservation().withTableId("tableId").awaitPayment(event.customerId());
+        //when
+        var legacyEvent = EVENT_JSON_SERDE.serializer().serialize(TOPIC, event);
+        var legacyTableReservation = TABLE_RESERVATION_JSON_SERDE.serializer().serialize(TOPIC, tableReservation);
+        var tableHold = new TableHold("tableId", event.customerId(), false, Instant.ofEpochMilli(1_730_224_800_123L));
+        var legacyTableHold = TABLE_HOLD_JSON_SERDE.serializer().serialize(TOPIC, tableHold);
+        //then
+        assertThat(EVENT_BINARY_SERDE.deserialize(TOPIC, legacyEvent)).isEqualTo(event);
+        assertThat(RESERVATION_AGGREGATE_BINARY_SERDE.deserialize(TOPIC, legacyTableReservation)).isEqualTo(CustomerReservations.of(tableReservation));
+        assertThat(TABLE_HOLD_BINARY_SERDE.deserialize(TOPIC, legacyTableHold)).isEqualTo(tableHold);
+    }
+
+    @Test
+    void readsVersion1CustomerEventsWithoutTimestamp() {
+        //given
+        var customerId = UUID.randomUUID().toString();
+        var bytes = EVENT_BINARY_SERDE.serialize(TOPIC, new CustomerRequestedTable(customerId, "tableId", null));
+        // version 1 had neither timestamp nor event id, which null ones write as the last two bytes
+        var version1 = Arrays.copyOf(bytes, bytes.length - 2);
+        version1[0] = 1;
+        //when
+        var event = EVENT_BINARY_SERDE.deserialize(TOPIC, version1);
+        //then
+        assertThat(event).isEqualTo(new CustomerRequestedTable(customerId, "tableId", null));
+    }
+
+    @Test
+    void readsVersion2CustomerEventsWithoutEventId() {
+        //given
+        var customerId = UUID.randomUUID().toString();
+        var occurredAt = Instant.parse("2024-10-29T18:00:00Z");
+        var bytes = EVENT_BINARY_SERDE.serialize(TOPIC, new CustomerPaidForTable(customerId, "tableId", occurredAt));
+        // version 2 had no event id, which a null one writes as the single last byte
+        var version2 = Arrays.copyOf(bytes, bytes.length - 1);
+        version2[0] = 2;
+        //when
+        var event = EVENT_BINARY_SERDE.deserialize(TOPIC, version2);
+        //then
+        assertThat(event).isEqualTo(new CustomerPaidForTable(customerId, "tableId", occurredAt));
+    }
+
+    @Test
+    void isSmallerThanJson() {
+        //given
+        var event = new CustomerRequestedTable(UUID.randomUUID().toString(), "tableId");
+        var customerReservations = CustomerReservations.of(TableReservation.createTableReservation().withTableId("tableId").awaitPayment(event.customerId()));
+        //when
+        var binaryEventSize = EVENT_BINARY_SERDE.serialize(TOPIC, event).length;
+        var jsonEventSize = EVENT_JSON_SERDE.serializer().serialize(TOPIC, event).length;
+        var binaryReservationSize = RESERVATION_AGGREGATE_BINARY_SERDE.serialize(TOPIC, customerReservations).length;
+        var jsonReservationSize = RESERVATION_AGGREGATE_JSON_SERDE.serializer().serialize(TOPIC, customerReservations).length;
+        //then
+        assertThat(binaryEventSize).isLessThan(jsonEventSize / 2);
+        assertThat(binaryReservationSize).isLessThan(jsonReservationSize / 2);
+    }
+
+    @Test
+    void readsUnknownEventTypesAsDefaultEvent() {
+        //given
+        var bytes = EVENT_BINARY_SERDE.serialize(TOPIC, new Event.ReservationEvent.TableGranted("customerId", "tableId", Instant.parse("2024-10-29T18:00:00Z")));
+        bytes[1] = 127;
+        //when
+        var event = EVENT_BINARY_SERDE.deserialize(TOPIC, bytes);
+        //then
+        assertThat(event).isEqualTo(new Event.DefaultEvent());
+    }
+
+    @Test
+    void rejectsNewerSchemaVersions() {
+        //given
+        var bytes = EVENT_BINARY_SERDE.serialize(TOPIC, new Event.DefaultEvent());
+        bytes[0] = (byte) (EventBinarySerde.SCHEMA_VERSION + 1);
+        //when then
+        assertThatThrownBy(() -> EVENT_BINARY_SERDE.deserialize(TOPIC, bytes)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void reservesVersionsThatLookLikeJsonWhitespace() {
+        //when then
+        assertThatThrownBy(() -> serdeOfVersion('\n')).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> serdeOfVersion(0x1C)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(serdeOfVersion(14)).isNotNull();
+    }
+
+    private static VersionedBinarySerde<Event> serdeOfVersion(int version) {
+        return new VersionedBinarySerde<>(version, EVENT_JSON_SERDE.deserializer()) {
+
+            @Override
+            protected void write(Event data, BinaryCodec.Output output) {
+            }
+
+            @Override
+            protected Event read(int version, BinaryCodec.Input input) {
+                return null;
+            }
+        };
+    }
+}
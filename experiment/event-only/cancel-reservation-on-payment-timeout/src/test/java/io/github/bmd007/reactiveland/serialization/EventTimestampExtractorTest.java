@@ -0,0 +1,56 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import io.github.bmd007.reactiveland.event.Event.CustomerEvent.CustomerRequestedTable;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventTimestampExtractorTest {
+
+    private static final Instant OCCURRED_AT = Instant.parse("2024-10-29T18:00:00Z");
+    private static final long RECORD_TIMESTAMP = OCCURRED_AT.plusSeconds(30).toEpochMilli();
+    private static final long PARTITION_TIME = OCCURRED_AT.minusSeconds(30).toEpochMilli();
+
+    private final EventTimestampExtractor extractor = new EventTimestampExtractor();
+
+    @Test
+    void usesTimeTheEventOccurred() {
+        //given
+        var record = record(new CustomerRequestedTable("customer", "table", OCCURRED_AT), RECORD_TIMESTAMP);
+        //when
+        var timestamp = extractor.extract(record, PARTITION_TIME);
+        //then
+        assertThat(timestamp).isEqualTo(OCCURRED_AT.toEpochMilli());
+    }
+
+    @Test
+    void fallsBackToRecordTimestampForEventsWithoutTimestamp() {
+        //given
+        var record = record(new CustomerRequestedTable("customer", "table", null), RECORD_TIMESTAMP);
+        //when
+        var timestamp = extractor.extract(record, PARTITION_TIME);
+        //then
+        assertThat(timestamp).isEqualTo(RECORD_TIMESTAMP);
+    }
+
+    @Test
+    void fallsBackToPartitionTimeForInvalidRecordTimestamp() {
+        //given
+        var record = record(null, -1L);
+        //when
+        var timestamp = extractor.extract(record, PARTITION_TIME);
+        //then
+        assertThat(timestamp).isEqualTo(PARTITION_TIME);
+    }
+
+    private static ConsumerRecord<Object, Object> record(Object value, long timestamp) {
+        return new ConsumerRecord<>("topic", 0, 0L, timestamp, TimestampType.CREATE_TIME,
+                0, 0, "customer", value, new RecordHeaders(), Optional.empty());
+    }
+}
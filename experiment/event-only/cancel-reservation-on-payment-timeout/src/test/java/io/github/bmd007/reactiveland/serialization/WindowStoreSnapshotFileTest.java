@@ -0,0 +1,62 @@
+package io.github.bmd007.reactiveland.serialization;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WindowStoreSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        //given
+        var file = WindowStoreSnapshotFile.path(directory, "store", 3);
+        var header = new WindowStoreSnapshotFile.Header("app-store-changelog", 3, 1_234_567L, Map.of("input", Map.of(3, 42L)));
+        var entries = List.of(
+                new WindowStoreSnapshotFile.Entry("customer-1", 1_730_224_800_000L, 1_730_224_801_234L, new byte[]{1, 2, 3}),
+                new WindowStoreSnapshotFile.Entry("customer-2", 1_730_224_815_000L, -1L, new byte[0]));
+        //when
+        var written = WindowStoreSnapshotFile.write(file, header, entries.iterator());
+        var read = new ArrayList<WindowStoreSnapshotFile.Entry>();
+        var readHeader = WindowStoreSnapshotFile.read(file, read::add);
+        //then
+        assertThat(written).isEqualTo(2);
+        assertThat(readHeader).isEqualTo(header);
+        assertThat(WindowStoreSnapshotFile.readHeader(file)).isEqualTo(header);
+        assertThat(read).hasSize(2);
+        for (int i = 0; i < entries.size(); i++) {
+            assertThat(read.get(i).key()).isEqualTo(entries.get(i).key());
+            assertThat(read.get(i).windowStart()).isEqualTo(entries.get(i).windowStart());
+            assertThat(read.get(i).timestamp()).isEqualTo(entries.get(i).timestamp());
+            assertThat(read.get(i).value()).isEqualTo(entries.get(i).value());
+        }
+        assertThat(Files.list(directory)).containsExactly(file);
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() throws Exception {
+        //given
+        var file = WindowStoreSnapshotFile.path(directory, "store", 0);
+        var header = new WindowStoreSnapshotFile.Header("app-store-changelog", 0, 10L, Map.of());
+        var entry = new WindowStoreSnapshotFile.Entry("customer", 0L, 0L, new byte[]{1});
+        WindowStoreSnapshotFile.write(file, header, List.of(entry, entry).iterator());
+        var bytes = Files.readAllBytes(file);
+        //when
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        //then
+        assertThatThrownBy(() -> WindowStoreSnapshotFile.read(file, ignored -> {
+        })).isInstanceOf(EOFException.class);
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private NearCache<String> nearCache;
+
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        nearCache = new NearCache<>("test-near-cache", 1024, Duration.ofSeconds(15), (key, value) -> value.length(), meterRegistry);
+    }
+
+    @Test
+    void changesOnlyRefreshCachedKeys() {
+        //given
+        load("cached", "old");
+        //when
+        nearCache.refreshIfPresent("cached", "new", 0, true);
+        nearCache.refreshIfPresent("not-cached", "new", 0, true);
+        //then
+        assertThat(nearCache.get("cached")).contains("new");
+        assertThat(nearCache.get("not-cached")).isEmpty();
+    }
+
+    @Test
+    void deletionsInvalidate() {
+        //given
+        load("cached", "old");
+        //when
+        nearCache.refreshIfPresent("cached", null, 0, true);
+        //then
+        assertThat(nearCache.get("cached")).isEmpty();
+    }
+
+    @Test
+    void changesOfAnOlderWindowAreIgnored() {
+        //given
+        load("cached", "loaded");
+        nearCache.refreshIfPresent("cached", "of-window-2", 2, true);
+        //when
+        nearCache.refreshIfPresent("cached", "of-window-1", 1, false);
+        //then
+        assertThat(nearCache.get("cached")).contains("of-window-2");
+    }
+
+    @Test
+    void answerOfUnknownWindowIsDroppedByChangeOfAnOlderWindow() {
+        //given
+        load("cached", "loaded");
+        //when
+        nearCache.refreshIfPresent("cached", "of-window-1", 1, false);
+        //then
+        assertThat(nearCache.get("cached")).isEmpty();
+    }
+
+    @Test
+    void lateAnswerIsNotCachedWhenTheKeyChangedMeanwhile() {
+        //given
+        var answer = Sinks.<String>one();
+        var loading = nearCache.load("key", answer.asMono()).subscribe();
+        //when
+        nearCache.refreshIfPresent("key", "new", 1, true);
+        answer.tryEmitValue("old");
+        //then
+        assertThat(nearCache.get("key")).isEmpty();
+        loading.dispose();
+    }
+
+    @Test
+    void lateAnswerDoesNotOverwriteWhatTheChangelogPut() {
+        //given
+        var late = Sinks.<String>one();
+        nearCache.load("key", late.asMono()).subscribe();
+        load("key", "loaded");
+        nearCache.refreshIfPresent("key", "new", 1, true);
+        //when
+        late.tryEmitValue("old");
+        //then
+        assertThat(nearCache.get("key")).contains("new");
+    }
+
+    @Test
+    void publishesHitsAndMisses() {
+        //given
+        load("cached", "value");
+        //when
+        nearCache.get("cached");
+        nearCache.get("other");
+        //then
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "test-near-cache").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "test-near-cache").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    private void load(String id, String value) {
+        nearCache.load(id, Mono.just(value)).block();
+    }
+}
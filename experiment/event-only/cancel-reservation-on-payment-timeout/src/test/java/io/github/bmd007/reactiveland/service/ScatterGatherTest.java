@@ -0,0 +1,66 @@
+package io.github.bmd007.reactiveland.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScatterGatherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(200);
+
+    @Test
+    void slowInstanceOnlyCostsItsOwnPartitions() {
+        //given
+        var scatterGather = new ScatterGather(TIMEOUT, HEDGE_DELAY, true, 16);
+        var fast = new ScatterGather.Shard<>("fast", Set.of(0, 1), Mono.just(List.of("a", "b")), null);
+        var slow = new ScatterGather.Shard<>("slow", Set.of(2, 3), Mono.<List<String>>never(), null);
+        //when
+        //then
+        StepVerifier.withVirtualTime(() -> scatterGather.gather(List.of(fast, slow)))
+                .thenAwait(TIMEOUT)
+                .assertNext(gathered -> {
+                    assertThat(gathered.items()).containsExactlyInAnyOrder("a", "b");
+                    assertThat(gathered.missingPartitions()).containsExactly(2, 3);
+                    assertThat(gathered.isPartial()).isTrue();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void hedgeAnswersForSlowPrimary() {
+        //given
+        var scatterGather = new ScatterGather(TIMEOUT, HEDGE_DELAY, true, 16);
+        var shard = new ScatterGather.Shard<>("slow", Set.of(0), Mono.<List<String>>never(), Mono.just(List.of("from-standby")));
+        //when
+        //then
+        StepVerifier.withVirtualTime(() -> scatterGather.gather(List.of(shard)))
+                .thenAwait(HEDGE_DELAY)
+                .assertNext(gathered -> {
+                    assertThat(gathered.items()).containsExactly("from-standby");
+                    assertThat(gathered.isPartial()).isFalse();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void failedPrimaryWithoutHedgingIsReportedAsMissing() {
+        //given
+        var scatterGather = new ScatterGather(TIMEOUT, HEDGE_DELAY, false, 16);
+        var shard = new ScatterGather.Shard<>("broken", Set.of(5), Mono.<List<String>>error(new IllegalStateException("down")), Mono.just(List.of("unused")));
+        //when
+        //then
+        StepVerifier.create(scatterGather.gather(List.of(shard)))
+                .assertNext(gathered -> {
+                    assertThat(gathered.items()).isEmpty();
+                    assertThat(gathered.missingPartitions()).containsExactly(5);
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.github.bmd007.reactiveland.configuration.KafkaStreamsStateListeners;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.LagInfo;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.query.FailureReason;
+import org.apache.kafka.streams.query.QueryResult;
+import org.apache.kafka.streams.query.StateQueryResult;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.apache.kafka.streams.KafkaStreams.State.REBALANCING;
+import static org.apache.kafka.streams.KafkaStreams.State.RUNNING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StoreReadinessTest {
+
+    private KafkaStreams kafkaStreams;
+    private KafkaStreamsStateListeners stateListeners;
+    private StoreReadiness<String> storeReadiness;
+
+    @BeforeEach
+    void beforeEach() {
+        var streams = mock(StreamsBuilderFactoryBean.class);
+        kafkaStreams = mock(KafkaStreams.class);
+        when(streams.getKafkaStreams()).thenReturn(kafkaStreams);
+        stateListeners = new KafkaStreamsStateListeners(streams);
+        storeReadiness = new StoreReadiness<>(streams, stateListeners, "store", Duration.ofSeconds(1), Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    @Test
+    void failsWithRetryAfterWhenStoreDoesNotBecomeQueryable() {
+        //given
+        when(kafkaStreams.state()).thenReturn(REBALANCING);
+        when(kafkaStreams.store(any())).thenThrow(new InvalidStateStoreException("migrating"));
+        //when
+        //then
+        StepVerifier.create(storeReadiness.store())
+                .expectErrorSatisfies(throwable -> assertThat(throwable)
+                        .isInstanceOfSatisfying(StoreNotReadyException.class, exception ->
+                                assertThat(exception.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1")))
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void waitsForStoreAndCachesIt() {
+        //given stubs that are never changed while the retries call them, only what they answer
+        ReadOnlyWindowStore<String, String> store = mock();
+        var state = new AtomicReference<>(REBALANCING);
+        var queryableStore = new AtomicReference<ReadOnlyWindowStore<String, String>>();
+        when(kafkaStreams.state()).thenAnswer(invocation -> state.get());
+        when(kafkaStreams.store(any())).thenAnswer(invocation -> {
+            var queryable = queryableStore.get();
+            if (queryable == null) {
+                throw new InvalidStateStoreException("migrating");
+            }
+            return queryable;
+        });
+        //when
+        //then
+        StepVerifier.create(storeReadiness.store())
+                .then(() -> {
+                    queryableStore.set(store);
+                    state.set(RUNNING);
+                    stateListeners.onChange(RUNNING, REBALANCING);
+                })
+                .expectNext(store)
+                .verifyComplete();
+        StepVerifier.create(storeReadiness.store())
+                .expectNext(store)
+                .verifyComplete();
+        verify(kafkaStreams, atMost(3)).store(any());
+    }
+
+    @Test
+    void dropsCachedStoreOnceItsReadsFail() {
+        //given
+        ReadOnlyWindowStore<String, String> movedAway = mock();
+        ReadOnlyWindowStore<String, String> current = mock();
+        when(kafkaStreams.state()).thenReturn(RUNNING);
+        when(kafkaStreams.store(any())).thenReturn(movedAway, current);
+        when(movedAway.fetch(any(), any(Instant.class), any(Instant.class))).thenThrow(new InvalidStateStoreException("rebalancing"));
+        //when
+        //then
+        StepVerifier.create(storeReadiness.store()
+                        .map(store -> store.fetch("key", Instant.EPOCH, Instant.now()))
+                        .onErrorMap(storeReadiness::readFailure))
+                .expectError(StoreNotReadyException.class)
+                .verify();
+        StepVerifier.create(storeReadiness.store())
+                .expectNext(current)
+                .verifyComplete();
+    }
+
+    @Test
+    void reportsLagOfLocalReplicasOnly() {
+        //given
+        var lagInfo = mock(LagInfo.class);
+        when(lagInfo.offsetLag()).thenReturn(10L);
+        when(kafkaStreams.allLocalStorePartitionLags()).thenReturn(Map.of("store", Map.of(3, lagInfo)));
+        //when
+        //then
+        StepVerifier.create(storeReadiness.localOffsetLag(3))
+                .expectNext(10L)
+                .verifyComplete();
+        StepVerifier.create(storeReadiness.localOffsetLag(4))
+                .verifyComplete();
+        verify(kafkaStreams, times(1)).allLocalStorePartitionLags();
+    }
+
+    @Test
+    void waitsUntilStoreCaughtUpWithWrite() {
+        //given
+        when(kafkaStreams.state()).thenReturn(RUNNING);
+        WindowStoreIterator<ValueAndTimestamp<String>> iterator = mock();
+        when(iterator.hasNext()).thenReturn(true, false);
+        when(iterator.next()).thenReturn(KeyValue.pair(0L, ValueAndTimestamp.make("value", 0L)));
+        when(kafkaStreams.query(any()))
+                .thenReturn(partitionResult(2, QueryResult.forFailure(FailureReason.NOT_UP_TO_BOUND, "behind")))
+                .thenReturn(partitionResult(2, QueryResult.<Object>forResult(iterator)));
+        //when
+        //then
+        StepVerifier.create(storeReadiness.fetchLatest("key", Instant.EPOCH, Instant.now(), "topic", 2, 42))
+                .expectNext("value")
+                .verifyComplete();
+        verify(kafkaStreams, times(2)).query(any());
+        verify(iterator).close();
+    }
+
+    private static StateQueryResult<Object> partitionResult(int partition, QueryResult<Object> result) {
+        var stateQueryResult = new StateQueryResult<Object>();
+        stateQueryResult.addResult(partition, result);
+        return stateQueryResult;
+    }
+}
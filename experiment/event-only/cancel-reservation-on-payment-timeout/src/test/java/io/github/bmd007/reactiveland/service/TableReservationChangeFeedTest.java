@@ -0,0 +1,121 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.github.bmd007.reactiveland.dto.TableReservationDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TableReservationChangeFeedTest {
+
+    private static final Duration TABLE_RETENTION = Duration.ofSeconds(16);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private TableReservationChangeFeed changeFeed;
+
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        changeFeed = new TableReservationChangeFeed(2, TABLE_RETENTION, nanoTime::get, meterRegistry);
+    }
+
+    @Test
+    void subscribersOnlyGetTheChangesTheyAskedFor() {
+        //given
+        var first = reservation("first", "first-table", "RESERVED_AWAITING_PAYMENT");
+        var second = reservation("second", "second-table", "PAID_FOR");
+        //when
+        //then
+        StepVerifier.create(changeFeed.subscribe("first", null, TableReservationChangeFeed.Overflow.LATEST))
+                .then(() -> {
+                    changeFeed.publish("first", first);
+                    changeFeed.publish("second", second);
+                })
+                .expectNext(first)
+                .thenCancel()
+                .verify();
+        StepVerifier.create(changeFeed.subscribe(null, "second-table", TableReservationChangeFeed.Overflow.LATEST))
+                .then(() -> {
+                    changeFeed.publish("first", first);
+                    changeFeed.publish("second", second);
+                })
+                .expectNext(second)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void subscribersOfATableAreToldItWasReleased() {
+        //given
+        var holding = reservation("customer", "table", "RESERVED_AWAITING_PAYMENT");
+        var released = new TableReservationDto("customer", null, "AVAILABLE");
+        //when
+        //then
+        StepVerifier.create(changeFeed.subscribe(null, "table", TableReservationChangeFeed.Overflow.LATEST))
+                .then(() -> {
+                    changeFeed.publish("customer", holding);
+                    changeFeed.publish("customer", released);
+                    changeFeed.publish("customer", released);
+                })
+                .expectNext(holding, released)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void tablesOfACustomerAreForgottenAfterTheirRetention() {
+        //given
+        var holding = reservation("customer", "table", "RESERVED_AWAITING_PAYMENT");
+        var released = new TableReservationDto("customer", null, "AVAILABLE");
+        var holdingOther = reservation("other", "table", "RESERVED_AWAITING_PAYMENT");
+        //when
+        //then
+        StepVerifier.create(changeFeed.subscribe(null, "table", TableReservationChangeFeed.Overflow.LATEST))
+                .then(() -> {
+                    changeFeed.publish("customer", holding);
+                    nanoTime.addAndGet(TABLE_RETENTION.toNanos());
+                    changeFeed.publish("customer", released);
+                    changeFeed.publish("other", holdingOther);
+                })
+                .expectNext(holding, holdingOther)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void slowSubscriberWithLatestOverflowKeepsTheNewestChanges() {
+        //when
+        //then
+        StepVerifier.create(changeFeed.subscribe("customer", null, TableReservationChangeFeed.Overflow.LATEST), 0)
+                .then(() -> List.of("1", "2", "3").forEach(table -> changeFeed.publish("customer", reservation("customer", table, "PAID_FOR"))))
+                .thenRequest(2)
+                .expectNext(reservation("customer", "2", "PAID_FOR"), reservation("customer", "3", "PAID_FOR"))
+                .thenCancel()
+                .verify();
+        assertThat(meterRegistry.get("reservation.changes.dropped").tag("overflow", "LATEST").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void slowSubscriberWithDropOverflowKeepsWhatItBuffered() {
+        //when
+        //then
+        StepVerifier.create(changeFeed.subscribe("customer", null, TableReservationChangeFeed.Overflow.DROP), 0)
+                .then(() -> List.of("1", "2", "3").forEach(table -> changeFeed.publish("customer", reservation("customer", table, "PAID_FOR"))))
+                .thenRequest(2)
+                .expectNext(reservation("customer", "1", "PAID_FOR"), reservation("customer", "2", "PAID_FOR"))
+                .thenCancel()
+                .verify();
+        assertThat(meterRegistry.get("reservation.changes.dropped").tag("overflow", "DROP").counter().count()).isEqualTo(1);
+    }
+
+    private static TableReservationDto reservation(String customerId, String tableId, String status) {
+        return new TableReservationDto(customerId, tableId, status, List.of(new TableReservationDto.Reservation(tableId, status, null)));
+    }
+}
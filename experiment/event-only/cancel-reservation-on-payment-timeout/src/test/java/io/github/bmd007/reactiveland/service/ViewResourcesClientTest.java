@@ -0,0 +1,38 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.github.bmd007.reactiveland.dto.TableReservationsDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ViewResourcesClientTest {
+
+    @Test
+    void notFoundIsAnEmptyAnswer() {
+        //given
+        var client = clientAnswering(HttpStatus.NOT_FOUND);
+        //when
+        //then
+        StepVerifier.create(client.getOne(TableReservationsDto.class, "http://remote:9585/api/tables/reservations"))
+                .verifyComplete();
+    }
+
+    @Test
+    void otherClientErrorsArePassedOn() {
+        //given
+        var client = clientAnswering(HttpStatus.BAD_REQUEST);
+        //when
+        //then
+        StepVerifier.create(client.getOne(TableReservationsDto.class, "http://remote:9585/api/tables/reservations"))
+                .verifyError(WebClientResponseException.BadRequest.class);
+    }
+
+    private static ViewResourcesClient clientAnswering(HttpStatus status) {
+        return new ViewResourcesClient(WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(status).build())));
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.bmd007.reactiveland.service;
+
+import io.github.bmd007.reactiveland.configuration.Topics;
+import io.github.bmd007.reactiveland.domain.CustomerReservations;
+import io.github.bmd007.reactiveland.domain.TableReservation;
+import io.github.bmd007.reactiveland.dto.PageDto;
+import io.github.bmd007.reactiveland.dto.TableReservationDto;
+import io.github.bmd007.reactiveland.dto.TableReservationsDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.WindowStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.github.bmd007.reactiveland.serialization.CustomSerdes.RESERVATION_AGGREGATE_BINARY_SERDE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ViewServiceTest {
+
+    private static final String LOCAL_HOST = "localhost";
+    private static final int PORT = 9585;
+    // long enough for the tests never to cross the start of a window
+    private static final Duration WINDOW = Duration.ofDays(1);
+
+    private KafkaStreams kafkaStreams;
+    private ViewResourcesClient client;
+    private StoreReadiness<CustomerReservations> storeReadiness;
+    private ViewService<TableReservationsDto, TableReservationDto, CustomerReservations> viewService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        var streams = mock(StreamsBuilderFactoryBean.class);
+        kafkaStreams = mock(KafkaStreams.class);
+        when(streams.getKafkaStreams()).thenReturn(kafkaStreams);
+        client = mock(ViewResourcesClient.class);
+        storeReadiness = mock(StoreReadiness.class);
+        viewService = new ViewService<>(LOCAL_HOST, PORT, streams, "store", WINDOW,
+                TableReservationsDto.class, TableReservationDto.class,
+                TableReservationViewService.DTO_MAPPER, TableReservationsDto::tableReservations, TableReservationsDto::new,
+                "/api/tables/reservations", Topics.CUSTOMER_EVENTS_TOPIC, client,
+                new ScatterGather(Duration.ofSeconds(1), Duration.ofMillis(200), false, 16),
+                new NearCache<>("near-cache", 1_000_000, Duration.ofMinutes(1), (id, dto) -> 1, new SimpleMeterRegistry()),
+                storeReadiness);
+    }
+
+    @Test
+    void pagesThroughLocalPartitionsInKeyOrder() {
+        //given
+        hostsStore(metadata(LOCAL_HOST, 0, 1));
+        storeOfPartition(0, "a", "c", "e");
+        storeOfPartition(1, "b", "d");
+        //when
+        var pages = new ArrayList<List<String>>();
+        String token = null;
+        do {
+            var page = viewService.getPage(2, token, false).block();
+            pages.add(customerIds(page));
+            token = page.continuationToken();
+        } while (token != null);
+        //then
+        assertThat(pages).containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e"));
+    }
+
+    @Test
+    void rejectsTokenOfAnInstanceThatDoesNotHostTheStore() {
+        //given
+        hostsStore(metadata(LOCAL_HOST, 0), metadata("remote", 1));
+        var token = ContinuationToken.startOf("attacker.example:80").encode();
+        //when
+        //then
+        StepVerifier.create(viewService.getPage(2, token, true))
+                .expectErrorSatisfies(throwable -> assertThat(throwable)
+                        .isInstanceOfSatisfying(ResponseStatusException.class, exception ->
+                                assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST)))
+                .verify();
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void getsManyIdsFromLocalAndRemoteInstancesWithOneRequestPerInstance() {
+        //given
+        whenStoreIsReady(storeWith("a", "b"));
+        hostsKey("a", LOCAL_HOST, 0);
+        hostsKey("b", LOCAL_HOST, 0);
+        hostsKey("c", "remote-1", 1);
+        hostsKey("d", "remote-2", 2);
+        hostsKey("e", "remote-2", 2);
+        answersMget("remote-1", Mono.just(reservationsOf("c")));
+        answersMget("remote-2", Mono.just(reservationsOf("d", "e")));
+        //when
+        var reservations = viewService.getByIds(List.of("a", "b", "c", "d", "e"), true).block();
+        //then
+        assertThat(reservations.tableReservations()).extracting(TableReservationDto::customerId)
+                .containsExactlyInAnyOrder("a", "b", "c", "d", "e");
+        assertThat(reservations.missingPartitions()).isEmpty();
+        verify(client).postOne(eq(TableReservationsDto.class), contains("remote-2"), eq(List.of("d", "e")));
+        verify(client, times(2)).postOne(any(), anyString(), any());
+    }
+
+    @Test
+    void getsManyIdsFromTheInstancesThatAnsweredWhenOneFails() {
+        //given
+        whenStoreIsReady(storeWith("a"));
+        hostsKey("a", LOCAL_HOST, 0);
+        hostsKey("c", "remote-1", 1);
+        hostsKey("d", "remote-2", 2);
+        answersMget("remote-1", Mono.just(reservationsOf("c")));
+        answersMget("remote-2", Mono.error(new IllegalStateException("down")));
+        //when
+        var reservations = viewService.getByIds(List.of("a", "c", "d"), true).block();
+        //then
+        assertThat(reservations.tableReservations()).extracting(TableReservationDto::customerId)
+                .containsExactlyInAnyOrder("a", "c");
+        assertThat(reservations.missingPartitions()).containsExactly(2);
+    }
+
+    @Test
+    void getsManyIdsOfALowLevelQueryFromTheLocalStoreOnly() {
+        //given
+        whenStoreIsReady(storeWith("a", "b"));
+        //when
+        var reservations = viewService.getByIds(List.of("a", "b", "unknown"), false).block();
+        //then
+        assertThat(reservations.tableReservations()).extracting(TableReservationDto::customerId)
+                .containsExactly("a", "b");
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void customerWithoutReservationsIsAnsweredAsAvailable() {
+        //given
+        var store = storeWith();
+        var now = System.currentTimeMillis();
+        store.put("released", CustomerReservations.none(), now - now % WINDOW.toMillis());
+        whenStoreIsReady(store);
+        //when
+        var reservations = viewService.getByIds(List.of("released"), false).block();
+        //then
+        assertThat(reservations.tableReservations()).containsExactly(new TableReservationDto("released", null, "AVAILABLE"));
+    }
+
+    private void hostsKey(String id, String host, int partition) {
+        when(kafkaStreams.queryMetadataForKey(eq("store"), eq(id), any(StringSerializer.class)))
+                .thenReturn(new KeyQueryMetadata(new HostInfo(host, PORT), Set.of(), partition));
+    }
+
+    private void answersMget(String host, Mono<TableReservationsDto> answer) {
+        when(client.postOne(eq(TableReservationsDto.class), contains(host), any())).thenReturn(answer);
+    }
+
+    private void whenStoreIsReady(WindowStore<String, CustomerReservations> store) {
+        when(storeReadiness.store()).thenReturn(Mono.just(store));
+    }
+
+    private static TableReservationsDto reservationsOf(String... customerIds) {
+        return new TableReservationsDto(Stream.of(customerIds)
+                .map(customerId -> new TableReservationDto(customerId, "table-" + customerId, "RESERVED_AWAITING_PAYMENT"))
+                .toList());
+    }
+
+    private void hostsStore(StreamsMetadata... metadata) {
+        when(kafkaStreams.streamsMetadataForStore(anyString())).thenReturn(List.of(metadata));
+    }
+
+    private static StreamsMetadata metadata(String host, Integer... partitions) {
+        var metadata = mock(StreamsMetadata.class);
+        when(metadata.host()).thenReturn(host);
+        when(metadata.port()).thenReturn(PORT);
+        when(metadata.hostInfo()).thenReturn(new HostInfo(host, PORT));
+        when(metadata.topicPartitions()).thenReturn(Set.of(partitions).stream()
+                .map(partition -> new TopicPartition(Topics.CUSTOMER_EVENTS_TOPIC, partition))
+                .collect(Collectors.toSet()));
+        when(metadata.standbyTopicPartitions()).thenReturn(Set.of());
+        return metadata;
+    }
+
+    private void storeOfPartition(int partition, String... customerIds) {
+        when(storeReadiness.store(partition)).thenReturn(Mono.just(storeWith(customerIds)));
+    }
+
+    private static WindowStore<String, CustomerReservations> storeWith(String... customerIds) {
+        WindowStore<String, CustomerReservations> store = Stores.windowStoreBuilder(
+                        Stores.inMemoryWindowStore("store", WINDOW.multipliedBy(2), WINDOW, false),
+                        Serdes.String(), RESERVATION_AGGREGATE_BINARY_SERDE)
+                .withLoggingDisabled()
+                .build();
+        store.init(new MockProcessorContext<>().getStateStoreContext(), store);
+        var now = System.currentTimeMillis();
+        var windowStart = now - now % WINDOW.toMillis();
+        for (var customerId : customerIds) {
+            store.put(customerId, CustomerReservations.of(TableReservation.createTableReservation()
+                    .withTableId("table-" + customerId)
+                    .awaitPayment(customerId)), windowStart);
+        }
+        return store;
+    }
+
+    private static List<String> customerIds(PageDto<TableReservationDto> page) {
+        return page.items().stream().map(TableReservationDto::customerId).toList();
+    }
+}